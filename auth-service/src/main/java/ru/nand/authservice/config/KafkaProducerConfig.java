@@ -8,6 +8,9 @@ import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import ru.nand.authservice.entity.dto.NotificationDTO;
+import ru.nand.authservice.util.NotificationAvroSerializer;
+import ru.nand.authservice.util.NotificationSchemaRegistry;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -18,8 +21,7 @@ public class KafkaProducerConfig {
 
     @Bean
     public ProducerFactory<String, String> producerFactory(){
-        Map<String, Object> props = new HashMap<>();
-        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");  // TODO мб через запятую lh:9092, lh:9093, lh:9094
+        Map<String, Object> props = producerProps();
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class); // Чтобы не использовать ObjectMapper для оборачивания
 
@@ -30,4 +32,36 @@ public class KafkaProducerConfig {
     public KafkaTemplate<String, String> kafkaTemplate(){
         return new KafkaTemplate<>(producerFactory());
     }
+
+    @Bean
+    public NotificationSchemaRegistry notificationSchemaRegistry() {
+        return NotificationSchemaRegistry.load();
+    }
+
+    /// Уведомления: ключ - email получателя, значение - Avro (см. NotificationAvroSerializer)
+    @Bean
+    public ProducerFactory<String, NotificationDTO> notificationProducerFactory(NotificationSchemaRegistry notificationSchemaRegistry){
+        return new DefaultKafkaProducerFactory<>(producerProps(), new StringSerializer(), new NotificationAvroSerializer(notificationSchemaRegistry));
+    }
+
+    @Bean
+    public KafkaTemplate<String, NotificationDTO> notificationKafkaTemplate(ProducerFactory<String, NotificationDTO> notificationProducerFactory){
+        return new KafkaTemplate<>(notificationProducerFactory);
+    }
+
+    private static Map<String, Object> producerProps(){
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");  // TODO мб через запятую lh:9092, lh:9093, lh:9094
+
+        // Идемпотентный продюсер: ретраи не дублируют и не переупорядочивают сообщения одного ключа в партиции
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5); // Максимум, при котором идемпотентность сохраняет порядок
+        // Пропускная способность: сообщения копятся в пачки до linger.ms и сжимаются целиком
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 20);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, 64 * 1024);
+        props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, 5_000); // Ожидание метаданных при недоступном брокере, дольше send не блокирует
+        return props;
+    }
 }
@@ -1,9 +1,11 @@
 package ru.nand.authservice.config;
 
 import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.TopicBuilder;
+import ru.nand.authservice.service.AccountProvisioner;
 
 import java.util.Map;
 
@@ -18,4 +20,38 @@ public class KafkaTopicConfig {
                 .configs(Map.of("min.insync.replicas", "2")) // Кол-во реплик, которые должны подтвердить запись (лидер + реплика)
                 .build();
     }
+
+    // Топик отзывов сессий. Компактный: по каждому токену хранится только последнее событие, старые удаляются по retention
+    @Bean
+    public NewTopic sessionRevocationsTopic(@Value("${jwt.user.access.expiration}") long accessTokenExpiration){
+        return TopicBuilder.name("session-revocations-topic")
+                .partitions(3)
+                .replicas(3)
+                .configs(Map.of(
+                        "cleanup.policy", "compact,delete",
+                        "retention.ms", String.valueOf(accessTokenExpiration), // Дольше access токена отзыв не нужен
+                        "min.insync.replicas", "2"
+                ))
+                .build();
+    }
+
+    // Регистрации для account-service, ключ - userId (события одного пользователя в одной партиции)
+    @Bean
+    public NewTopic userRegisteredTopic(){
+        return TopicBuilder.name(AccountProvisioner.USER_REGISTERED_TOPIC)
+                .partitions(3)
+                .replicas(3)
+                .configs(Map.of("min.insync.replicas", "2"))
+                .build();
+    }
+
+    // Подтверждения создания аккаунтов от account-service
+    @Bean
+    public NewTopic accountProvisionedTopic(){
+        return TopicBuilder.name(AccountProvisioner.ACCOUNT_PROVISIONED_TOPIC)
+                .partitions(3)
+                .replicas(3)
+                .configs(Map.of("min.insync.replicas", "2"))
+                .build();
+    }
 }
@@ -3,29 +3,20 @@ package ru.nand.authservice.config;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
-import org.springframework.data.redis.serializer.StringRedisSerializer;
-import ru.nand.authservice.entity.dto.RegisterDTO;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import ru.nand.authservice.service.TwoTierCacheManager;
 
 @Configuration
 public class RedisConfig {
 
+    /// Подписка на инвалидации кэшей от других инстансов
     @Bean
-    public RedisTemplate<String, RegisterDTO> registerRedisTemplate(RedisConnectionFactory redisConnectionFactory) {
-        RedisTemplate<String, RegisterDTO> template = new RedisTemplate<>();
-        template.setConnectionFactory(redisConnectionFactory);
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory, TwoTierCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(TwoTierCacheManager.INVALIDATION_CHANNEL));
 
-        template.setKeySerializer(new StringRedisSerializer());
-
-        Jackson2JsonRedisSerializer<RegisterDTO> serializer = new Jackson2JsonRedisSerializer<>(RegisterDTO.class);
-        template.setValueSerializer(serializer);
-
-        return template;
-    }
-
-    @Bean
-    public Jackson2JsonRedisSerializer<RegisterDTO> registerDTOSerializer() {
-        return new Jackson2JsonRedisSerializer<>(RegisterDTO.class);
+        return container;
     }
 }
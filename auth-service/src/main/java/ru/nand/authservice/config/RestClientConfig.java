@@ -1,33 +1,73 @@
 package ru.nand.authservice.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestClient;
-import ru.nand.authservice.util.ServiceJwtUtil;
+import ru.nand.authservice.util.CircuitBreaker;
+import ru.nand.authservice.util.OutboundCallGuard;
+import ru.nand.authservice.util.ServiceTokenProvider;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
 
 @Configuration
 public class RestClientConfig {
 
-    private final ServiceJwtUtil serviceJwtUtil;
+    private final ServiceTokenProvider serviceTokenProvider;
 
     @Autowired
-    public RestClientConfig(ServiceJwtUtil serviceJwtUtil) {
-        this.serviceJwtUtil = serviceJwtUtil;
+    public RestClientConfig(ServiceTokenProvider serviceTokenProvider) {
+        this.serviceTokenProvider = serviceTokenProvider;
     }
 
     @Value("${account-service.url}")
     private String accountServiceUrl;
 
+    @Value("${account-service.client.connect-timeout:PT1S}")
+    private Duration connectTimeout;
+    @Value("${account-service.client.read-timeout:PT3S}")
+    private Duration readTimeout;
+    @Value("${account-service.client.max-concurrent-calls:32}")
+    private int maxConcurrentCalls;
+    @Value("${account-service.client.max-wait:PT0.05S}")
+    private Duration maxWait;
+    @Value("${account-service.client.circuit-breaker.window-size:20}")
+    private int windowSize;
+    @Value("${account-service.client.circuit-breaker.minimum-calls:10}")
+    private int minimumCalls;
+    @Value("${account-service.client.circuit-breaker.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+    @Value("${account-service.client.circuit-breaker.open-duration:PT10S}")
+    private Duration openDuration;
+
+    /// HTTP-клиент account-service: соединения переиспользуются (keep-alive пул JDK-клиента на хост),
+    /// HTTP/2 там, где сервер его поддерживает, иначе HTTP/1.1. Закрывается вместе с контекстом
+    @Bean
+    public HttpClient accountServiceHttpClient() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
     /// RestClient для account-service
     @Bean
-    public RestClient accountServiceRestClient(RestClient.Builder builder){
-        String serviceToken = serviceJwtUtil.generateServiceToken();
+    public RestClient accountServiceRestClient(RestClient.Builder builder, HttpClient accountServiceHttpClient, MeterRegistry meterRegistry){
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(accountServiceHttpClient);
+        requestFactory.setReadTimeout(readTimeout);
+
+        CircuitBreaker circuitBreaker = new CircuitBreaker("account-service", windowSize, minimumCalls, failureRateThreshold, openDuration, meterRegistry);
 
         return builder
                 .baseUrl(accountServiceUrl)
-                .defaultHeader("Authorization", "Bearer " + serviceToken)
+                .requestFactory(requestFactory)
+                .requestInterceptor(serviceTokenProvider) // Сервисный токен обновляется в фоне, а не один раз при старте
+                .requestInterceptor(new OutboundCallGuard("account-service", maxConcurrentCalls, maxWait, circuitBreaker, meterRegistry))
                 .build();
     }
 }
@@ -0,0 +1,10 @@
+package ru.nand.authservice.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/// Фоновые задачи: шедулеры сессий (session.sweeper.enabled), секции sessions, сброс буфера активности
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
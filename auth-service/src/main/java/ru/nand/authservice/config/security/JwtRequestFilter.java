@@ -15,7 +15,10 @@ import ru.nand.authservice.entity.ENUMS.ROLE;
 import ru.nand.authservice.entity.User;
 import ru.nand.authservice.entity.UserDetailsImpl;
 import ru.nand.authservice.service.SessionService;
+import ru.nand.authservice.util.RevocationDenyList;
+import ru.nand.authservice.util.TokenVerificationResult;
 import ru.nand.authservice.util.UserJwtUtil;
+import ru.nand.authservice.util.VerifiedUserToken;
 
 import java.io.IOException;
 
@@ -25,11 +28,13 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
     private final UserJwtUtil userJwtUtil;
     private final SessionService sessionService;
+    private final RevocationDenyList revocationDenyList;
 
     @Autowired
-    public JwtRequestFilter(UserJwtUtil userJwtUtil, SessionService sessionService) {
+    public JwtRequestFilter(UserJwtUtil userJwtUtil, SessionService sessionService, RevocationDenyList revocationDenyList) {
         this.userJwtUtil = userJwtUtil;
         this.sessionService = sessionService;
+        this.revocationDenyList = revocationDenyList;
     }
 
 
@@ -39,8 +44,12 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         try{
             if (token != null) {
+                // Подпись, срок действия и claims проверяются за один разбор
+                byte[] tokenHash = userJwtUtil.hashToken(token);
+                TokenVerificationResult verification = userJwtUtil.verify(token, tokenHash);
+
                 // Если токен истек
-                if(!userJwtUtil.validateExpirationUserToken(token)){
+                if(verification.isExpired()){
                     log.warn("Токен истек");
 
                     response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Token expired");
@@ -48,9 +57,11 @@ public class JwtRequestFilter extends OncePerRequestFilter {
                 }
 
                 // Если токен валиден и сессия текущего пользователя активна (так как проверяем по токену, заодно проверяем существует ли такая сессия с таким токеном вообще). Заодно проверяется заблокирован пользователь или нет (иначе сессия будет заблокирована)
-                if(userJwtUtil.validateUserToken(token) && sessionService.isSessionActive(token)){
-                    String username = userJwtUtil.extractUsername(token);
-                    String role = userJwtUtil.extractRole(token);
+                // Отозванные токены отсекаются deny-list без обращения к хранилищу сессий
+                if(verification.isValid() && !revocationDenyList.isRevoked(tokenHash) && sessionService.isSessionActive(token)){
+                    VerifiedUserToken verifiedToken = verification.getToken();
+                    String username = verifiedToken.getSubject();
+                    String role = verifiedToken.getRole();
 
                     if(username != null && SecurityContextHolder.getContext().getAuthentication() == null){
                         UserDetails userDetails = new UserDetailsImpl(
@@ -62,13 +73,14 @@ public class JwtRequestFilter extends OncePerRequestFilter {
                                 new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
 
                         SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+                        request.setAttribute(VerifiedUserToken.REQUEST_ATTRIBUTE, verifiedToken); // Чтобы дальше по цепочке токен не разбирали заново
                         log.debug("Пользователь {} в КБ", userDetails);
                     } else {
                         log.error("Не получилось достать username: {} или в КБ уже есть пользователь: {}", username, SecurityContextHolder.getContext().getAuthentication().getName());
                         response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Token processing error");
                     }
                 } else {
-                    log.error("Токен не прошел валидацию или сессия неактивна");
+                    log.warn("Токен не прошел валидацию или сессия неактивна");
                     response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Token invalid or session is inactive");
                     return;
                 }
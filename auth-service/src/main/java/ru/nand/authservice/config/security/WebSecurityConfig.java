@@ -7,17 +7,18 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import ru.nand.authservice.util.PasswordHasher;
 
 @Configuration
 @EnableWebSecurity
 public class WebSecurityConfig {
 
+    /// Стоимость BCrypt подбирается в PasswordHasher
     @Bean
-    public PasswordEncoder passwordEncoder(){
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHasher passwordHasher){
+        return passwordHasher.getPasswordEncoder();
     }
 
     @Bean
@@ -1,5 +1,6 @@
 package ru.nand.authservice.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,6 +10,9 @@ import org.springframework.web.bind.annotation.*;
 import ru.nand.authservice.entity.dto.LoginDTO;
 import ru.nand.authservice.entity.dto.RegisterDTO;
 import ru.nand.authservice.service.AuthService;
+import ru.nand.authservice.service.RateLimiter;
+
+import java.time.Duration;
 
 @Slf4j
 @RestController
@@ -16,28 +20,42 @@ import ru.nand.authservice.service.AuthService;
 public class AuthController {
 
     private final AuthService authService;
+    private final RateLimiter rateLimiter;
 
     @Autowired
-    public AuthController(AuthService authService) {
+    public AuthController(AuthService authService, RateLimiter rateLimiter) {
         this.authService = authService;
+        this.rateLimiter = rateLimiter;
     }
 
     /// Регистрация
     @PostMapping("/register")
-    public ResponseEntity<?> register(@Valid @RequestBody RegisterDTO registerDTO, BindingResult bindingResult) {
+    public ResponseEntity<?> register(@Valid @RequestBody RegisterDTO registerDTO, BindingResult bindingResult, HttpServletRequest request) {
         log.info("Запрос на регистрацию");
+        // Лимит до отправки письма
+        Duration retryAfter = rateLimiter.tryAcquire(RateLimiter.Endpoint.REGISTER, request.getRemoteAddr(), registerDTO.getEmail());
+        if (!retryAfter.isZero()) return tooManyRequests(retryAfter);
+
         return authService.registerUser(registerDTO, bindingResult);
     }
 
     /// Подтверждение почты
     @PostMapping("/verify-email")
-    public ResponseEntity<?> verify(@RequestParam String email, @RequestParam String code){
+    public ResponseEntity<?> verify(@RequestParam String email, @RequestParam String code, HttpServletRequest request){
+        // Лимит на подбор кода
+        Duration retryAfter = rateLimiter.tryAcquire(RateLimiter.Endpoint.VERIFY_EMAIL, request.getRemoteAddr(), email);
+        if (!retryAfter.isZero()) return tooManyRequests(retryAfter);
+
         return authService.verifyAndRegisterUser(email, code);
     }
 
     /// Логин
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody LoginDTO loginDTO, BindingResult bindingResult) {
+    public ResponseEntity<?> login(@Valid @RequestBody LoginDTO loginDTO, BindingResult bindingResult, HttpServletRequest request) {
+        // Лимит до проверки пароля BCrypt
+        Duration retryAfter = rateLimiter.tryAcquire(RateLimiter.Endpoint.LOGIN, request.getRemoteAddr(), loginDTO.getUsername());
+        if (!retryAfter.isZero()) return tooManyRequests(retryAfter);
+
         return authService.loginUser(loginDTO, bindingResult);
     }
 
@@ -48,4 +66,10 @@ public class AuthController {
         return authService.logoutUser(authHeader);
     }
 
+    /// 429 с Retry-After в целых секундах (не меньше 1)
+    private ResponseEntity<?> tooManyRequests(Duration retryAfter) {
+        long seconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+        return ResponseEntity.status(429).header("Retry-After", String.valueOf(seconds)).body("Too many requests, try again later");
+    }
+
 }
@@ -0,0 +1,22 @@
+package ru.nand.authservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/// Последний fencing token, с которым фоновая задача (шард задачи) писала в БД.
+/// Запись с меньшим токеном означает, что аренда уже перешла другому инстансу
+@Entity
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "job_fences")
+public class JobFence {
+    @Id
+    @Column(name = "lease")
+    private String lease; // {job}:{shard}
+
+    @Column(name = "token", nullable = false)
+    private Long token;
+}
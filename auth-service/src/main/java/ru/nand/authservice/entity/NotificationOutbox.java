@@ -0,0 +1,35 @@
+package ru.nand.authservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/// Уведомление, ожидающее публикации в auth-notifications-topic.
+/// Сохраняется в той же транзакции, что и изменение, о котором уведомляет
+@Entity
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "notification_outbox")
+public class NotificationOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_outbox_id")
+    @SequenceGenerator(name = "notification_outbox_id", sequenceName = "notification_outbox_id_seq", allocationSize = 50) // См. V12 миграцию
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+
+    @Column(name = "message", nullable = false, columnDefinition = "TEXT")
+    private String message;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil; // Захвачено релеем до этого времени, null - свободно
+}
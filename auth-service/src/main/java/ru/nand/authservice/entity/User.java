@@ -41,6 +41,9 @@ public class User {
     @Column(name = "registration_date")
     private LocalDateTime registrationDate;
 
+    @Column(name = "account_provisioned_at")
+    private LocalDateTime accountProvisionedAt; // null - account-service еще не подтвердил создание аккаунта
+
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true) // Каскадное применение операций над пользователем к сессиям и удаление сессий при их удалении из списка
     private List<UserSession> sessions;
 
@@ -19,16 +19,17 @@ public class UserSession {
     @Column(name = "id")
     private Long id;
 
-    @Column(name = "access_token_hash", columnDefinition = "TEXT")
-    private String accessTokenHash;
+    @Column(name = "access_token_hash", columnDefinition = "bytea", length = 32) // SHA-256 в бинарном виде, уникален за счет jti
+    private byte[] accessTokenHash;
 
-    @Column(name = "refresh_token_hash", columnDefinition = "TEXT")
-    private String refreshTokenHash;
+    @Column(name = "refresh_token_hash", columnDefinition = "bytea", length = 32)
+    private byte[] refreshTokenHash;
 
     private LocalDateTime accessTokenExpires;
 
     private LocalDateTime refreshTokenExpires;
 
+    @Column(nullable = false, updatable = false) // Ключ секционирования таблицы (см. SessionPartitionManager)
     private LocalDateTime sessionCreationTime;
 
     private LocalDateTime lastActivityTime;
@@ -0,0 +1,15 @@
+package ru.nand.authservice.entity.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/// Подтверждение account-service в account-provisioned-topic (JSON, ключ - userId)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountProvisionedEvent {
+    private Long userId;
+
+    private Long accountId;
+}
@@ -0,0 +1,39 @@
+package ru.nand.authservice.entity.dto;
+
+/// Сводка по сессиям пользователя для проверок при входе/обновлении токенов и для администрирования
+public interface SessionSummary {
+    Long getActiveSessions(); // Кол-во ACTIVE сессий
+    Long getBlockedSessions(); // Кол-во BLOCKED сессий
+    Boolean getUserBlocked(); // Заблокирован ли сам пользователь
+
+    default boolean hasActiveSessions() {
+        return getActiveSessions() > 0;
+    }
+
+    default boolean hasBlockedSessions() {
+        return getBlockedSessions() > 0;
+    }
+
+    default boolean isUserBlocked() {
+        return Boolean.TRUE.equals(getUserBlocked());
+    }
+
+    static SessionSummary of(long activeSessions, long blockedSessions, boolean userBlocked) {
+        return new SessionSummary() {
+            @Override
+            public Long getActiveSessions() {
+                return activeSessions;
+            }
+
+            @Override
+            public Long getBlockedSessions() {
+                return blockedSessions;
+            }
+
+            @Override
+            public Boolean getUserBlocked() {
+                return userBlocked;
+            }
+        };
+    }
+}
@@ -0,0 +1,23 @@
+package ru.nand.authservice.entity.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/// Регистрация для account-service: событие user-registered-topic (JSON, ключ - userId) в режиме async и тело
+/// POST /api/accounts/register в режиме sync. eventId детерминирован по userId, поэтому повторная публикация сверкой
+/// несет тот же eventId. Учетных данных нет ни в одном режиме - пароль остается в auth-service
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserRegisteredEvent {
+    private String eventId;
+
+    private Long userId;
+
+    private String username;
+
+    private String email;
+
+    private long registeredAt; // epoch ms
+}
@@ -0,0 +1,32 @@
+package ru.nand.authservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.nand.authservice.entity.JobFence;
+
+@Repository
+public interface JobFenceRepository extends JpaRepository<JobFence, String> {
+
+    /// Следующий fencing token аренды. Счетчик хранится здесь же, рядом с проверкой в advance, поэтому сброс
+    /// или потеря данных Redis не выдаст токен меньше уже записанного. Ждет транзакцию прежнего держателя, держащую строку
+    @Transactional
+    @Query(value = """
+            INSERT INTO job_fences (lease, token) VALUES (:lease, 1)
+            ON CONFLICT (lease) DO UPDATE SET token = job_fences.token + 1
+            RETURNING token
+            """, nativeQuery = true)
+    long issue(String lease);
+
+    /// Продвижение fencing token аренды. 0 - в БД уже записан больший токен, текущий держатель устарел.
+    /// Строка остается заблокированной до конца транзакции, поэтому запись устаревшего держателя не пересечется с новым
+    @Modifying
+    @Query(value = """
+            INSERT INTO job_fences (lease, token) VALUES (:lease, :token)
+            ON CONFLICT (lease) DO UPDATE SET token = EXCLUDED.token
+            WHERE job_fences.token <= EXCLUDED.token
+            """, nativeQuery = true)
+    int advance(String lease, long token);
+}
@@ -0,0 +1,41 @@
+package ru.nand.authservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import ru.nand.authservice.entity.NotificationOutbox;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+    /// Старейшие неопубликованные уведомления шарда (остаток хэша email по модулю shardCount), не захваченные другим релеем
+    /// (или захваченные до истечения claimed_until), с блокировкой до конца транзакции. Уведомление пропускается, пока более
+    /// раннее уведомление того же получателя еще публикуется (захвачено), чтобы не обогнать его
+    @Query(value = """
+            SELECT * FROM notification_outbox n
+            WHERE abs(mod(hashtext(n.user_email), :shardCount)) = :shard
+              AND (n.claimed_until IS NULL OR n.claimed_until < :now)
+              AND NOT EXISTS (SELECT 1 FROM notification_outbox earlier
+                              WHERE earlier.user_email = n.user_email
+                                AND (earlier.created_at, earlier.id) < (n.created_at, n.id)
+                                AND earlier.claimed_until >= :now)
+            ORDER BY n.created_at, n.id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<NotificationOutbox> lockBatch(int shardCount, int shard, int limit, LocalDateTime now);
+
+    /// Захват пачки на время публикации. claimedUntil null - строки снова свободны
+    @Modifying
+    @Query("UPDATE NotificationOutbox n SET n.claimedUntil = :claimedUntil WHERE n.id IN :ids")
+    int claim(Collection<Long> ids, LocalDateTime claimedUntil);
+
+    @Modifying
+    @Query("DELETE FROM NotificationOutbox n WHERE n.id IN :ids")
+    int deleteByIds(Collection<Long> ids);
+}
@@ -1,13 +1,53 @@
 package ru.nand.authservice.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Repository;
 import ru.nand.authservice.entity.User;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.id = :id")
+    int updatePassword(Long id, String password);
+
+    /// Пользователи без подтвержденного аккаунта, зарегистрированные раньше before, у которых подошло время повтора
+    /// (сверка AccountProvisioner). Сначала те, кого еще не повторяли, затем по времени повтора
+    @Query(value = """
+            SELECT * FROM users
+            WHERE account_provisioned_at IS NULL
+              AND registration_date < :before
+              AND (provisioning_next_attempt_at IS NULL OR provisioning_next_attempt_at <= :now)
+            ORDER BY provisioning_next_attempt_at NULLS FIRST, registration_date, id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<User> findUnprovisioned(LocalDateTime before, LocalDateTime now, int limit);
+
+    /// Учет повтора сверки: следующий не раньше чем через baseBackoff * 2^попыток, но не дольше maxBackoff (в секундах)
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE users
+            SET provisioning_attempts = provisioning_attempts + 1,
+                provisioning_next_attempt_at = :now + make_interval(secs => LEAST(:maxBackoffSeconds, :baseBackoffSeconds * power(2, LEAST(provisioning_attempts, 30))))
+            WHERE id IN :ids
+            """, nativeQuery = true)
+    int scheduleProvisioningRetry(Collection<Long> ids, LocalDateTime now, double baseBackoffSeconds, double maxBackoffSeconds);
+
+    /// Идемпотентно: повторное подтверждение не меняет уже записанное время
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.accountProvisionedAt = :provisionedAt WHERE u.id = :id AND u.accountProvisionedAt IS NULL")
+    int markAccountProvisioned(Long id, LocalDateTime provisionedAt);
 }
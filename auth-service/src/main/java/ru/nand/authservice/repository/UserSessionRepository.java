@@ -1,19 +1,70 @@
 package ru.nand.authservice.repository;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import ru.nand.authservice.entity.ENUMS.STATUS;
 import ru.nand.authservice.entity.User;
 import ru.nand.authservice.entity.UserSession;
+import ru.nand.authservice.entity.dto.SessionSummary;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserSessionRepository extends JpaRepository<UserSession, Long> {
     List<UserSession> findByUserAndStatus(User user, STATUS status);
-    Optional<UserSession> findByRefreshTokenHash(String refreshTokenHash);
-    Optional<UserSession> findByAccessTokenHash(String accessTokenHash);
+    Optional<UserSession> findByRefreshTokenHash(byte[] refreshTokenHash);
+    Optional<UserSession> findByAccessTokenHash(byte[] accessTokenHash);
     List<UserSession> findByStatusAndLastActivityTimeBefore(STATUS status, LocalDateTime threshold);
+    boolean existsByUserAndStatus(User user, STATUS status);
+
+    /// Сессия вместе с пользователем одним запросом (пользователь нужен для новой пары токенов)
+    @EntityGraph(attributePaths = "user")
+    Optional<UserSession> findWithUserByRefreshTokenHash(byte[] refreshTokenHash);
+
+    /// Кол-во активных и заблокированных сессий и флаг блокировки пользователя одним запросом по индексу (user_id, status).
+    /// Пусто, если пользователя нет
+    @Query(value = """
+            SELECT count(s.id) FILTER (WHERE s.status = 'ACTIVE') AS "activeSessions",
+                   count(s.id) FILTER (WHERE s.status = 'BLOCKED') AS "blockedSessions",
+                   u.is_blocked AS "userBlocked"
+            FROM users u
+            LEFT JOIN sessions s ON s.user_id = u.id AND s.status IN ('ACTIVE', 'BLOCKED')
+            WHERE u.id = :userId
+            GROUP BY u.id
+            """, nativeQuery = true)
+    Optional<SessionSummary> summarizeByUserId(Long userId);
+
+    /// Порция сессий для шедулеров: ключевая пагинация по (last_activity_time, id) без OFFSET.
+    /// Строки блокируются до конца транзакции, занятые другим инстансом пропускаются. Шард - остаток id по модулю shardCount
+    @Query(value = """
+            SELECT id, last_activity_time AS "lastActivityTime", access_token_hash AS "accessTokenHash", access_token_expires AS "accessTokenExpires"
+            FROM sessions
+            WHERE status = :status
+              AND last_activity_time < :threshold
+              AND (last_activity_time, id) > (:afterTime, :afterId)
+              AND mod(id, :shardCount) = :shard
+            ORDER BY last_activity_time, id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<SweepCandidate> lockSweepCandidates(String status, LocalDateTime threshold, LocalDateTime afterTime, long afterId,
+                                             int shardCount, int shard, int limit);
+
+    @Modifying
+    @Query("UPDATE UserSession s SET s.status = :status, s.lastActivityTime = :lastActivityTime WHERE s.id IN :ids")
+    int updateStatusByIds(Collection<Long> ids, STATUS status, LocalDateTime lastActivityTime);
+
+    /// Поля сессии, нужные шедулерам: ключ пагинации и данные для публикации отзыва
+    interface SweepCandidate {
+        Long getId();
+        LocalDateTime getLastActivityTime();
+        byte[] getAccessTokenHash();
+        LocalDateTime getAccessTokenExpires();
+    }
 }
@@ -0,0 +1,185 @@
+package ru.nand.authservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.nand.authservice.entity.User;
+import ru.nand.authservice.entity.dto.AccountProvisionedEvent;
+import ru.nand.authservice.entity.dto.UserRegisteredEvent;
+import ru.nand.authservice.repository.UserRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/// Создание аккаунта в account-service. В режиме async регистрация не ждет account-service: публикуется событие
+/// user-registered-topic, а users.account_provisioned_at заполняется по подтверждению из account-provisioned-topic.
+/// Сама таблица users служит outbox: все, что не подтверждено дольше reconcile-after, сверка публикует повторно
+/// с экспоненциальной паузой между повторами (reconcile-after * 2^попыток, не дольше max-backoff).
+///
+/// Контракт потребителя (at-least-once, событие может прийти несколько раз):
+/// 1. Аккаунт создается, только если аккаунта с таким userId еще нет, повтор не создает второй аккаунт и не считается ошибкой
+/// 2. Подтверждение {userId, accountId} публикуется с ключом userId и на повторное событие тоже - прошлое могло потеряться
+/// 3. Оффсет фиксируется после подтверждения, поэтому падение между ними приводит только к повтору
+@Slf4j
+@Service
+public class AccountProvisioner {
+    public static final String USER_REGISTERED_TOPIC = "user-registered-topic";
+    public static final String ACCOUNT_PROVISIONED_TOPIC = "account-provisioned-topic";
+    private static final String JOB = "account-provisioning-reconcile";
+
+    private final UserRepository userRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final JobLeaseManager jobLeaseManager;
+    private final boolean async;
+    private final Duration reconcileAfter;
+    private final Duration maxBackoff;
+    private final int batchSize;
+    private final Counter published;
+    private final Counter republished;
+    private final Counter publishFailures;
+    private final Timer provisioningLag;
+
+    @Autowired
+    public AccountProvisioner(UserRepository userRepository, KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper,
+                              JobLeaseManager jobLeaseManager, MeterRegistry meterRegistry,
+                              @Value("${account-service.provisioning.mode:sync}") String mode,
+                              @Value("${account-service.provisioning.reconcile-after:PT5M}") Duration reconcileAfter,
+                              @Value("${account-service.provisioning.batch-size:500}") int batchSize,
+                              @Value("${account-service.provisioning.max-backoff:PT6H}") Duration maxBackoff) {
+        this.userRepository = userRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.jobLeaseManager = jobLeaseManager;
+        this.async = "async".equalsIgnoreCase(mode);
+        this.reconcileAfter = reconcileAfter;
+        this.batchSize = batchSize;
+        this.maxBackoff = maxBackoff;
+        this.published = meterRegistry.counter("account.provisioning.published");
+        this.republished = meterRegistry.counter("account.provisioning.republished");
+        this.publishFailures = meterRegistry.counter("account.provisioning.publish.failures");
+        this.provisioningLag = meterRegistry.timer("account.provisioning.lag");
+    }
+
+    /// Аккаунт создается событием (true) или синхронным запросом в account-service (false)
+    public boolean isAsync() {
+        return async;
+    }
+
+    /// Публикация user-registered для только что созданного пользователя. Ошибка публикации не ломает регистрацию - ее подберет сверка
+    public void requestProvisioning(String username) {
+        userRepository.findByUsername(username).ifPresentOrElse(
+                user -> publish(user).thenRun(published::increment),
+                () -> log.warn("Пользователь {} не найден, событие регистрации не отправлено", username));
+    }
+
+    /// Тело синхронного запроса в account-service - тот же контракт, что и у события
+    public UserRegisteredEvent registration(String username) {
+        return userRepository.findByUsername(username)
+                .map(AccountProvisioner::registration)
+                .orElseThrow(() -> new RuntimeException("Пользователь " + username + " не найден"));
+    }
+
+    /// Синхронный режим: account-service уже ответил 2xx
+    public void confirmProvisioned(String username) {
+        userRepository.findByUsername(username).ifPresent(user -> markProvisioned(user.getId()));
+    }
+
+    @KafkaListener(topics = ACCOUNT_PROVISIONED_TOPIC, groupId = "auth-group",
+            autoStartup = "#{'${account-service.provisioning.mode:sync}' == 'async'}")
+    public void handleAccountProvisioned(ConsumerRecord<String, String> record) {
+        try {
+            AccountProvisionedEvent event = objectMapper.readValue(record.value(), AccountProvisionedEvent.class);
+            markProvisioned(event.getUserId());
+            log.debug("Аккаунт {} пользователя {} создан", event.getAccountId(), event.getUserId());
+        } catch (JsonProcessingException e) {
+            log.error("Некорректное подтверждение создания аккаунта: {}", e.getMessage());
+        }
+    }
+
+    /// Повторная публикация для пользователей без подтверждения. Потребитель идемпотентен, поэтому дубль безопасен,
+    /// аренда нужна только чтобы инстансы не публиковали одно и то же одновременно
+    @Scheduled(fixedDelayString = "${account-service.provisioning.reconcile-interval:PT1M}")
+    public void reconcile() {
+        if (!async) {
+            return;
+        }
+
+        jobLeaseManager.acquire(JOB, 0).ifPresent(lease -> {
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                List<User> pending = userRepository.findUnprovisioned(now.minus(reconcileAfter), now, batchSize);
+                if (pending.isEmpty()) {
+                    return;
+                }
+
+                // Попытка учитывается до публикации: даже если публикация не дойдет, следующий повтор будет позже
+                userRepository.scheduleProvisioningRetry(pending.stream().map(User::getId).toList(), now,
+                        reconcileAfter.toMillis() / 1000.0, maxBackoff.toMillis() / 1000.0);
+                pending.forEach(user -> publish(user).thenRun(republished::increment));
+                log.warn("Сверка: повторно отправлено событий регистрации - {}", pending.size());
+            } catch (RuntimeException e) {
+                log.error("Ошибка сверки аккаунтов: {}", e.getMessage());
+            } finally {
+                jobLeaseManager.release(lease);
+            }
+        });
+    }
+
+    private void markProvisioned(Long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (userRepository.markAccountProvisioned(userId, now) > 0) {
+            userRepository.findById(userId)
+                    .map(User::getRegistrationDate)
+                    .ifPresent(registeredAt -> provisioningLag.record(Duration.between(registeredAt, now)));
+        }
+    }
+
+    private CompletableFuture<Void> publish(User user) {
+        UserRegisteredEvent event = registration(user);
+
+        try {
+            return kafkaTemplate.send(USER_REGISTERED_TOPIC, String.valueOf(user.getId()), objectMapper.writeValueAsString(event))
+                    .<Void>thenApply(result -> null)
+                    .whenComplete((result, e) -> {
+                        if (e != null) {
+                            publishFailures.increment();
+                            log.warn("Не удалось опубликовать регистрацию пользователя {}: {}", user.getId(), e.getMessage());
+                        }
+                    });
+        } catch (JsonProcessingException | RuntimeException e) {
+            publishFailures.increment();
+            log.warn("Не удалось опубликовать регистрацию пользователя {}: {}", user.getId(), e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static UserRegisteredEvent registration(User user) {
+        return new UserRegisteredEvent(
+                eventId(user.getId()),
+                user.getId(),
+                user.getUsername(),
+                user.getEmail(),
+                user.getRegistrationDate() == null ? 0L : user.getRegistrationDate().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    /// Один и тот же eventId при любой повторной публикации
+    static String eventId(Long userId) {
+        return UUID.nameUUIDFromBytes(("user-registered:" + userId).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+}
@@ -4,7 +4,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.protocol.types.Field;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
@@ -16,28 +15,35 @@ import ru.nand.authservice.entity.dto.LoginDTO;
 import ru.nand.authservice.entity.dto.RegisterDTO;
 import ru.nand.authservice.entity.dto.TokenResponse;
 import ru.nand.authservice.util.NotificationUtil;
+import ru.nand.authservice.util.PasswordHasher;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @Service
 public class AuthServiceImpl implements AuthService {
 
-    private final RedisService redisService;
+    private static final Duration VERIFICATION_TTL = Duration.ofMinutes(5);
+
+    private final PendingRegistrationStore pendingRegistrationStore;
     private final UserService userService;
     private final NotificationUtil notificationUtil;
     private final RestClient accountServiceRestClient;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
+    private final AccountProvisioner accountProvisioner;
 
     @Autowired
-    public AuthServiceImpl(RedisService redisService, UserService userService, NotificationUtil notificationUtil, RestClient accountServiceRestClient, PasswordEncoder passwordEncoder) {
-        this.redisService = redisService;
+    public AuthServiceImpl(PendingRegistrationStore pendingRegistrationStore, UserService userService, NotificationUtil notificationUtil, RestClient accountServiceRestClient,
+                           PasswordHasher passwordHasher, AccountProvisioner accountProvisioner) {
+        this.pendingRegistrationStore = pendingRegistrationStore;
         this.userService = userService;
         this.notificationUtil = notificationUtil;
         this.accountServiceRestClient = accountServiceRestClient;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
+        this.accountProvisioner = accountProvisioner;
     }
 
     @Override
@@ -51,9 +57,8 @@ public class AuthServiceImpl implements AuthService {
         // Генерация кода2
         String verificationCode = String.valueOf((int) (Math.random() * 9000) + 1000);
 
-        // Сохранение временных данных в Redis
-        redisService.save("verification_code:" + registerDTO.getEmail(), verificationCode, 5, TimeUnit.MINUTES); // Храним почту как K, а верификационный код как V
-        redisService.save("pending_registration:" + registerDTO.getEmail(), registerDTO, 5, TimeUnit.MINUTES);
+        // Код и данные формы - одной записью в Redis
+        pendingRegistrationStore.save(registerDTO, verificationCode, VERIFICATION_TTL);
 
         // Формируем уведомление для передачи в топик, чтобы ответственный сервис отправил Email-нотификацию
         try{
@@ -72,7 +77,7 @@ public class AuthServiceImpl implements AuthService {
         Map<String, Object> responseBody = Map.of(
                 "message", "Verification code sent. Check your email.",
                 "email", registerDTO.getEmail(),
-                "expiresInMinutes", 5
+                "expiresInMinutes", VERIFICATION_TTL.toMinutes()
         );
 
         return ResponseEntity.created(location).body(responseBody);
@@ -80,38 +85,48 @@ public class AuthServiceImpl implements AuthService {
 
     @Override
     public ResponseEntity<?> verifyAndRegisterUser(String email, String code){
-        // Получаем код и дто из кэша
-        String savedCode = (String) redisService.get("verification_code:" + email);
-        RegisterDTO savedRegisterDTO = (RegisterDTO) redisService.get("pending_registration:" + email);
+        // Сверка кода и извлечение данных регистрации - одной атомарной операцией в Redis
+        PendingRegistrationStore.Verification verification = pendingRegistrationStore.verify(email, code);
 
-        // Если чего-то нет - значит код истек или данные невалидные
-        if (savedCode == null || savedRegisterDTO == null) return ResponseEntity.status(400).body("The verification code has expired or email/code is invalid");
+        // Нет регистрации - значит код истек или данные невалидные
+        if (verification.status() == PendingRegistrationStore.Status.MISSING) return ResponseEntity.status(400).body("The verification code has expired or email/code is invalid");
 
-        if(!savedCode.equals(code)) return ResponseEntity.status(400).body("Invalid verification code");
+        if (verification.status() == PendingRegistrationStore.Status.INVALID_CODE) return ResponseEntity.status(400).body("Invalid verification code");
 
-        // Чистим
-        redisService.delete("verification_code:" + email);
-        redisService.delete("pending_registration:" + email);
+        RegisterDTO savedRegisterDTO = verification.registerDTO();
 
         // Создаем пользователя и сессию, возвращаем TR
         TokenResponse tokenResponse;
         try {
             tokenResponse = userService.createUser(savedRegisterDTO);
+        } catch (RejectedExecutionException e) {
+            // Пул хэширования перегружен - регистрация возвращается в Redis с оставшимся сроком для повтора
+            if (!verification.remainingTtl().isZero()) {
+                pendingRegistrationStore.save(savedRegisterDTO, verification.code(), verification.remainingTtl());
+            }
+            return busy();
         } catch (RuntimeException e) {
             return ResponseEntity.status(400).body("Error to create user");
         }
 
-        // Отправляем registerDTO по restClient в сервис аккаунтов
+        // Аккаунт создастся по событию, клиент не ждет account-service
+        if (accountProvisioner.isAsync()) {
+            accountProvisioner.requestProvisioning(savedRegisterDTO.getUsername());
+            return ResponseEntity.status(200).body(tokenResponse);
+        }
+
+        // Отправляем регистрацию (без пароля) по restClient в сервис аккаунтов
         try{
             log.info("Отправка запроса в серсис аккаунтов");
             ResponseEntity<Void> responseEntity = accountServiceRestClient
                     .post()
                     .uri("/api/accounts/register")
-                    .body(savedRegisterDTO)
+                    .body(accountProvisioner.registration(savedRegisterDTO.getUsername()))
                     .retrieve()
                     .toBodilessEntity();
 
             if (responseEntity.getStatusCode().is2xxSuccessful()){
+                accountProvisioner.confirmProvisioned(savedRegisterDTO.getUsername());
                 return ResponseEntity.status(200).body(tokenResponse);
             } else {
                 return ResponseEntity.status(400).body("Error to create user");
@@ -120,6 +135,10 @@ public class AuthServiceImpl implements AuthService {
             // Если сервис аккаунтов вернул 4xx/5xx
             log.error("Ошибка от account-service: статус {} тело: {}", e.getStatusCode(), e.getResponseBodyAsString());
             return ResponseEntity.status(500).body("Error to create user");
+        } catch (RejectedExecutionException e){
+            // Bulkhead заполнен или circuit breaker открыт - account-service не вызывался
+            log.warn("Запрос в account-service отклонен: {}", e.getMessage());
+            return busy();
         } catch (Exception e){
             // Остальные ошибки (отказ в соединении и тд)
             log.error("Ошибка при запросе к account-service: {}", e.getMessage());
@@ -139,9 +158,19 @@ public class AuthServiceImpl implements AuthService {
         User user = userService.findByUsername(loginDTO.getUsername())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        // Сверяем пароль
-        if(!passwordEncoder.matches(loginDTO.getPassword(), user.getPassword())){
-            return ResponseEntity.status(400).body("Wrong password");
+        // Сверяем пароль в пуле хэширования, а не в потоке запроса
+        try {
+            if(!passwordHasher.matches(loginDTO.getPassword(), user.getPassword())){
+                return ResponseEntity.status(400).body("Wrong password");
+            }
+        } catch (RejectedExecutionException e) {
+            log.warn("Пул хэширования паролей перегружен, вход пользователя {} отклонен", loginDTO.getUsername());
+            return busy();
+        }
+
+        // Хэш со старой стоимостью пересчитывается в фоне
+        if (passwordHasher.needsRehash(user.getPassword())) {
+            passwordHasher.rehashAsync(loginDTO.getPassword(), passwordHash -> userService.updatePasswordHash(user, passwordHash));
         }
 
         log.debug("Пользователь {} прошел аутентификацию", loginDTO.getUsername());
@@ -175,6 +204,11 @@ public class AuthServiceImpl implements AuthService {
         }
     }
 
+    /// Перегрузка пула хэширования паролей - быстрый отказ с подсказкой повторить позже
+    private ResponseEntity<?> busy() {
+        return ResponseEntity.status(503).header("Retry-After", "1").body("Server is busy, try again later");
+    }
+
     /// Ошибки валидации
     public String handleValidationErrors(BindingResult bindingResult) {
         StringBuilder errorMessage = new StringBuilder("\n");
@@ -1,11 +1,17 @@
 package ru.nand.authservice.service;
 
-import ru.nand.authservice.entity.dto.RegisterDTO;
+import java.util.Collection;
+import java.util.function.Function;
 
-import java.util.concurrent.TimeUnit;
+/// Кэш с загрузкой при промахе. null от загрузчика означает "нет значения" и не кэшируется
+public interface CacheService<K, V> {
+    V get(K key, Function<K, V> loader);
 
-public interface CacheService {
-    void save(String key, Object value, long timeout, TimeUnit unit);
-    Object get(String key);
-    void delete(String key);
+    void invalidate(K key);
+
+    default void invalidate(Collection<K> keys) {
+        keys.forEach(this::invalidate);
+    }
+
+    void invalidateAll();
 }
@@ -0,0 +1,11 @@
+package ru.nand.authservice.service;
+
+/// Аренда шарда фоновой задачи. Шард - остаток id сессии по модулю shardCount,
+/// fencingToken монотонно растет при каждой смене держателя
+public record JobLease(String job, int shard, int shardCount, long fencingToken) {
+
+    /// Ключ аренды в Redis и в таблице job_fences
+    public String key() {
+        return job + ":" + shard;
+    }
+}
@@ -0,0 +1,166 @@
+package ru.nand.authservice.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import ru.nand.authservice.repository.JobFenceRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/// Аренды фоновых задач в Redis: hash job-lease:{job}:{shard} (владелец и fencing token) с TTL.
+/// Держатель продлевает аренду между порциями работы и освобождает сразу по завершении, при падении инстанса
+/// аренду через TTL забирает следующий. Токен выдает и проверяет Postgres (job_fences): проверка идет в той же
+/// транзакции, что и сама запись, поэтому устаревший держатель ничего не изменит. В Redis токен лишь отличает
+/// одного держателя от другого, и потеря данных Redis не отматывает токены назад
+@Slf4j
+@Component
+public class JobLeaseManager {
+    private static final String LEASE_KEY = "job-lease:";
+    private static final String NO_TOKEN = "0"; // Аренда захвачена, токен еще не выдан (Postgres выдает с 1)
+
+    // KEYS[1] - аренда; ARGV[1] - владелец, ARGV[2] - TTL в мс
+    private static final RedisScript<Long> ACQUIRE = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                redis.call('HSET', KEYS[1], 'owner', ARGV[1], 'token', '0')
+                redis.call('PEXPIRE', KEYS[1], ARGV[2])
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    // KEYS[1] - аренда; ARGV[1] - владелец, ARGV[2] - выданный токен
+    private static final RedisScript<Long> ASSIGN = new DefaultRedisScript<>("""
+            if redis.call('HGET', KEYS[1], 'owner') == ARGV[1] and redis.call('HGET', KEYS[1], 'token') == '0' then
+                redis.call('HSET', KEYS[1], 'token', ARGV[2])
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    // KEYS[1] - аренда; ARGV[1] - владелец, ARGV[2] - токен, ARGV[3] - TTL в мс
+    private static final RedisScript<Long> RENEW = new DefaultRedisScript<>("""
+            if redis.call('HGET', KEYS[1], 'owner') == ARGV[1] and redis.call('HGET', KEYS[1], 'token') == ARGV[2] then
+                return redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            end
+            return 0
+            """, Long.class);
+
+    // KEYS[1] - аренда; ARGV[1] - владелец, ARGV[2] - токен
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+            if redis.call('HGET', KEYS[1], 'owner') == ARGV[1] and redis.call('HGET', KEYS[1], 'token') == ARGV[2] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final JobFenceRepository jobFenceRepository;
+    private final String owner = UUID.randomUUID().toString(); // Инстанс-держатель
+    private final Set<JobLease> heldLeases = ConcurrentHashMap.newKeySet();
+
+    @Value("${jobs.lease.ttl:PT30S}")
+    private Duration leaseTtl; // Должен быть больше времени одной порции работы
+    @Value("${jobs.shards:1}")
+    private int shardCount; // 1 - у каждой задачи один лидер
+
+    @Autowired
+    public JobLeaseManager(StringRedisTemplate redisTemplate, JobFenceRepository jobFenceRepository) {
+        this.redisTemplate = redisTemplate;
+        this.jobFenceRepository = jobFenceRepository;
+    }
+
+    /// Шарды задачи в порядке обхода: инстансы начинают с разных шардов и захватывают их по одному перед обработкой,
+    /// поэтому одиночный инстанс проходит все шарды, а несколько инстансов делят их между собой
+    public List<Integer> shardOrder() {
+        int offset = ThreadLocalRandom.current().nextInt(shardCount);
+        List<Integer> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add((offset + i) % shardCount);
+        }
+        return shards;
+    }
+
+    /// Захват шарда задачи. Пустой результат - шард уже обрабатывает другой инстанс (или Redis/Postgres недоступен).
+    /// Выдача токена ждет конца транзакции прежнего держателя, если тот еще пишет по истекшей аренде
+    public Optional<JobLease> acquire(String job, int shard) {
+        String key = LEASE_KEY + job + ":" + shard;
+        try {
+            Long acquired = redisTemplate.execute(ACQUIRE, List.of(key), owner, String.valueOf(leaseTtl.toMillis()));
+            if (acquired == null || acquired == 0) {
+                return Optional.empty();
+            }
+        } catch (DataAccessException e) {
+            // Без Redis нельзя гарантировать единственного исполнителя, поэтому шард пропускается
+            log.warn("Не удалось захватить аренду {}: {}", key, e.getMessage());
+            return Optional.empty();
+        }
+
+        try {
+            long token = jobFenceRepository.issue(job + ":" + shard);
+            Long assigned = redisTemplate.execute(ASSIGN, List.of(key), owner, String.valueOf(token));
+            if (assigned == null || assigned == 0) {
+                log.warn("Аренда {} истекла до выдачи токена", key);
+                return Optional.empty();
+            }
+
+            JobLease lease = new JobLease(job, shard, shardCount, token);
+            heldLeases.add(lease);
+            return Optional.of(lease);
+        } catch (DataAccessException e) {
+            log.warn("Не удалось выдать токен аренды {}: {}", key, e.getMessage());
+            releaseKey(key, NO_TOKEN);
+            return Optional.empty();
+        }
+    }
+
+    /// Продление аренды. false - аренда истекла и, возможно, уже у другого инстанса: работу нужно прекратить
+    public boolean renew(JobLease lease) {
+        try {
+            Long renewed = redisTemplate.execute(RENEW, List.of(LEASE_KEY + lease.key()),
+                    owner, String.valueOf(lease.fencingToken()), String.valueOf(leaseTtl.toMillis()));
+            return renewed != null && renewed > 0;
+        } catch (DataAccessException e) {
+            log.warn("Не удалось продлить аренду {}: {}", lease.key(), e.getMessage());
+            return false;
+        }
+    }
+
+    /// Освобождение аренды, чтобы следующий запуск на любом инстансе не ждал TTL
+    public void release(JobLease lease) {
+        heldLeases.remove(lease);
+        releaseKey(LEASE_KEY + lease.key(), String.valueOf(lease.fencingToken()));
+    }
+
+    private void releaseKey(String key, String token) {
+        try {
+            redisTemplate.execute(RELEASE, List.of(key), owner, token);
+        } catch (DataAccessException e) {
+            log.warn("Не удалось освободить аренду {}, она истечет по TTL: {}", key, e.getMessage());
+        }
+    }
+
+    /// Проверка fencing token внутри транзакции, которая пишет в БД от имени аренды
+    public void fence(JobLease lease) {
+        if (jobFenceRepository.advance(lease.key(), lease.fencingToken()) == 0) {
+            throw new RuntimeException("Job lease " + lease.key() + " is fenced off by a newer holder");
+        }
+    }
+
+    @PreDestroy
+    public void releaseAll() {
+        heldLeases.forEach(this::release);
+    }
+}
@@ -0,0 +1,64 @@
+package ru.nand.authservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import ru.nand.authservice.entity.dto.NotificationDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+public class KafkaNotificationPublisher implements NotificationPublisher {
+    private static final String TOPIC = "auth-notifications-topic";
+
+    private final KafkaTemplate<String, NotificationDTO> notificationKafkaTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Timer latency;
+
+    @Autowired
+    public KafkaNotificationPublisher(KafkaTemplate<String, NotificationDTO> notificationKafkaTemplate, MeterRegistry meterRegistry) {
+        this.notificationKafkaTemplate = notificationKafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.latency = meterRegistry.timer("notification.publish.latency"); // От send до подтверждения брокера
+    }
+
+    @Override
+    public CompletableFuture<Void> publish(NotificationDTO notification) {
+        long startedAt = System.nanoTime();
+        CompletableFuture<Void> sent;
+        try {
+            sent = notificationKafkaTemplate.send(TOPIC, notification.getUserEmail(), notification)
+                    .thenApply(result -> null);
+        } catch (RuntimeException e) {
+            sent = CompletableFuture.failedFuture(e); // Например, таймаут метаданных брокера (max.block.ms)
+        }
+
+        return sent.whenComplete((result, error) -> {
+            if (error == null) {
+                latency.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                meterRegistry.counter("notification.publish.errors", "exception", cause.getClass().getSimpleName()).increment();
+                log.debug("Уведомление для {} не опубликовано: {}", notification.getUserEmail(), cause.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public List<CompletableFuture<Void>> publishAll(List<NotificationDTO> notifications) {
+        List<CompletableFuture<Void>> sends = new ArrayList<>(notifications.size());
+        for (NotificationDTO notification : notifications) {
+            sends.add(publish(notification));
+        }
+        notificationKafkaTemplate.flush(); // Пачка уходит сразу, не дожидаясь linger.ms
+        return sends;
+    }
+}
@@ -0,0 +1,178 @@
+package ru.nand.authservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.nand.authservice.entity.NotificationOutbox;
+import ru.nand.authservice.entity.dto.NotificationDTO;
+import ru.nand.authservice.repository.NotificationOutboxRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/// Публикация outbox уведомлений в auth-notifications-topic пачками через NotificationPublisher.
+/// Уведомления поделены на шарды по хэшу email получателя, шард публикует только держатель аренды (JobLeaseManager),
+/// поэтому уведомления одного пользователя отправляет один релей. Пачка захватывается короткой транзакцией
+/// (FOR UPDATE SKIP LOCKED + claimed_until), подтверждения брокера ожидаются без открытой транзакции и блокировок.
+/// Строка удаляется второй короткой транзакцией только после подтверждения брокера. Неподтвержденные освобождаются
+/// и уйдут следующим циклом, строки упавшего релея - после истечения захвата (at-least-once).
+/// Порядок по пользователю сохраняется: внутри пачки следующее уведомление получателя отправляется только после
+/// подтверждения предыдущего, а при сбое более поздние уведомления этого получателя придерживаются до повтора
+@Slf4j
+@Component
+public class NotificationOutboxRelay {
+    private static final String JOB = "notification-outbox";
+
+    private final NotificationOutboxRepository notificationOutboxRepository;
+    private final NotificationPublisher notificationPublisher;
+    private final JobLeaseManager jobLeaseManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter published;
+    private final Counter failed;
+    private final Timer deliveryLag;
+    private final AtomicLong oldestPendingAge = new AtomicLong(); // мс, по последней пачке
+
+    @Value("${notification.outbox.batch-size:500}")
+    private int batchSize;
+    @Value("${notification.outbox.send-timeout:PT10S}")
+    private Duration sendTimeout;
+
+    @Autowired
+    public NotificationOutboxRelay(NotificationOutboxRepository notificationOutboxRepository, NotificationPublisher notificationPublisher,
+                                   JobLeaseManager jobLeaseManager, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.notificationOutboxRepository = notificationOutboxRepository;
+        this.notificationPublisher = notificationPublisher;
+        this.jobLeaseManager = jobLeaseManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.published = meterRegistry.counter("notification.outbox.published");
+        this.failed = meterRegistry.counter("notification.outbox.failed");
+        this.deliveryLag = meterRegistry.timer("notification.outbox.delivery.lag"); // От записи в outbox до подтверждения брокера
+        meterRegistry.gauge("notification.outbox.lag", oldestPendingAge, age -> age.get() / 1000.0); // Возраст старейшего неопубликованного, с
+    }
+
+    @Scheduled(fixedDelayString = "${notification.outbox.poll-interval:PT0.5S}")
+    public void relay() {
+        for (int shard : jobLeaseManager.shardOrder()) {
+            jobLeaseManager.acquire(JOB, shard).ifPresent(this::relayShard);
+        }
+    }
+
+    private void relayShard(JobLease lease) {
+        try {
+            // Полная пачка - в outbox есть еще, разбираем всплеск без ожидания таймера, пока аренда за нами
+            while (relayBatch(lease) == batchSize && jobLeaseManager.renew(lease)) {
+                log.debug("Outbox: пачка из {} уведомлений опубликована, продолжаем", batchSize);
+            }
+        } catch (RuntimeException e) {
+            log.error("Ошибка публикации outbox уведомлений (шард {}): {}", lease.shard(), e.getMessage());
+        } finally {
+            jobLeaseManager.release(lease);
+        }
+    }
+
+    /// Кол-во опубликованных и удаленных из outbox уведомлений
+    int relayBatch(JobLease lease) {
+        List<NotificationOutbox> batch = claimBatch(lease);
+        if (batch.isEmpty()) {
+            oldestPendingAge.set(0);
+            return 0;
+        }
+        oldestPendingAge.set(Duration.between(batch.getFirst().getCreatedAt(), LocalDateTime.now()).toMillis());
+
+        // Очередь уведомлений каждого получателя в порядке создания. Раунд публикует по одному уведомлению каждого получателя
+        Map<String, Deque<NotificationOutbox>> pendingByUser = new LinkedHashMap<>();
+        batch.forEach(notification -> pendingByUser.computeIfAbsent(notification.getUserEmail(), email -> new ArrayDeque<>()).add(notification));
+
+        List<Long> deliveredIds = new ArrayList<>(batch.size());
+        List<Long> undeliveredIds = new ArrayList<>();
+        long deadline = System.nanoTime() + sendTimeout.toNanos();
+        while (!pendingByUser.isEmpty() && System.nanoTime() < deadline) {
+            List<NotificationOutbox> round = pendingByUser.values().stream().map(Deque::poll).toList();
+            List<CompletableFuture<Void>> sends = notificationPublisher.publishAll(round.stream().map(NotificationOutboxRelay::toNotificationDTO).toList());
+
+            for (int i = 0; i < round.size(); i++) {
+                NotificationOutbox notification = round.get(i);
+                if (await(sends.get(i), deadline)) {
+                    deliveredIds.add(notification.getId());
+                    deliveryLag.record(Duration.between(notification.getCreatedAt(), LocalDateTime.now()));
+                } else {
+                    // Более поздние уведомления получателя не должны обогнать неподтвержденное
+                    undeliveredIds.add(notification.getId());
+                    pendingByUser.remove(notification.getUserEmail()).forEach(held -> undeliveredIds.add(held.getId()));
+                }
+            }
+            pendingByUser.values().removeIf(Deque::isEmpty);
+        }
+        pendingByUser.values().forEach(held -> held.forEach(notification -> undeliveredIds.add(notification.getId()))); // Не успели до таймаута
+
+        transactionTemplate.executeWithoutResult(tx -> {
+            if (!deliveredIds.isEmpty()) {
+                notificationOutboxRepository.deleteByIds(deliveredIds);
+            }
+            if (!undeliveredIds.isEmpty()) {
+                notificationOutboxRepository.claim(undeliveredIds, null); // Повтор в следующем цикле, не дожидаясь истечения захвата
+            }
+        });
+
+        published.increment(deliveredIds.size());
+        failed.increment(undeliveredIds.size());
+        if (!undeliveredIds.isEmpty()) {
+            log.warn("Outbox: не опубликовано {} из {} уведомлений, повтор в следующем цикле", undeliveredIds.size(), batch.size());
+        }
+        return deliveredIds.size();
+    }
+
+    /// Захват пачки шарда. Срок захвата с запасом покрывает ожидание подтверждений: раньше строки не заберет другой релей,
+    /// а fencing token не даст захватить пачку релею, чья аренда уже истекла
+    private List<NotificationOutbox> claimBatch(JobLease lease) {
+        List<NotificationOutbox> batch = transactionTemplate.execute(tx -> {
+            jobLeaseManager.fence(lease);
+            LocalDateTime now = LocalDateTime.now();
+            List<NotificationOutbox> locked = notificationOutboxRepository.lockBatch(lease.shardCount(), lease.shard(), batchSize, now);
+            if (!locked.isEmpty()) {
+                notificationOutboxRepository.claim(locked.stream().map(NotificationOutbox::getId).toList(), now.plus(sendTimeout.multipliedBy(2)));
+            }
+            return locked;
+        });
+        return batch == null ? List.of() : batch;
+    }
+
+    private static NotificationDTO toNotificationDTO(NotificationOutbox notification) {
+        return NotificationDTO.builder()
+                .message(notification.getMessage())
+                .userEmail(notification.getUserEmail())
+                .creationDate(notification.getCreatedAt())
+                .build();
+    }
+
+    private boolean await(CompletableFuture<Void> send, long deadline) {
+        try {
+            send.get(Math.max(deadline - System.nanoTime(), 0L), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (ExecutionException | TimeoutException e) {
+            log.debug("Уведомление не подтверждено брокером: {}", e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ru.nand.authservice.service;
+
+import ru.nand.authservice.entity.dto.NotificationDTO;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/// Публикация уведомлений в auth-notifications-topic.
+/// Ключ сообщения - email получателя, поэтому уведомления одного пользователя попадают в одну партицию и не переупорядочиваются
+public interface NotificationPublisher {
+
+    /// Асинхронная публикация, future завершается после подтверждения брокера
+    CompletableFuture<Void> publish(NotificationDTO notification);
+
+    /// Пачка уведомлений (в том числе разным получателям), отправляется без ожидания linger.ms.
+    /// Futures в порядке notifications
+    List<CompletableFuture<Void>> publishAll(List<NotificationDTO> notifications);
+}
@@ -0,0 +1,103 @@
+package ru.nand.authservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import ru.nand.authservice.entity.dto.RegisterDTO;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/// Ожидающие подтверждения регистрации в Redis: один hash pending_registration:{email} с кодом и данными формы и TTL.
+/// Запись и проверка кода - по одному скрипту (одна команда и один round trip каждая), проверка атомарно сверяет код,
+/// удаляет регистрацию и возвращает ее данные, поэтому одним кодом нельзя зарегистрироваться дважды
+@Slf4j
+@Component
+public class PendingRegistrationStore {
+    private static final String KEY_PREFIX = "pending_registration:";
+
+    // KEYS[1] - регистрация; ARGV[1] - TTL в мс, ARGV[2..] - поле, значение, ...
+    private static final RedisScript<Long> SAVE = new DefaultRedisScript<>("""
+            redis.call('DEL', KEYS[1])
+            redis.call('HSET', KEYS[1], unpack(ARGV, 2))
+            return redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            """, Long.class);
+
+    // KEYS[1] - регистрация; ARGV[1] - код. Ответ: {'missing'}, {'invalid'} или {'ok', оставшийся TTL в мс, поле, значение, ...}
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> VERIFY = new DefaultRedisScript<>("""
+            local code = redis.call('HGET', KEYS[1], 'code')
+            if not code then
+                return {'missing'}
+            end
+            if code ~= ARGV[1] then
+                return {'invalid'}
+            end
+            local ttl = redis.call('PTTL', KEYS[1])
+            local fields = redis.call('HGETALL', KEYS[1])
+            redis.call('DEL', KEYS[1])
+            table.insert(fields, 1, tostring(ttl))
+            table.insert(fields, 1, 'ok')
+            return fields
+            """, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Autowired
+    public PendingRegistrationStore(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /// Сохранение (или замена) регистрации с кодом подтверждения
+    public void save(RegisterDTO registerDTO, String code, Duration ttl) {
+        String[] args = {
+                String.valueOf(ttl.toMillis()),
+                "code", code,
+                "username", registerDTO.getUsername(),
+                "email", registerDTO.getEmail(),
+                "password", registerDTO.getPassword(),
+                "requestId", registerDTO.getRequestId() == null ? "" : registerDTO.getRequestId()
+        };
+        redisTemplate.execute(SAVE, List.of(KEY_PREFIX + registerDTO.getEmail()), (Object[]) args);
+        log.debug("Регистрация {} ожидает подтверждения {} с", registerDTO.getEmail(), ttl.toSeconds());
+    }
+
+    /// Проверка кода. При совпадении регистрация удаляется из Redis и возвращается вызывающему
+    public Verification verify(String email, String code) {
+        List<?> result = redisTemplate.execute(VERIFY, List.of(KEY_PREFIX + email), code);
+        if (result == null || result.isEmpty() || "missing".equals(result.getFirst())) {
+            return new Verification(Status.MISSING, null, null, Duration.ZERO);
+        }
+        if ("invalid".equals(result.getFirst())) {
+            return new Verification(Status.INVALID_CODE, null, null, Duration.ZERO);
+        }
+
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 2; i + 1 < result.size(); i += 2) {
+            fields.put((String) result.get(i), (String) result.get(i + 1));
+        }
+
+        RegisterDTO registerDTO = new RegisterDTO();
+        registerDTO.setUsername(fields.get("username"));
+        registerDTO.setEmail(fields.get("email"));
+        registerDTO.setPassword(fields.get("password"));
+        registerDTO.setRequestId(fields.get("requestId") == null || fields.get("requestId").isEmpty() ? null : fields.get("requestId"));
+
+        long remainingMillis = Long.parseLong((String) result.get(1));
+        return new Verification(Status.VERIFIED, registerDTO, fields.get("code"), Duration.ofMillis(Math.max(remainingMillis, 0L)));
+    }
+
+    public enum Status {
+        MISSING, INVALID_CODE, VERIFIED
+    }
+
+    /// Результат проверки кода. registerDTO, code и remainingTtl заполнены только для VERIFIED:
+    /// по ним регистрацию можно вернуть в Redis, если создать пользователя сейчас не удалось
+    public record Verification(Status status, RegisterDTO registerDTO, String code, Duration remainingTtl) {
+    }
+}
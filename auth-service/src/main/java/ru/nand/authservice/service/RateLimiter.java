@@ -0,0 +1,152 @@
+package ru.nand.authservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/// Ограничение частоты дорогих запросов (письмо, BCrypt) токен-бакетами в Redis, общими для всех инстансов.
+/// Запрос проверяется сразу по бакету IP и бакету email/имени пользователя одним скриптом: токен списывается
+/// из обоих, только если он есть в каждом, иначе возвращается время до появления токена. Время берется у Redis (TIME),
+/// поэтому часы инстансов не влияют. Недоступный Redis запросы не блокирует
+@Slf4j
+@Component
+public class RateLimiter {
+    private static final String KEY_PREFIX = "rate-limit:";
+
+    // KEYS - бакеты; ARGV[2i-1], ARGV[2i] - емкость и пополнение (токенов в мс) бакета KEYS[i]. Ответ - ожидание в мс, 0 - токен списан
+    private static final RedisScript<Long> ACQUIRE = new DefaultRedisScript<>("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local tokens = {}
+            local wait = 0
+            for i, key in ipairs(KEYS) do
+                local capacity = tonumber(ARGV[2 * i - 1])
+                local rate = tonumber(ARGV[2 * i])
+                local bucket = redis.call('HMGET', key, 'tokens', 'ts')
+                local available = tonumber(bucket[1]) or capacity
+                local updated = tonumber(bucket[2]) or now
+                available = math.min(capacity, available + math.max(0, now - updated) * rate)
+                tokens[i] = available
+                if available < 1 then
+                    wait = math.max(wait, math.ceil((1 - available) / rate))
+                end
+            end
+            for i, key in ipairs(KEYS) do
+                local capacity = tonumber(ARGV[2 * i - 1])
+                local rate = tonumber(ARGV[2 * i])
+                local left = tokens[i]
+                if wait == 0 then
+                    left = left - 1
+                end
+                redis.call('HSET', key, 'tokens', tostring(left), 'ts', now)
+                redis.call('PEXPIRE', key, math.ceil(capacity / rate)) -- Полный бакет не хранится
+            end
+            return wait
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<Endpoint, Limits> limits = new EnumMap<>(Endpoint.class);
+
+    @Value("${rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Autowired
+    public RateLimiter(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry,
+                       @Value("${rate-limit.register.ip:10/PT1H}") String registerIp,
+                       @Value("${rate-limit.register.email:3/PT1H}") String registerEmail,
+                       @Value("${rate-limit.login.ip:60/PT1M}") String loginIp,
+                       @Value("${rate-limit.login.username:10/PT5M}") String loginUsername,
+                       @Value("${rate-limit.verify-email.ip:30/PT1M}") String verifyIp,
+                       @Value("${rate-limit.verify-email.email:5/PT5M}") String verifyEmail) {
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        limits.put(Endpoint.REGISTER, new Limits(Bucket.parse(registerIp), Bucket.parse(registerEmail)));
+        limits.put(Endpoint.LOGIN, new Limits(Bucket.parse(loginIp), Bucket.parse(loginUsername)));
+        limits.put(Endpoint.VERIFY_EMAIL, new Limits(Bucket.parse(verifyIp), Bucket.parse(verifyEmail)));
+    }
+
+    /// Списание токена для запроса с адреса ip по субъекту (email или имя пользователя, null - только по IP).
+    /// Duration.ZERO - запрос укладывается в лимит, иначе - через сколько повторить
+    public Duration tryAcquire(Endpoint endpoint, String ip, String subject) {
+        if (!enabled) {
+            return Duration.ZERO;
+        }
+
+        Limits endpointLimits = limits.get(endpoint);
+        List<String> keys = new ArrayList<>(2);
+        List<String> args = new ArrayList<>(4);
+        keys.add(KEY_PREFIX + endpoint.key + ":ip:" + ip);
+        endpointLimits.ip().addArgs(args);
+        if (subject != null && !subject.isBlank()) {
+            keys.add(KEY_PREFIX + endpoint.key + ":" + endpoint.subject + ":" + subject.trim().toLowerCase(Locale.ROOT));
+            endpointLimits.subject().addArgs(args);
+        }
+
+        Long waitMillis;
+        try {
+            waitMillis = redisTemplate.execute(ACQUIRE, keys, args.toArray());
+        } catch (RuntimeException e) {
+            meterRegistry.counter("rate.limit.errors", "endpoint", endpoint.key).increment();
+            log.warn("Лимитер недоступен, запрос {} пропущен без проверки: {}", endpoint.key, e.getMessage());
+            return Duration.ZERO;
+        }
+
+        boolean allowed = waitMillis == null || waitMillis <= 0;
+        meterRegistry.counter("rate.limit.requests", "endpoint", endpoint.key, "result", allowed ? "allowed" : "rejected").increment();
+        if (allowed) {
+            return Duration.ZERO;
+        }
+        log.debug("Превышен лимит {} для {} / {}, повтор через {} мс", endpoint.key, ip, subject, waitMillis);
+        return Duration.ofMillis(waitMillis);
+    }
+
+    public enum Endpoint {
+        REGISTER("register", "email"),
+        LOGIN("login", "username"),
+        VERIFY_EMAIL("verify-email", "email");
+
+        private final String key;
+        private final String subject;
+
+        Endpoint(String key, String subject) {
+            this.key = key;
+            this.subject = subject;
+        }
+    }
+
+    private record Limits(Bucket ip, Bucket subject) {
+    }
+
+    /// Бакет "емкость/период": емкость запросов подряд, полное восстановление за период
+    record Bucket(long capacity, Duration period) {
+        static Bucket parse(String spec) {
+            String[] parts = spec.split("/", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Rate limit must look like 10/PT1M: " + spec);
+            }
+            Bucket bucket = new Bucket(Long.parseLong(parts[0].trim()), Duration.parse(parts[1].trim()));
+            if (bucket.capacity() < 1 || bucket.period().isNegative() || bucket.period().isZero()) {
+                throw new IllegalArgumentException("Rate limit must have positive capacity and period: " + spec);
+            }
+            return bucket;
+        }
+
+        void addArgs(List<String> args) {
+            args.add(String.valueOf(capacity));
+            args.add(String.valueOf((double) capacity / period.toMillis())); // Токенов в мс
+        }
+    }
+}
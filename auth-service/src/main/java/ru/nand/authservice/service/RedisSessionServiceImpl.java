@@ -0,0 +1,460 @@
+package ru.nand.authservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import ru.nand.authservice.entity.ENUMS.STATUS;
+import ru.nand.authservice.entity.User;
+import ru.nand.authservice.entity.UserSession;
+import ru.nand.authservice.entity.dto.SessionSummary;
+import ru.nand.authservice.entity.dto.TokenResponse;
+import ru.nand.authservice.repository.UserRepository;
+import ru.nand.authservice.repository.UserSessionRepository;
+import ru.nand.authservice.util.NotificationUtil;
+import ru.nand.authservice.util.RevocationUtil;
+import ru.nand.authservice.util.TokenPair;
+import ru.nand.authservice.util.TokenPairMinter;
+import ru.nand.authservice.util.UserJwtUtil;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/// Хранилище сессий в Redis (session.store=redis).
+/// Сессия - hash session:{id} с TTL до истечения refresh, индексы session:access:{hash} и session:refresh:{hash} с TTL своих токенов
+/// и множества user_sessions:{userId}:{STATUS}. Истечение обеспечивает сам Redis, поэтому шедулеры здесь ничего не делают.
+/// Множество BLOCKED - отметка блокировки пользователя: оно хранится без TTL и не чистится, хэши заблокированных сессий истекают как обычно
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "session.store", havingValue = "redis")
+public class RedisSessionServiceImpl implements SessionService {
+    private static final String SESSION_KEY = "session:";
+    private static final String ACCESS_INDEX_KEY = "session:access:";
+    private static final String REFRESH_INDEX_KEY = "session:refresh:";
+    private static final String USER_SESSIONS_KEY = "user_sessions:";
+    private static final HexFormat HEX = HexFormat.of(); // Хэши токенов в ключах Redis - hex
+
+    // KEYS[1] - сессия; ARGV[1] - время активности. -1 - сессия истекла, 0 - не активна.
+    // HSET только по существующему хэшу: иначе истекшая сессия воскресла бы без TTL и статуса, TTL при HSET не меняется
+    private static final RedisScript<Long> TOUCH = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return -1
+            end
+            if redis.call('HGET', KEYS[1], 'status') ~= 'ACTIVE' then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], 'lastActivityTime', ARGV[1])
+            return 1
+            """, Long.class);
+
+    // KEYS[1] - сессия, KEYS[2] - множество прежнего статуса, KEYS[3] - множество нового статуса;
+    // ARGV[1] - id сессии, ARGV[2] - новый статус, ARGV[3] - время, ARGV[4] - 1, если множество хранится без TTL.
+    // Множество живет не меньше самой долгой своей сессии, 0 - сессия уже истекла
+    private static final RedisScript<Long> CHANGE_STATUS = new DefaultRedisScript<>("""
+            local ttl = redis.call('PTTL', KEYS[1])
+            if ttl == -2 then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], 'status', ARGV[2], 'lastActivityTime', ARGV[3])
+            redis.call('SREM', KEYS[2], ARGV[1])
+            redis.call('SADD', KEYS[3], ARGV[1])
+            if ARGV[4] == '1' then
+                redis.call('PERSIST', KEYS[3])
+            elseif ttl > 0 then
+                local setTtl = redis.call('PTTL', KEYS[3])
+                if setTtl == -1 or setTtl < ttl then
+                    redis.call('PEXPIRE', KEYS[3], ttl)
+                end
+            end
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final UserRepository userRepository;
+    private final UserSessionRepository userSessionRepository;
+    private final NotificationUtil notificationUtil;
+    private final UserJwtUtil userJwtUtil;
+    private final RevocationUtil revocationUtil;
+    private final TokenPairMinter tokenPairMinter;
+
+    @Value("${session.idle-timeout:PT2H}")
+    private Duration idleTimeout; // То же, что порог handleInactiveSessions в JPA-хранилище
+    @Value("${session.audit-enabled:false}")
+    private boolean auditEnabled; // Дублировать ли сессии в Postgres как журнал
+
+    @Autowired
+    public RedisSessionServiceImpl(StringRedisTemplate redisTemplate, UserRepository userRepository, UserSessionRepository userSessionRepository, NotificationUtil notificationUtil, UserJwtUtil userJwtUtil, RevocationUtil revocationUtil, TokenPairMinter tokenPairMinter) {
+        this.redisTemplate = redisTemplate;
+        this.userRepository = userRepository;
+        this.userSessionRepository = userSessionRepository;
+        this.notificationUtil = notificationUtil;
+        this.userJwtUtil = userJwtUtil;
+        this.revocationUtil = revocationUtil;
+        this.tokenPairMinter = tokenPairMinter;
+    }
+
+    @Override
+    public TokenResponse createSession(User user) throws RuntimeException {
+        // Заблокирован ли пользователь
+        if (user.getIsBlocked()){
+            throw new RuntimeException("User is blocked");
+        }
+
+        // Наличие заблокированных сессий
+        if(hasBlockedSessions(user)){
+            log.error("Пользователь {} имеет заблокированные сессии. Новая сессия не создана.", user.getUsername());
+            throw new RuntimeException("User has blocked sessions");
+        }
+
+        // Проверка на активные сессии
+        if(!findByUserAndStatus(user, STATUS.ACTIVE).isEmpty()){
+            log.warn("При создании новой сессиии обнаружены активные сессии пользователя {}", user.getUsername());
+            notificationUtil.createAndSendNotification(user.getEmail(), "Обнаружено несколько активных сессий");
+        }
+
+        TokenPair tokens = tokenPairMinter.mint(user);
+
+        UserSession session = UserSession.builder()
+                .user(user)
+                .accessTokenHash(tokens.accessTokenHash())
+                .refreshTokenHash(tokens.refreshTokenHash())
+                .accessTokenExpires(tokens.accessTokenExpires())
+                .refreshTokenExpires(tokens.refreshTokenExpires())
+                .sessionCreationTime(tokens.issuedAt())
+                .lastActivityTime(tokens.issuedAt())
+                .status(STATUS.ACTIVE)
+                .build();
+
+        String sessionId = UUID.randomUUID().toString();
+        writeSession(sessionId, session, null);
+        log.debug("Создана сессия {} в Redis для пользователя {}", sessionId, user.getUsername());
+
+        if (auditEnabled) {
+            userSessionRepository.save(session);
+        }
+
+        return tokens.toTokenResponse();
+    }
+
+    @Override
+    public TokenResponse refreshAccessToken(String refreshToken) throws RuntimeException {
+        // Валидируем refresh
+        byte[] refreshTokenHash = userJwtUtil.hashToken(refreshToken);
+        if(!userJwtUtil.verify(refreshToken, refreshTokenHash).isValid()){
+            throw new RuntimeException("Invalid refresh token");
+        }
+
+        String sessionId = redisTemplate.opsForValue().get(REFRESH_INDEX_KEY + HEX.formatHex(refreshTokenHash));
+        Map<String, String> fields = sessionId != null ? readSession(sessionId) : Map.of();
+        if (!fields.containsKey("status")) {
+            throw new RuntimeException("Session not found");
+        }
+        if (effectiveStatus(fields) != STATUS.ACTIVE) {
+            throw new RuntimeException("Session is not active");
+        }
+
+        User user = userRepository.findById(Long.valueOf(fields.get("userId")))
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        // Заблокирован ли пользователь
+        if(user.getIsBlocked()){
+            throw new RuntimeException("User is blocked");
+        }
+
+        // Наличие заблокированных сессий
+        if(hasBlockedSessions(user)){
+            log.error("Пользователь {} имеет заблокированные сессии.  Новая сессия не создана.", user.getUsername());
+            throw new RuntimeException("User has blocked sessions");
+        }
+
+        // Генерируем новую пару и переписываем сессию, старые индексы удаляются в том же пайплайне
+        TokenPair tokens = tokenPairMinter.mint(user);
+
+        UserSession session = toUserSession(fields, user);
+        session.setAccessTokenHash(tokens.accessTokenHash());
+        session.setRefreshTokenHash(tokens.refreshTokenHash());
+        session.setAccessTokenExpires(tokens.accessTokenExpires());
+        session.setRefreshTokenExpires(tokens.refreshTokenExpires());
+        session.setLastActivityTime(tokens.issuedAt());
+
+        writeSession(sessionId, session, fields);
+        revocationUtil.publishRevocation(HEX.parseHex(fields.get("accessTokenHash")), LocalDateTime.parse(fields.get("accessTokenExpires")));
+        log.debug("Сессия {} обновлена новой парой токенов", sessionId);
+
+        return tokens.toTokenResponse();
+    }
+
+    @Override
+    public List<UserSession> findByUserAndStatus(User user, STATUS status) {
+        String setKey = userSessionsKey(user.getId(), status);
+        Set<String> sessionIds = redisTemplate.opsForSet().members(setKey);
+        if (sessionIds == null || sessionIds.isEmpty()) {
+            return List.of();
+        }
+
+        List<String> ids = new ArrayList<>(sessionIds);
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ids.forEach(id -> ops.opsForHash().entries(SESSION_KEY + id));
+                return null;
+            }
+        });
+
+        List<UserSession> sessions = new ArrayList<>();
+        List<String> expiredIds = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            @SuppressWarnings("unchecked")
+            Map<String, String> fields = (Map<String, String>) results.get(i);
+
+            if (fields == null || !fields.containsKey("status")) {
+                expiredIds.add(ids.get(i)); // Сессия истекла по TTL, в множестве остался только id
+            } else if (effectiveStatus(fields) == status) {
+                sessions.add(toUserSession(fields, user));
+            }
+        }
+
+        // Множество BLOCKED не чистится: блокировка пользователя переживает истечение его сессий
+        if (!expiredIds.isEmpty() && status != STATUS.BLOCKED) {
+            redisTemplate.opsForSet().remove(setKey, expiredIds.toArray());
+        }
+
+        return sessions;
+    }
+
+    @Override
+    public boolean hasBlockedSessions(User user) {
+        return blockedSessionCount(user) > 0;
+    }
+
+    @Override
+    public SessionSummary getSessionSummary(User user) {
+        return SessionSummary.of(findByUserAndStatus(user, STATUS.ACTIVE).size(), blockedSessionCount(user), Boolean.TRUE.equals(user.getIsBlocked()));
+    }
+
+    @Override
+    public boolean isSessionActive(String accessToken) {
+        String sessionId = redisTemplate.opsForValue().get(ACCESS_INDEX_KEY + HEX.formatHex(userJwtUtil.hashToken(accessToken)));
+        if (sessionId == null) {
+            throw new RuntimeException("Session not found");
+        }
+
+        List<Object> fields = redisTemplate.opsForHash().multiGet(SESSION_KEY + sessionId, List.of("status", "lastActivityTime"));
+        if (fields.get(0) == null || fields.get(1) == null) {
+            throw new RuntimeException("Session not found");
+        }
+
+        return effectiveStatus(Map.of("status", (String) fields.get(0), "lastActivityTime", (String) fields.get(1))) == STATUS.ACTIVE;
+    }
+
+    @Override
+    public void deactivateSessionByAccessToken(String authHeader) throws RuntimeException {
+        if(!(authHeader != null && authHeader.startsWith("Bearer "))){
+            throw new RuntimeException("Invalid access token");
+        }
+
+        // Отрезаем Bearer_
+        String accessTokenHash = HEX.formatHex(userJwtUtil.hashToken(authHeader.substring(7)));
+        String sessionId = redisTemplate.opsForValue().get(ACCESS_INDEX_KEY + accessTokenHash);
+        if (sessionId == null) {
+            throw new RuntimeException("Session not found");
+        }
+
+        changeStatus(sessionId, STATUS.INACTIVE);
+        log.debug("Сессия {} деактивирована", sessionId);
+    }
+
+    @Override
+    public void blockUserSessions(User user, List<User> admins) {
+        List<String> sessionIds = new ArrayList<>(redisTemplate.opsForSet().members(userSessionsKey(user.getId(), STATUS.ACTIVE)));
+        sessionIds.forEach(sessionId -> changeStatus(sessionId, STATUS.BLOCKED));
+        log.warn("Все активные сессии пользователя {} заблокированы.", user.getUsername());
+
+        // Уведомление владельцу аккаунта
+        notificationUtil.createAndSendNotification(user.getEmail(), "Все активные сессии заблокированы. Аккаунт заморожен.");
+
+        // Уведомление администраторам
+        if (!admins.isEmpty()){
+            notificationUtil.createAndSendNotification(admins.stream().map(User::getEmail).toList(), "Все сессии пользователя " + user.getUsername() + " заблокированы, его аккаунт заморожен");
+        } else{
+            log.warn("Администраторы не найдены");
+        }
+    }
+
+    /// Истекшие сессии удаляет TTL Redis, отдельной пометки на отзыв не требуется
+    @Override
+    public int markInactiveSessionsAsRevoked(JobLease lease) {
+        log.debug("Сессии в Redis истекают по TTL, пометка на отзыв не требуется");
+        return 0;
+    }
+
+    /// Истекшие сессии удаляет TTL Redis
+    @Override
+    public int deleteRevokedSessions(JobLease lease) {
+        log.debug("Сессии в Redis истекают по TTL, удаление не требуется");
+        return 0;
+    }
+
+    /// Простой сессии проверяется при чтении (session.idle-timeout), массовый перевод в INACTIVE не нужен
+    @Override
+    public int handleInactiveSessions(JobLease lease) {
+        log.debug("Простой сессий в Redis проверяется при чтении");
+        return 0;
+    }
+
+    @Override
+    public void handlingInactiveAndRevokedSessions(JobLease lease) {
+        markInactiveSessionsAsRevoked(lease);
+        deleteRevokedSessions(lease);
+    }
+
+    @Override
+    public void updateLastActivityTime(User user) {
+        String setKey = userSessionsKey(user.getId(), STATUS.ACTIVE);
+        List<String> sessionIds = new ArrayList<>(redisTemplate.opsForSet().members(setKey));
+
+        // Множество чистится лениво, поэтому первый id может принадлежать уже истекшей сессии
+        List<String> expiredIds = new ArrayList<>();
+        boolean touched = false;
+        for (String sessionId : sessionIds) {
+            Long result = redisTemplate.execute(TOUCH, List.of(SESSION_KEY + sessionId), LocalDateTime.now().toString());
+            if (result != null && result == 1) {
+                touched = true;
+                break;
+            }
+            if (result != null && result == -1) {
+                expiredIds.add(sessionId);
+            }
+        }
+
+        if (!expiredIds.isEmpty()) {
+            redisTemplate.opsForSet().remove(setKey, expiredIds.toArray());
+        }
+        if (!touched) {
+            log.warn("Активная сессия для пользователя {} не найдена.", user.getUsername());
+            throw new RuntimeException("Active session not found");
+        }
+        log.debug("Время последней активности обновлено для пользователя: {}", user.getUsername());
+    }
+
+    /// Запись сессии и индексов одним пайплайном. previous - прежнее состояние сессии, чьи индексы нужно убрать
+    private void writeSession(String sessionId, UserSession session, Map<String, String> previous) {
+        LocalDateTime now = LocalDateTime.now();
+        Duration accessTtl = Duration.between(now, session.getAccessTokenExpires());
+        Duration refreshTtl = Duration.between(now, session.getRefreshTokenExpires());
+        Long userId = session.getUser().getId();
+
+        Map<String, String> fields = new HashMap<>();
+        fields.put("userId", String.valueOf(userId));
+        fields.put("accessTokenHash", HEX.formatHex(session.getAccessTokenHash()));
+        fields.put("refreshTokenHash", HEX.formatHex(session.getRefreshTokenHash()));
+        fields.put("accessTokenExpires", session.getAccessTokenExpires().toString());
+        fields.put("refreshTokenExpires", session.getRefreshTokenExpires().toString());
+        fields.put("sessionCreationTime", session.getSessionCreationTime().toString());
+        fields.put("lastActivityTime", session.getLastActivityTime().toString());
+        fields.put("status", session.getStatus().name());
+
+        redisTemplate.executePipelined(new SessionCallback<>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+
+                if (previous != null) {
+                    ops.delete(List.of(ACCESS_INDEX_KEY + previous.get("accessTokenHash"), REFRESH_INDEX_KEY + previous.get("refreshTokenHash")));
+                }
+
+                ops.opsForHash().putAll(SESSION_KEY + sessionId, fields);
+                ops.expire(SESSION_KEY + sessionId, refreshTtl);
+                ops.opsForValue().set(ACCESS_INDEX_KEY + fields.get("accessTokenHash"), sessionId, accessTtl);
+                ops.opsForValue().set(REFRESH_INDEX_KEY + fields.get("refreshTokenHash"), sessionId, refreshTtl);
+                ops.opsForSet().add(userSessionsKey(userId, session.getStatus()), sessionId);
+                ops.expire(userSessionsKey(userId, session.getStatus()), refreshTtl);
+                return null;
+            }
+        });
+    }
+
+    /// Смена статуса сессии с переносом между пользовательскими множествами
+    private void changeStatus(String sessionId, STATUS newStatus) {
+        Map<String, String> fields = readSession(sessionId);
+        if (!fields.containsKey("status")) {
+            return;
+        }
+
+        Long userId = Long.valueOf(fields.get("userId"));
+        STATUS oldStatus = STATUS.valueOf(fields.get("status"));
+
+        // Хэш мог истечь после чтения - скрипт не создает его заново
+        Long changed = redisTemplate.execute(CHANGE_STATUS,
+                List.of(SESSION_KEY + sessionId, userSessionsKey(userId, oldStatus), userSessionsKey(userId, newStatus)),
+                sessionId, newStatus.name(), LocalDateTime.now().toString(), newStatus == STATUS.BLOCKED ? "1" : "0");
+        if (changed == null || changed == 0) {
+            return;
+        }
+        revocationUtil.publishRevocation(HEX.parseHex(fields.get("accessTokenHash")), LocalDateTime.parse(fields.get("accessTokenExpires")));
+
+        if (auditEnabled) {
+            userSessionRepository.findByAccessTokenHash(HEX.parseHex(fields.get("accessTokenHash"))).ifPresent(session -> {
+                session.setStatus(newStatus);
+                session.setLastActivityTime(LocalDateTime.now());
+                userSessionRepository.save(session);
+            });
+        }
+    }
+
+    private Map<String, String> readSession(String sessionId) {
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(SESSION_KEY + sessionId);
+        Map<String, String> fields = new HashMap<>();
+        entries.forEach((key, value) -> fields.put((String) key, (String) value));
+        return fields;
+    }
+
+    /// Статус с учетом простоя: активная сессия без действий дольше idleTimeout считается INACTIVE
+    private STATUS effectiveStatus(Map<String, String> fields) {
+        STATUS status = STATUS.valueOf(fields.get("status"));
+        if (status == STATUS.ACTIVE && LocalDateTime.parse(fields.get("lastActivityTime")).plus(idleTimeout).isBefore(LocalDateTime.now())) {
+            return STATUS.INACTIVE;
+        }
+
+        return status;
+    }
+
+    private long blockedSessionCount(User user) {
+        Long count = redisTemplate.opsForSet().size(userSessionsKey(user.getId(), STATUS.BLOCKED));
+        return count != null ? count : 0;
+    }
+
+    private UserSession toUserSession(Map<String, String> fields, User user) {
+        return UserSession.builder()
+                .user(user)
+                .accessTokenHash(HEX.parseHex(fields.get("accessTokenHash")))
+                .refreshTokenHash(HEX.parseHex(fields.get("refreshTokenHash")))
+                .accessTokenExpires(LocalDateTime.parse(fields.get("accessTokenExpires")))
+                .refreshTokenExpires(LocalDateTime.parse(fields.get("refreshTokenExpires")))
+                .sessionCreationTime(LocalDateTime.parse(fields.get("sessionCreationTime")))
+                .lastActivityTime(LocalDateTime.parse(fields.get("lastActivityTime")))
+                .status(effectiveStatus(fields))
+                .build();
+    }
+
+    private String userSessionsKey(Long userId, STATUS status) {
+        return USER_SESSIONS_KEY + userId + ":" + status.name();
+    }
+}
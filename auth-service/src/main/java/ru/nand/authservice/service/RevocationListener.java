@@ -0,0 +1,48 @@
+package ru.nand.authservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Service;
+import ru.nand.authservice.util.RevocationDenyList;
+
+import java.util.Map;
+
+/// Слушатель отзывов сессий. Каждый инстанс auth-service читает весь топик и пополняет свой deny-list
+@Slf4j
+@Service
+public class RevocationListener implements ConsumerSeekAware {
+    private final RevocationDenyList revocationDenyList;
+
+    @Autowired
+    public RevocationListener(RevocationDenyList revocationDenyList) {
+        this.revocationDenyList = revocationDenyList;
+    }
+
+    /// Продолжаем с оффсетов, сохраненных в файле deny-list, а не с начала топика
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        assignments.keySet().forEach(topicPartition -> {
+            long committedOffset = revocationDenyList.committedOffset(topicPartition.partition());
+            if (committedOffset >= 0) {
+                callback.seek(topicPartition.topic(), topicPartition.partition(), committedOffset + 1);
+            } else {
+                callback.seekToBeginning(topicPartition.topic(), topicPartition.partition());
+            }
+        });
+    }
+
+    /// Ключ - хэш токена, значение - момент истечения токена (epoch ms)
+    @KafkaListener(topics = "session-revocations-topic", containerFactory = "revocationListenerContainerFactory")
+    public void handleRevocation(ConsumerRecord<String, String> record) {
+        if (record.key() != null && record.value() != null) {
+            revocationDenyList.revoke(record.key(), Long.parseLong(record.value()));
+            log.debug("Токен отозван до {}", record.value());
+        }
+
+        revocationDenyList.commitOffset(record.partition(), record.offset());
+    }
+}
@@ -0,0 +1,157 @@
+package ru.nand.authservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/// Отложенная запись времени последней активности сессий.
+/// Отметки пользователя чаще session.activity.granularity пропускаются, последняя отметка каждой сессии копится в памяти
+/// и пишется пакетным JDBC UPDATE по таймеру, при накоплении batch-size сессий (в фоновом потоке, не в потоке запроса)
+/// и при остановке приложения
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "session.store", havingValue = "jpa", matchIfMissing = true)
+public class SessionActivityBuffer {
+    // Время только растет, и активность не возвращает в ACTIVE уже деактивированную сессию.
+    // Ключ секционирования в условии оставляет каждому UPDATE одну секцию sessions вместо проверки всех дней хранения
+    private static final String UPDATE_SQL =
+            "UPDATE sessions SET last_activity_time = ? WHERE id = ? AND session_creation_time = ? AND status = 'ACTIVE' AND last_activity_time < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, Activity> pending = new ConcurrentHashMap<>(); // id сессии -> последняя активность
+    private final Cache<Long, Boolean> recentUsers; // Пользователи, чья активность уже учтена в текущем окне
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ThreadPoolExecutor flushExecutor; // Сброс при накоплении batch-size: один в работе и один в очереди, остальные не нужны
+    private final Counter skipped;
+    private final Counter flushed;
+    private final Duration granularity;
+    private final Duration flushInterval;
+
+    @Value("${session.activity.batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    public SessionActivityBuffer(JdbcTemplate jdbcTemplate,
+                                 @Value("${session.activity.granularity:PT1M}") Duration granularity,
+                                 @Value("${session.activity.flush-interval:PT5S}") Duration flushInterval,
+                                 MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.granularity = granularity;
+        this.flushInterval = flushInterval;
+        this.recentUsers = Caffeine.newBuilder()
+                .expireAfterWrite(granularity)
+                .build();
+        this.flushExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "session-activity-flusher");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+        this.skipped = meterRegistry.counter("session.activity.skipped");
+        this.flushed = meterRegistry.counter("session.activity.flushed");
+        meterRegistry.gaugeMapSize("session.activity.pending", List.of(), pending);
+    }
+
+    /// true - активность пользователя уже учтена в текущем окне, ни чтение сессии, ни запись не нужны
+    public boolean isRecent(Long userId) {
+        if (recentUsers.getIfPresent(userId) != null) {
+            skipped.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /// Запоминание активности сессии пользователя до следующего сброса. Время создания сессии - ключ секции для UPDATE
+    public void record(Long userId, Long sessionId, LocalDateTime sessionCreationTime, LocalDateTime activityTime) {
+        recentUsers.put(userId, Boolean.TRUE);
+        pending.merge(sessionId, new Activity(sessionCreationTime, activityTime), Activity::latest);
+
+        if (pending.size() >= batchSize) {
+            flushExecutor.execute(this::flush); // Запрос, набравший пакет, не ждет JDBC
+        }
+    }
+
+    /// На сколько время активности в БД может отставать от фактического (окно пропуска + период сброса).
+    /// Шедулер простоя учитывает это отставание, чтобы не деактивировать сессию с еще не записанной активностью
+    public Duration maxLag() {
+        return granularity.plus(flushInterval);
+    }
+
+    @Scheduled(fixedDelayString = "${session.activity.flush-interval:PT5S}")
+    public void flush() {
+        if (pending.isEmpty() || !flushLock.tryLock()) {
+            return; // Сброс уже идет в другом потоке, новые отметки попадут в следующий
+        }
+        try {
+            List<Object[]> batch = new ArrayList<>(Math.min(pending.size(), batchSize));
+            for (Long sessionId : pending.keySet()) {
+                Activity activity = pending.remove(sessionId);
+                if (activity != null) {
+                    Timestamp timestamp = Timestamp.valueOf(activity.activityTime());
+                    batch.add(new Object[]{timestamp, sessionId, Timestamp.valueOf(activity.sessionCreationTime()), timestamp});
+                }
+                if (batch.size() == batchSize) {
+                    write(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            write(batch);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        log.info("Сброс буфера активности сессий перед остановкой ({} сессий)", pending.size());
+        flushExecutor.shutdown();
+        flushLock.lock(); // Дожидаемся сброса, начатого таймером
+        flushLock.unlock();
+        flush();
+    }
+
+    private void write(List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, batch);
+            flushed.increment(batch.size());
+        } catch (RuntimeException e) {
+            // Возвращаем отметки в буфер, следующий сброс повторит запись
+            log.warn("Не удалось записать активность {} сессий: {}", batch.size(), e.getMessage());
+            batch.forEach(row -> pending.merge((Long) row[1],
+                    new Activity(((Timestamp) row[2]).toLocalDateTime(), ((Timestamp) row[0]).toLocalDateTime()), Activity::latest));
+        }
+    }
+
+    private record Activity(LocalDateTime sessionCreationTime, LocalDateTime activityTime) {
+        Activity latest(Activity other) {
+            return other.activityTime().isAfter(activityTime) ? other : this;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ru.nand.authservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/// Запуск обработки сессий по расписанию. Тик срабатывает на всех инстансах, а работает только захвативший аренду шарда задачи.
+/// На каждый прогон шарда пишутся метрики: session.sweeper.rows (обработано строк), session.sweeper.duration (длительность),
+/// session.sweeper.failures (ошибки)
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "session.sweeper.enabled", havingValue = "true", matchIfMissing = true)
+public class SessionLifecycleScheduler {
+    private final SessionService sessionService;
+    private final JobLeaseManager jobLeaseManager;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public SessionLifecycleScheduler(SessionService sessionService, JobLeaseManager jobLeaseManager, MeterRegistry meterRegistry) {
+        this.sessionService = sessionService;
+        this.jobLeaseManager = jobLeaseManager;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /// Активные сессии без действий дольше session.idle-timeout переводятся в INACTIVE
+    @Scheduled(fixedDelayString = "${session.sweeper.idle-interval:PT5M}", initialDelayString = "${session.sweeper.initial-delay:PT1M}")
+    public void deactivateIdleSessions() {
+        run("deactivate-idle", sessionService::handleInactiveSessions);
+    }
+
+    /// INACTIVE сессии помечаются на отзыв по истечении session.sweeper.retention. REVOKED удаляет SessionPartitionManager вместе с секцией
+    @Scheduled(cron = "${session.sweeper.cleanup-cron:0 0 * * * *}")
+    public void cleanupSessions() {
+        run("revoke-inactive", sessionService::markInactiveSessionsAsRevoked);
+    }
+
+    private void run(String job, ToIntFunction<JobLease> sweeper) {
+        for (int shard : jobLeaseManager.shardOrder()) {
+            jobLeaseManager.acquire(job, shard).ifPresentOrElse(
+                    lease -> runShard(lease, sweeper),
+                    () -> log.debug("Шедулер {}: шард {} обрабатывает другой инстанс", job, shard));
+        }
+    }
+
+    private void runShard(JobLease lease, ToIntFunction<JobLease> sweeper) {
+        String job = lease.job();
+        String shard = String.valueOf(lease.shard());
+        long start = System.nanoTime();
+        try {
+            int rows = sweeper.applyAsInt(lease);
+            meterRegistry.counter("session.sweeper.rows", "job", job, "shard", shard).increment(rows);
+            log.info("Шедулер {} (шард {}, токен {}): обработано {} сессий за {} мс",
+                    job, shard, lease.fencingToken(), rows, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            // Следующий прогон продолжит с того же места: обработанные порции уже зафиксированы
+            meterRegistry.counter("session.sweeper.failures", "job", job, "shard", shard).increment();
+            log.error("Ошибка шедулера {} (шард {}): {}", job, shard, e.getMessage());
+        } finally {
+            jobLeaseManager.release(lease);
+            meterRegistry.timer("session.sweeper.duration", "job", job, "shard", shard).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package ru.nand.authservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/// Обслуживание секций таблицы sessions (по дню session_creation_time, см. V6 миграцию).
+/// Заранее создает секции на session.partitions.premake-days вперед (DEFAULT секции нет, см. V9 миграцию) и удаляет
+/// старые секции целиком (DETACH ... CONCURRENTLY + DROP), если в них остались только REVOKED сессии. Построчно REVOKED
+/// сессии не удаляются. Для UserSessionRepository секционирование прозрачно
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "session.store", havingValue = "jpa", matchIfMissing = true)
+public class SessionPartitionManager {
+    private static final String JOB = "session-partitions";
+    private static final String PARTITION_PREFIX = "sessions_";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE; // sessions_yyyyMMdd
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JobLeaseManager jobLeaseManager;
+    private final MeterRegistry meterRegistry;
+    private final SessionStatusCache sessionStatusCache;
+
+    @Value("${session.partitions.premake-days:7}")
+    private int premakeDays;
+    @Value("${session.sweeper.retention:P1D}")
+    private Duration sessionRetention; // Тот же срок, после которого INACTIVE сессии помечаются REVOKED
+    @Value("${session.partitions.lock-timeout:PT5S}")
+    private Duration lockTimeout; // Ожидание блокировки sessions при DETACH/ATTACH, не копим очередь запросов
+
+    @Autowired
+    public SessionPartitionManager(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                   JobLeaseManager jobLeaseManager, MeterRegistry meterRegistry, SessionStatusCache sessionStatusCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobLeaseManager = jobLeaseManager;
+        this.meterRegistry = meterRegistry;
+        this.sessionStatusCache = sessionStatusCache;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${session.partitions.cron:0 15 0 * * *}")
+    public void maintainPartitions() {
+        jobLeaseManager.acquire(JOB, 0).ifPresentOrElse(lease -> {
+            try {
+                createFuturePartitions(lease);
+                retireExpiredPartitions(lease);
+            } catch (RuntimeException e) {
+                log.error("Ошибка обслуживания секций sessions: {}", e.getMessage());
+            } finally {
+                jobLeaseManager.release(lease);
+            }
+        }, () -> log.debug("Секции sessions обслуживает другой инстанс"));
+    }
+
+    private void createFuturePartitions(JobLease lease) {
+        LocalDate today = LocalDate.now();
+
+        for (LocalDate day = today; !day.isAfter(today.plusDays(premakeDays)); day = day.plusDays(1)) {
+            String partition = partitionName(day);
+            LocalDate from = day;
+            try {
+                Boolean created = transactionTemplate.execute(tx -> {
+                    jobLeaseManager.fence(lease);
+                    if (jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition)) {
+                        return false;
+                    }
+                    jdbcTemplate.execute("CREATE TABLE " + partition + " PARTITION OF sessions FOR VALUES FROM ('" + from + "') TO ('" + from.plusDays(1) + "')");
+                    return true;
+                });
+
+                if (Boolean.TRUE.equals(created)) {
+                    meterRegistry.counter("session.partitions.created").increment();
+                    log.info("Создана секция {}", partition);
+                }
+            } catch (RuntimeException e) {
+                // Без секции вставка сессий этого дня завершится ошибкой, следующий прогон повторит попытку
+                log.error("Не удалось создать секцию {}: {}", partition, e.getMessage());
+            }
+        }
+    }
+
+    private void retireExpiredPartitions(JobLease lease) {
+        LocalDateTime threshold = LocalDateTime.now().minus(sessionRetention);
+
+        // Секции, отсоединение которых прервалось: DETACH ... CONCURRENTLY оставляет их в состоянии detach pending
+        for (String partition : listPendingDetaches()) {
+            finalizeDetach(partition);
+            dropDetached(lease, partition);
+        }
+
+        // Секции, отсоединенные, но не удаленные прошлым прогоном
+        for (String partition : listDetachedPartitions()) {
+            dropDetached(lease, partition);
+        }
+
+        for (String partition : listPartitions()) {
+            LocalDate day = partitionDay(partition);
+            // Секция целиком старше порога, иначе в ней могут появляться новые сессии
+            if (day == null || !day.plusDays(1).atStartOfDay().isBefore(threshold)) {
+                continue;
+            }
+
+            if (!prepareForRetirement(lease, partition, threshold)) {
+                meterRegistry.counter("session.partitions.retained").increment();
+                log.info("В секции {} остались действующие или заблокированные сессии, удаление отложено", partition);
+                continue;
+            }
+
+            detachConcurrently(partition);
+            dropDetached(lease, partition);
+        }
+    }
+
+    /// Проверка перед отсоединением (с fencing-токеном). Сессии ACTIVE/INACTIVE без активности дольше session.sweeper.retention
+    /// отзываются сразу: шедулеры сделали бы то же самое, а секция не должна ждать их прогона.
+    /// Секция остается, если в ней есть BLOCKED сессии (это отметка блокировки пользователя, снять ее нечем)
+    /// или сессии, которыми еще пользуются: они уйдут вместе с секцией, когда истекут
+    private boolean prepareForRetirement(JobLease lease, String partition, LocalDateTime threshold) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(tx -> {
+            jobLeaseManager.fence(lease);
+
+            int revoked = jdbcTemplate.update("UPDATE " + partition + " SET status = 'REVOKED'"
+                    + " WHERE status IN ('ACTIVE', 'INACTIVE') AND COALESCE(last_activity_time, session_creation_time) < ?", threshold);
+            if (revoked > 0) {
+                sessionStatusCache.invalidateAll();
+                log.info("В секции {} отозвано {} просроченных сессий", partition, revoked);
+            }
+
+            // REVOKED - конечный статус, новые строки в секцию старше порога не попадают, поэтому проверка не устареет до DETACH
+            return !hasRetainedSessions(partition);
+        }));
+    }
+
+    /// Отсоединение без ACCESS EXCLUSIVE блокировки sessions: DETACH ... CONCURRENTLY берет SHARE UPDATE EXCLUSIVE
+    /// и ждет завершения запросов, видевших секцию. Команда не работает внутри транзакции, поэтому выполняется
+    /// на отдельном соединении в режиме autocommit. lock_timeout ограничивает ожидание блокировки
+    private void detachConcurrently(String partition) {
+        executeOutsideTransaction("ALTER TABLE sessions DETACH PARTITION " + partition + " CONCURRENTLY");
+    }
+
+    private void finalizeDetach(String partition) {
+        executeOutsideTransaction("ALTER TABLE sessions DETACH PARTITION " + partition + " FINALIZE");
+    }
+
+    private void executeOutsideTransaction(String ddl) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(true);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET lock_timeout = '" + lockTimeout.toMillis() + "ms'");
+                try {
+                    statement.execute(ddl);
+                } finally {
+                    statement.execute("RESET lock_timeout"); // Соединение вернется в пул
+                }
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+    }
+
+    /// Удаление отсоединенной секции (с fencing-токеном). Если в ней все же оказались строки, которые нельзя терять,
+    /// секция присоединяется обратно: ATTACH берет SHARE UPDATE EXCLUSIVE, а не ACCESS EXCLUSIVE
+    private void dropDetached(JobLease lease, String partition) {
+        LocalDate day = partitionDay(partition);
+        if (day == null) {
+            return;
+        }
+
+        Boolean dropped = transactionTemplate.execute(tx -> {
+            jobLeaseManager.fence(lease);
+            jdbcTemplate.execute("SET LOCAL lock_timeout = '" + lockTimeout.toMillis() + "ms'");
+
+            if (hasRetainedSessions(partition)) {
+                jdbcTemplate.execute("ALTER TABLE sessions ATTACH PARTITION " + partition
+                        + " FOR VALUES FROM ('" + day + "') TO ('" + day.plusDays(1) + "')");
+                return false;
+            }
+
+            jdbcTemplate.execute("DROP TABLE " + partition);
+            return true;
+        });
+
+        if (Boolean.TRUE.equals(dropped)) {
+            meterRegistry.counter("session.partitions.dropped").increment();
+            log.info("Секция {} удалена", partition);
+        } else {
+            log.warn("В отсоединенной секции {} найдены действующие сессии, секция присоединена обратно", partition);
+        }
+    }
+
+    private boolean hasRetainedSessions(String partition) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + partition + " WHERE status <> 'REVOKED')", Boolean.class));
+    }
+
+    private List<String> listPartitions() {
+        return jdbcTemplate.queryForList("""
+                SELECT c.relname
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'sessions'::regclass
+                  AND NOT i.inhdetachpending
+                ORDER BY c.relname
+                """, String.class);
+    }
+
+    private List<String> listPendingDetaches() {
+        return jdbcTemplate.queryForList("""
+                SELECT c.relname
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'sessions'::regclass
+                  AND i.inhdetachpending
+                ORDER BY c.relname
+                """, String.class);
+    }
+
+    /// Дневные таблицы sessions_yyyyMMdd, которые уже не являются секциями sessions
+    private List<String> listDetachedPartitions() {
+        return jdbcTemplate.queryForList("""
+                SELECT c.relname
+                FROM pg_class c
+                WHERE c.relkind = 'r'
+                  AND NOT c.relispartition
+                  AND c.relnamespace = current_schema()::regnamespace
+                  AND c.relname ~ '^sessions_[0-9]{8}$'
+                ORDER BY c.relname
+                """, String.class);
+    }
+
+    private static String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + day.format(PARTITION_SUFFIX);
+    }
+
+    /// День секции по имени, null - не дневная секция
+    private static LocalDate partitionDay(String partition) {
+        try {
+            return LocalDate.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+        } catch (DateTimeParseException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package ru.nand.authservice.service;
 import ru.nand.authservice.entity.ENUMS.STATUS;
 import ru.nand.authservice.entity.User;
 import ru.nand.authservice.entity.UserSession;
+import ru.nand.authservice.entity.dto.SessionSummary;
 import ru.nand.authservice.entity.dto.TokenResponse;
 
 import java.util.List;
@@ -12,12 +13,13 @@ public interface SessionService {
     TokenResponse refreshAccessToken(String refreshToken); // Обновление Access
     List<UserSession> findByUserAndStatus(User user, STATUS status); // Поиск по пользователю и статусу
     boolean hasBlockedSessions(User user); // Наличие заблокированных сессий пользователя
+    SessionSummary getSessionSummary(User user); // Кол-во активных и заблокированных сессий и блокировка пользователя (одним запросом)
     boolean isSessionActive(String accessToken); // Проверка на активность текущей сессии пользователя
     void deactivateSessionByAccessToken(String accessToken); // Деактивация сессии по Access
-    void markInactiveSessionsAsRevoked(); // Пометка неактивных сессий на отзыв (для шедулера)
-    void deleteRevokedSessions(); // Удаление сессий, помеченных на отзыв (для шедулера)
-    void handleInactiveSessions(); // Обработка неактивных сессий (активные сессии без действия переводятся в inactive, для шедулера)
-    void handlingInactiveAndRevokedSessions(); // Обработка неактивных и помеченных на отзыв сессий (для шедулера)
+    int markInactiveSessionsAsRevoked(JobLease lease); // Пометка неактивных сессий на отзыв (для шедулера), обрабатывается шард аренды, возвращает кол-во сессий
+    int deleteRevokedSessions(JobLease lease); // Удаление сессий, помеченных на отзыв, возвращает кол-во сессий (в Postgres их удаляет SessionPartitionManager вместе с секцией)
+    int handleInactiveSessions(JobLease lease); // Обработка неактивных сессий (активные сессии без действия переводятся в inactive, для шедулера), обрабатывается шард аренды, возвращает кол-во сессий
+    void handlingInactiveAndRevokedSessions(JobLease lease); // Обработка неактивных и помеченных на отзыв сессий (для шедулера)
     void updateLastActivityTime(User user); // Обновление времени последней активности
     void blockUserSessions(User user, List<User> admins); // Блокировка активных пользовательских сессий (только для владельца и администраторов) по сути заморозка аккаунта. Уведомление получат администраторы и владелец
 }
@@ -3,54 +3,87 @@ package ru.nand.authservice.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.nand.authservice.entity.ENUMS.STATUS;
 import ru.nand.authservice.entity.User;
 import ru.nand.authservice.entity.UserSession;
+import ru.nand.authservice.entity.dto.SessionSummary;
 import ru.nand.authservice.entity.dto.TokenResponse;
 import ru.nand.authservice.repository.UserSessionRepository;
+import ru.nand.authservice.repository.UserSessionRepository.SweepCandidate;
 import ru.nand.authservice.util.NotificationUtil;
+import ru.nand.authservice.util.RevocationUtil;
+import ru.nand.authservice.util.TokenPair;
+import ru.nand.authservice.util.TokenPairMinter;
 import ru.nand.authservice.util.UserJwtUtil;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
 
 @Slf4j
 @Service
+@ConditionalOnProperty(name = "session.store", havingValue = "jpa", matchIfMissing = true)
 public class SessionServiceImpl implements SessionService {
+    private static final LocalDateTime KEYSET_START = LocalDateTime.of(1970, 1, 1, 0, 0); // Начало пагинации шедулеров
+
     private final UserSessionRepository userSessionRepository;
     private final NotificationUtil notificationUtil;
     private final UserJwtUtil userJwtUtil;
-
-    @Value("${jwt.user.access.expiration}")
-    private long accessTokenExpiration;
-    @Value("${jwt.user.refresh.expiration}")
-    private long refreshTokenExpiration;
+    private final SessionStatusCache sessionStatusCache;
+    private final RevocationUtil revocationUtil;
+    private final TransactionTemplate transactionTemplate;
+    private final JobLeaseManager jobLeaseManager;
+    private final SessionActivityBuffer sessionActivityBuffer;
+    private final TokenPairMinter tokenPairMinter;
+
+    @Value("${session.idle-timeout:PT2H}")
+    private Duration idleTimeout; // Простой, после которого активная сессия переводится в INACTIVE
+    @Value("${session.sweeper.retention:P1D}")
+    private Duration sessionRetention; // Сколько хранятся INACTIVE и REVOKED сессии до следующего шага
+    @Value("${session.sweeper.chunk-size:1000}")
+    private int sweepChunkSize;
 
     @Autowired
-    public SessionServiceImpl(UserSessionRepository userSessionRepository, NotificationUtil notificationUtil, UserJwtUtil userJwtUtil) {
+    public SessionServiceImpl(UserSessionRepository userSessionRepository, NotificationUtil notificationUtil, UserJwtUtil userJwtUtil, SessionStatusCache sessionStatusCache, RevocationUtil revocationUtil, PlatformTransactionManager transactionManager, JobLeaseManager jobLeaseManager, SessionActivityBuffer sessionActivityBuffer, TokenPairMinter tokenPairMinter) {
         this.userSessionRepository = userSessionRepository;
         this.notificationUtil = notificationUtil;
         this.userJwtUtil = userJwtUtil;
+        this.sessionStatusCache = sessionStatusCache;
+        this.revocationUtil = revocationUtil;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobLeaseManager = jobLeaseManager;
+        this.sessionActivityBuffer = sessionActivityBuffer;
+        this.tokenPairMinter = tokenPairMinter;
     }
 
     @Override
+    @Transactional // Сессии и outbox уведомления фиксируются вместе
     public TokenResponse createSession(User user) throws RuntimeException {
+        // Блокировка пользователя, заблокированные и активные сессии - одним запросом
+        SessionSummary summary = getSessionSummary(user);
+
         // Заблокирован ли пользователь
-        if (user.getIsBlocked()){
+        if (summary.isUserBlocked()){
             throw new RuntimeException("User is blocked");
         }
 
         // Наличие заблокированных сессий
-        if(hasBlockedSessions(user)){
+        if(summary.hasBlockedSessions()){
             log.error("Пользователь {} имеет заблокированные сессии. Новая сессия не создана.", user.getUsername());
             throw new RuntimeException("User has blocked sessions");
         }
 
         // Проверка на активные сессии
-        List<UserSession> activeSessions = userSessionRepository.findByUserAndStatus(user, STATUS.ACTIVE);
-        if(!activeSessions.isEmpty()){
+        if(summary.hasActiveSessions()){
             log.warn("При создании новой сессиии обнаружены активные сессии пользователя {}", user.getUsername());
 
             log.info("Отправка уведомления об активных сессиях пользователю");
@@ -61,72 +94,88 @@ public class SessionServiceImpl implements SessionService {
             }
         }
 
-        // Генерируем токены, чтобы вернуть их, а в БД будет хэш
-        String accessToken = userJwtUtil.generateAccessToken(user);
-        String refreshToken = userJwtUtil.generateRefreshToken(user);
+        // Токены возвращаются клиенту, а в БД хранятся хэши именно этих токенов
+        TokenPair tokens = tokenPairMinter.mint(user);
 
         UserSession session = UserSession.builder()
                 .user(user)
-                .accessTokenHash(userJwtUtil.hashToken(userJwtUtil.generateAccessToken(user))) // Храним хэш
-                .refreshTokenHash(userJwtUtil.hashToken(userJwtUtil.generateRefreshToken(user))) // Тоже хэш
-                .accessTokenExpires(LocalDateTime.now().plus(Duration.ofMillis(accessTokenExpiration)))
-                .refreshTokenExpires(LocalDateTime.now().plus(Duration.ofMillis(refreshTokenExpiration)))
-                .lastActivityTime(LocalDateTime.now())
+                .accessTokenHash(tokens.accessTokenHash())
+                .refreshTokenHash(tokens.refreshTokenHash())
+                .accessTokenExpires(tokens.accessTokenExpires())
+                .refreshTokenExpires(tokens.refreshTokenExpires())
+                .sessionCreationTime(tokens.issuedAt()) // Определяет секцию таблицы sessions
+                .lastActivityTime(tokens.issuedAt())
                 .status(STATUS.ACTIVE)
                 .build();
 
         UserSession userSession = userSessionRepository.save(session);
         log.debug("Создана сессия с id {} для пользователя {}", userSession.getId(), user.getUsername());
 
-        return new TokenResponse(accessToken, refreshToken);
+        return tokens.toTokenResponse();
     }
 
     @Override
     public TokenResponse refreshAccessToken(String refreshToken) throws RuntimeException {
         // Валидируем refresh
-        if(!userJwtUtil.validateUserToken(refreshToken)){
+        byte[] refreshTokenHash = userJwtUtil.hashToken(refreshToken); // Один хэш и для проверки, и для поиска сессии
+        if(!userJwtUtil.verify(refreshToken, refreshTokenHash).isValid()){
             throw new RuntimeException("Invalid refresh token");
         }
 
         // Ищем сессию с таким токеном, проверяем активна ли она (в противных случаях исключения)
-        UserSession userSession = userSessionRepository.findByRefreshTokenHash(userJwtUtil.hashToken(refreshToken))
+        // Пользователь загружается тем же запросом, что и сессия
+        UserSession userSession = userSessionRepository.findWithUserByRefreshTokenHash(refreshTokenHash)
                 .orElseThrow(() -> new RuntimeException("Session not found"));
         if (userSession.getStatus() != STATUS.ACTIVE) {
             throw new RuntimeException("Session is not active");
         }
 
+        SessionSummary summary = getSessionSummary(userSession.getUser());
+
         // Заблокирован ли пользователь
-        if(userSession.getUser().getIsBlocked()){
+        if(summary.isUserBlocked()){
             throw new RuntimeException("User is blocked");
         }
 
         // Наличие заблокированных сессий
-        if(hasBlockedSessions(userSession.getUser())){
+        if(summary.hasBlockedSessions()){
             log.error("Пользователь {} имеет заблокированные сессии.  Новая сессия не создана.", userSession.getUser().getUsername());
             throw new RuntimeException("User has blocked sessions");
         }
 
         // Генерируем новую пару
-        String newAccessToken = userJwtUtil.generateAccessToken(userSession.getUser());
-        String newRefreshToken = userJwtUtil.generateRefreshToken(userSession.getUser());
+        TokenPair tokens = tokenPairMinter.mint(userSession.getUser());
 
         // И заменяем старые на новые
-        userSession.setAccessTokenHash(userJwtUtil.hashToken(newAccessToken));
-        userSession.setRefreshTokenHash(userJwtUtil.hashToken(newRefreshToken));
-        userSession.setLastActivityTime(LocalDateTime.now());
+        byte[] oldAccessTokenHash = userSession.getAccessTokenHash();
+        LocalDateTime oldAccessTokenExpires = userSession.getAccessTokenExpires();
+        userSession.setAccessTokenHash(tokens.accessTokenHash());
+        userSession.setRefreshTokenHash(tokens.refreshTokenHash());
+        userSession.setAccessTokenExpires(tokens.accessTokenExpires());
+        userSession.setRefreshTokenExpires(tokens.refreshTokenExpires());
+        userSession.setLastActivityTime(tokens.issuedAt());
         userSessionRepository.save(userSession);
+        afterCommit(() -> { // Старый access больше не должен считаться активным
+            sessionStatusCache.invalidate(oldAccessTokenHash);
+            revocationUtil.publishRevocation(oldAccessTokenHash, oldAccessTokenExpires);
+        });
         log.debug("Сохранена новая сессия с новой парой токенов");
 
-        return new TokenResponse(newAccessToken, newRefreshToken);
+        return tokens.toTokenResponse();
     }
 
     @Override
+    @Transactional // Сессии и outbox уведомления фиксируются вместе
     public void blockUserSessions(User user, List<User> admins) {
         List<UserSession> sessions = userSessionRepository.findByUserAndStatus(user, STATUS.ACTIVE);
         sessions.forEach(session -> session.setStatus(STATUS.BLOCKED));
 
         log.warn("Все активные сессии пользователя {} заблокированы.", user.getUsername());
         userSessionRepository.saveAll(sessions);
+        afterCommit(() -> {
+            sessionStatusCache.invalidate(sessions.stream().map(UserSession::getAccessTokenHash).toList());
+            revocationUtil.publishRevocations(sessions);
+        });
 
         try{
             // Уведомление владельцу аккаунта
@@ -137,12 +186,10 @@ public class SessionServiceImpl implements SessionService {
 
         // Уведомление администраторам
         if (!admins.isEmpty()){
-            for(User admin : admins){
-                try {
-                    notificationUtil.createAndSendNotification(admin.getEmail(), "Все сессии пользователя " + user.getUsername() + " заблокированы, его аккаунт заморожен");
-                } catch (RuntimeException e) {
-                    throw new RuntimeException(e); // Прокидываем дальше
-                }
+            try {
+                notificationUtil.createAndSendNotification(admins.stream().map(User::getEmail).toList(), "Все сессии пользователя " + user.getUsername() + " заблокированы, его аккаунт заморожен");
+            } catch (RuntimeException e) {
+                throw new RuntimeException(e); // Прокидываем дальше
             }
         } else{
             log.warn("Администраторы не найдены");
@@ -151,8 +198,13 @@ public class SessionServiceImpl implements SessionService {
 
     @Override
     public boolean hasBlockedSessions(User user) {
-        List<UserSession> blockedSessions = userSessionRepository.findByUserAndStatus(user, STATUS.BLOCKED);
-        return !blockedSessions.isEmpty();
+        return userSessionRepository.existsByUserAndStatus(user, STATUS.BLOCKED);
+    }
+
+    @Override
+    public SessionSummary getSessionSummary(User user) {
+        return userSessionRepository.summarizeByUserId(user.getId())
+                .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
     @Override
@@ -174,73 +226,70 @@ public class SessionServiceImpl implements SessionService {
         log.debug("Сессия с id {} деактивирована для пользователя {}", userSession.getId(), userSession.getUser().getUsername());
 
         userSessionRepository.save(userSession);
+        afterCommit(() -> {
+            sessionStatusCache.invalidate(userSession.getAccessTokenHash());
+            revocationUtil.publishRevocation(userSession.getAccessTokenHash(), userSession.getAccessTokenExpires());
+        });
     }
 
     @Override
-    public void markInactiveSessionsAsRevoked() {
-        // Порог - 1 День
-        LocalDateTime threshold = LocalDateTime.now().minusDays(1);
-
-        List<UserSession> inactiveSessions = userSessionRepository.findByStatusAndLastActivityTimeBefore(STATUS.INACTIVE, threshold);
+    public int markInactiveSessionsAsRevoked(JobLease lease) {
+        // Порог - срок хранения (по умолчанию 1 день)
+        LocalDateTime threshold = LocalDateTime.now().minus(sessionRetention);
 
-        if(!inactiveSessions.isEmpty()){
-            log.debug("Найдено {} неактивных сессий для пометки на отзыв", inactiveSessions.size());
+        int revoked = sweep(lease, STATUS.INACTIVE, threshold,
+                ids -> userSessionRepository.updateStatusByIds(ids, STATUS.REVOKED, LocalDateTime.now()),
+                chunk -> {});
 
-            inactiveSessions.forEach(session -> {
-                session.setStatus(STATUS.REVOKED);
-                session.setLastActivityTime(LocalDateTime.now());
-            });
-
-            userSessionRepository.saveAll(inactiveSessions);
-            log.debug("{} сессий были помечены как REVOKED", inactiveSessions.size());
+        if (revoked > 0) {
+            sessionStatusCache.invalidateAll();
+            log.debug("{} сессий были помечены как REVOKED", revoked);
         } else {
             log.debug("Неактивных сессий для пометки на отзыв не найдено");
         }
+        return revoked;
     }
 
     @Override
-    public void deleteRevokedSessions() {
-        LocalDateTime threshold = LocalDateTime.now().minusDays(1);
-
-        List<UserSession> revokedSessions = userSessionRepository.findByStatusAndLastActivityTimeBefore(STATUS.REVOKED, threshold);
-
-        if(!revokedSessions.isEmpty()){
-            log.info("Найдено {} сессий для удаления", revokedSessions.size());
-            userSessionRepository.deleteAll(revokedSessions);
-            log.debug("{} сессий было удалено", revokedSessions.size());
-        } else {
-            log.debug("Сессий для удаления не найдено");
-        }
+    public int deleteRevokedSessions(JobLease lease) {
+        // Построчный DELETE по горячей таблице не нужен: SessionPartitionManager удаляет старые секции целиком
+        log.debug("REVOKED сессии удаляются вместе с секцией");
+        return 0;
     }
 
     @Override
-    public void handleInactiveSessions() {
-        LocalDateTime threshold = LocalDateTime.now().minusHours(2);
-        List<UserSession> activeSessions = userSessionRepository.findByStatusAndLastActivityTimeBefore(STATUS.ACTIVE, threshold);
-
-        if (!activeSessions.isEmpty()) {
-            log.info("Найдено {} активных сессий для перевода в статус INACTIVE", activeSessions.size());
-
-            activeSessions.forEach(session -> {
-                session.setStatus(STATUS.INACTIVE);
-                session.setLastActivityTime(LocalDateTime.now()); // По это сути имитация логаута пользователя, поэтому установим LAT
-            });
-
-            userSessionRepository.saveAll(activeSessions);
-            log.info("Активные сессии успешно переведены в статус INACTIVE");
+    public int handleInactiveSessions(JobLease lease) {
+        // Сначала записываем накопленную активность, а отставание буферов других инстансов покрываем запасом к порогу
+        sessionActivityBuffer.flush();
+        LocalDateTime threshold = LocalDateTime.now().minus(idleTimeout).minus(sessionActivityBuffer.maxLag());
+
+        // По сути имитация логаута пользователя, поэтому устанавливаем LAT. Отзыв access токенов - после фиксации каждой порции
+        int deactivated = sweep(lease, STATUS.ACTIVE, threshold,
+                ids -> userSessionRepository.updateStatusByIds(ids, STATUS.INACTIVE, LocalDateTime.now()),
+                chunk -> chunk.forEach(candidate -> revocationUtil.publishRevocation(candidate.getAccessTokenHash(), candidate.getAccessTokenExpires())));
+
+        if (deactivated > 0) {
+            sessionStatusCache.invalidateAll();
+            log.info("{} активных сессий переведены в статус INACTIVE", deactivated);
         } else {
             log.debug("Активных сессий для перевода в статус INACTIVE не найдено");
         }
+        return deactivated;
     }
 
     @Override
-    public void handlingInactiveAndRevokedSessions() {
-        markInactiveSessionsAsRevoked();
-        deleteRevokedSessions();
+    public void handlingInactiveAndRevokedSessions(JobLease lease) {
+        markInactiveSessionsAsRevoked(lease);
+        deleteRevokedSessions(lease);
     }
 
     @Override
     public void updateLastActivityTime(User user) {
+        // Активность уже учтена в текущем окне - ни чтения, ни записи
+        if (sessionActivityBuffer.isRecent(user.getId())) {
+            return;
+        }
+
         // Поиск активной сессии пользователя
         List<UserSession> activeSessions = userSessionRepository.findByUserAndStatus(user, STATUS.ACTIVE);
 
@@ -249,11 +298,9 @@ public class SessionServiceImpl implements SessionService {
             throw new RuntimeException("Active session not found");
         }
 
+        // Запись в БД - пакетом при сбросе буфера
         UserSession session = activeSessions.getFirst();
-
-        session.setLastActivityTime(LocalDateTime.now());
-
-        userSessionRepository.save(session);
+        sessionActivityBuffer.record(user.getId(), session.getId(), session.getSessionCreationTime(), LocalDateTime.now());
 
         log.debug("Время последней активности обновлено для пользователя: {}", user.getUsername());
     }
@@ -265,10 +312,76 @@ public class SessionServiceImpl implements SessionService {
 
     @Override
     public boolean isSessionActive(String accessToken) {
-        UserSession userSession = userSessionRepository.findByAccessTokenHash(userJwtUtil.hashToken(accessToken))
-                .orElseThrow(() -> new RuntimeException("Session not found"));
-        log.debug("Найдена сессия с id: {} и статусом: {}", userSession.getId(), userSession.getStatus().name());
+        // Статус берется из локального кэша, в БД идем только при промахе
+        STATUS status = sessionStatusCache.get(userJwtUtil.hashToken(accessToken), accessTokenHash ->
+                userSessionRepository.findByAccessTokenHash(accessTokenHash)
+                        .map(UserSession::getStatus)
+                        .orElse(null));
+
+        if (status == null) {
+            throw new RuntimeException("Session not found");
+        }
+        log.debug("Статус сессии: {}", status.name());
+
+        return status == STATUS.ACTIVE;
+    }
+
+    /// Обработка сессий шарда аренды со статусом status и активностью до threshold порциями по sweepChunkSize строк.
+    /// Каждая порция - отдельная транзакция (fencing token, блокировка строк, массовый UPDATE/DELETE по id), память не зависит от объема.
+    /// Аренда продлевается перед каждой порцией, при ее потере обработка прекращается
+    private int sweep(JobLease lease, STATUS status, LocalDateTime threshold, ToIntFunction<List<Long>> action, Consumer<List<SweepCandidate>> afterCommit) {
+        LocalDateTime afterTime = KEYSET_START;
+        long afterId = 0L;
+        int affected = 0;
+
+        while (true) {
+            if (!jobLeaseManager.renew(lease)) {
+                log.warn("Аренда {} потеряна, обработка сессий остановлена", lease.key());
+                return affected;
+            }
+
+            LocalDateTime cursorTime = afterTime;
+            long cursorId = afterId;
+            SweepChunk chunk = transactionTemplate.execute(tx -> {
+                jobLeaseManager.fence(lease);
+                List<SweepCandidate> candidates = userSessionRepository.lockSweepCandidates(status.name(), threshold, cursorTime, cursorId,
+                        lease.shardCount(), lease.shard(), sweepChunkSize);
+                int rows = candidates.isEmpty() ? 0 : action.applyAsInt(candidates.stream().map(SweepCandidate::getId).toList());
+                return new SweepChunk(candidates, rows);
+            });
+
+            if (chunk == null || chunk.candidates().isEmpty()) {
+                return affected;
+            }
+            afterCommit.accept(chunk.candidates());
+            affected += chunk.rows();
+
+            if (chunk.candidates().size() < sweepChunkSize) {
+                return affected;
+            }
+            SweepCandidate last = chunk.candidates().getLast();
+            afterTime = last.getLastActivityTime();
+            afterId = last.getId();
+        }
+    }
+
+    /// Инвалидация кэша статусов и публикация отзыва - только после фиксации транзакции: при откате deny-list обоих
+    /// сервисов и compacted-топик не должны отзывать сессии, которые в БД остались активными, а чтение до фиксации
+    /// не должно вернуть в кэш старый статус. Вне транзакции действие выполняется сразу
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 
-        return userSession.getStatus() == STATUS.ACTIVE;
+    private record SweepChunk(List<SweepCandidate> candidates, int rows) {
     }
 }
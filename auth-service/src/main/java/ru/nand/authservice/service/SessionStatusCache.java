@@ -0,0 +1,47 @@
+package ru.nand.authservice.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.nand.authservice.entity.ENUMS.STATUS;
+import ru.nand.authservice.util.CacheCodec;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.function.Function;
+
+/// Кэш статуса сессии по хэшу access токена (L1 в памяти, L2 в Redis). Инвалидации рассылаются остальным инстансам
+@Component
+public class SessionStatusCache {
+    private final CacheService<byte[], STATUS> cache;
+
+    @Autowired
+    public SessionStatusCache(@Value("${session.cache.maximum-size:100000}") long maximumSize,
+                              @Value("${session.cache.ttl:PT5S}") Duration ttl,
+                              @Value("${session.cache.l2-ttl:PT1M}") Duration l2Ttl,
+                              TwoTierCacheManager cacheManager) {
+        this.cache = cacheManager.create("session.status", new TwoTierCache.Spec(maximumSize, ttl, l2Ttl),
+                HexFormat.of()::formatHex, CacheCodec.ofEnum(STATUS.class));
+    }
+
+    /// Статус сессии из кэша или из загрузчика (null, если сессии нет - такое не кэшируется)
+    public STATUS get(byte[] accessTokenHash, Function<byte[], STATUS> loader) {
+        return cache.get(accessTokenHash, loader);
+    }
+
+    /// Инвалидация одной сессии локально и на остальных инстансах
+    public void invalidate(byte[] accessTokenHash) {
+        cache.invalidate(accessTokenHash);
+    }
+
+    /// Инвалидация набора сессий
+    public void invalidate(Collection<byte[]> accessTokenHashes) {
+        cache.invalidate(accessTokenHashes);
+    }
+
+    /// Полная инвалидация (после массовых изменений шедулерами)
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,212 @@
+package ru.nand.authservice.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import ru.nand.authservice.util.CacheCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/// Двухуровневый кэш: L1 - Caffeine в памяти инстанса (W-TinyLFU), L2 - Redis (cache:{name}:{поколение}:{ключ}, значения в CacheCodec).
+/// Промах L1 загружается через L2 и загрузчик один раз на ключ: параллельные запросы того же ключа ждут future первого (single-flight),
+/// сама загрузка идет вне блокировок Caffeine.
+/// Инвалидация заменяет значение в L2 уникальной меткой (с TTL l2Ttl) и рассылается остальным инстансам (TwoTierCacheManager).
+/// Загрузка записывает результат в L2, только если там все еще то, что она видела при промахе (compare-and-set),
+/// поэтому загрузка, начатая до инвалидации, не вернет в L2 старое значение. Полная инвалидация
+/// переключает поколение ключей L2 вместо перебора ключей, старое поколение удаляет TTL, загрузки старого поколения пишут в него же.
+/// Значения кодека не должны начинаться с нулевого байта - так начинается метка инвалидации
+@Slf4j
+public class TwoTierCache<K, V> implements CacheService<K, V> {
+    // KEYS[1] - ключ L2; ARGV[1] - значение при промахе (пусто - ключа не было), ARGV[2] - новое значение, ARGV[3] - TTL в мс
+    private static final byte[] WRITE_BACK = """
+            local current = redis.call('GET', KEYS[1])
+            if (current == false and ARGV[1] == '') or current == ARGV[1] then
+                redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+                return 1
+            end
+            return 0
+            """.getBytes(StandardCharsets.UTF_8);
+    private static final byte TOMBSTONE_PREFIX = 0;
+
+    private final String name;
+    private final Function<K, String> keyEncoder;
+    private final CacheCodec<V> codec;
+    private final Duration l2Ttl; // Ноль - только L1
+    private final StringRedisTemplate redisTemplate;
+    private final TwoTierCacheManager manager;
+    private final AsyncCache<String, V> l1; // future завершается null - запись удаляется
+    private final Counter l2Hits;
+    private final Counter l2Misses;
+    private final Counter l2Errors;
+    private final Counter l2DecodeErrors;
+    private final Timer loads;
+    private volatile long generation;
+
+    TwoTierCache(String name, Spec spec, Function<K, String> keyEncoder, CacheCodec<V> codec,
+                 StringRedisTemplate redisTemplate, TwoTierCacheManager manager, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.keyEncoder = keyEncoder;
+        this.codec = codec;
+        this.l2Ttl = spec.l2Ttl();
+        this.redisTemplate = redisTemplate;
+        this.manager = manager;
+        this.l1 = Caffeine.newBuilder()
+                .maximumSize(spec.maximumSize())
+                .expireAfterWrite(spec.l1Ttl())
+                .recordStats()
+                .buildAsync();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, l1.synchronous(), name); // cache.gets{result=hit|miss} и т.д. по L1
+        this.l2Hits = meterRegistry.counter("cache.l2.gets", "cache", name, "result", "hit");
+        this.l2Misses = meterRegistry.counter("cache.l2.gets", "cache", name, "result", "miss");
+        this.l2Errors = meterRegistry.counter("cache.l2.errors", "cache", name);
+        this.l2DecodeErrors = meterRegistry.counter("cache.l2.decode.errors", "cache", name);
+        this.loads = meterRegistry.timer("cache.loads", "cache", name);
+        this.generation = l2Enabled() ? readGeneration() : 0L;
+    }
+
+    @Override
+    public V get(K key, Function<K, V> loader) {
+        String cacheKey = keyEncoder.apply(key);
+        CompletableFuture<V> cached = l1.getIfPresent(cacheKey); // Учитывается в статистике попаданий
+        if (cached == null) {
+            CompletableFuture<V> pending = new CompletableFuture<>();
+            cached = l1.asMap().putIfAbsent(cacheKey, pending);
+            if (cached == null) {
+                cached = pending;
+                try {
+                    pending.complete(load(cacheKey, key, loader));
+                } catch (RuntimeException e) {
+                    pending.completeExceptionally(e); // Ожидающие получат ту же ошибку, запись удалится
+                }
+            }
+        }
+
+        try {
+            return cached.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    @Override
+    public void invalidate(K key) {
+        String cacheKey = keyEncoder.apply(key);
+        l1.synchronous().invalidate(cacheKey);
+        if (l2Enabled()) {
+            byte[] tombstone = tombstone();
+            l2(connection -> connection.stringCommands().set(l2Key(cacheKey), tombstone, Expiration.from(l2Ttl), RedisStringCommands.SetOption.upsert()));
+        }
+        manager.publishInvalidation(name, cacheKey);
+    }
+
+    @Override
+    public void invalidateAll() {
+        l1.synchronous().invalidateAll();
+        Long next = l2Enabled() ? l2(connection -> connection.stringCommands().incr(generationKey())) : null;
+        if (next != null) {
+            generation = next;
+        }
+        manager.publishInvalidateAll(name, generation);
+    }
+
+    /// Инвалидация, пришедшая от другого инстанса
+    void onRemoteInvalidation(String cacheKey) {
+        l1.synchronous().invalidate(cacheKey);
+    }
+
+    void onRemoteInvalidateAll(long newGeneration) {
+        if (newGeneration > generation) {
+            generation = newGeneration;
+        }
+        l1.synchronous().invalidateAll();
+    }
+
+    private V load(String cacheKey, K key, Function<K, V> loader) {
+        byte[] l2Key = l2Key(cacheKey); // Поколение на момент промаха
+        byte[] observed = null;
+        if (l2Enabled()) {
+            observed = l2(connection -> connection.stringCommands().get(l2Key));
+            if (observed != null && !isTombstone(observed)) {
+                try {
+                    V decoded = codec.decode(observed);
+                    l2Hits.increment();
+                    return decoded;
+                } catch (RuntimeException e) {
+                    // Значение старого формата (после смены версии кодека) - промах, загрузка перезапишет его
+                    l2DecodeErrors.increment();
+                    log.debug("Кэш {}: не удалось декодировать значение L2: {}", name, e.getMessage());
+                }
+            }
+            l2Misses.increment();
+        }
+
+        V value = loads.record(() -> loader.apply(key));
+        if (value != null && l2Enabled()) {
+            byte[] expected = observed == null ? new byte[0] : observed;
+            byte[] encoded = codec.encode(value);
+            byte[] ttl = String.valueOf(l2Ttl.toMillis()).getBytes(StandardCharsets.US_ASCII);
+            l2(connection -> connection.scriptingCommands().eval(WRITE_BACK, ReturnType.INTEGER, 1, l2Key, expected, encoded, ttl));
+        }
+        return value;
+    }
+
+    /// Команда L2. Недоступный Redis не ломает чтение: кэш работает как L1 поверх загрузчика
+    private <T> T l2(RedisCallback<T> command) {
+        try {
+            return redisTemplate.execute(command);
+        } catch (RuntimeException e) {
+            l2Errors.increment();
+            log.debug("Кэш {}: Redis недоступен: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    private long readGeneration() {
+        byte[] stored = l2(connection -> connection.stringCommands().get(generationKey()));
+        return stored == null ? 0L : Long.parseLong(new String(stored, StandardCharsets.US_ASCII));
+    }
+
+    /// Метка инвалидации: уникальна, чтобы загрузка не приняла новую инвалидацию за ту, что видела при промахе
+    private static byte[] tombstone() {
+        byte[] id = UUID.randomUUID().toString().getBytes(StandardCharsets.US_ASCII);
+        byte[] tombstone = new byte[id.length + 1];
+        tombstone[0] = TOMBSTONE_PREFIX;
+        System.arraycopy(id, 0, tombstone, 1, id.length);
+        return tombstone;
+    }
+
+    private static boolean isTombstone(byte[] value) {
+        return value.length > 0 && value[0] == TOMBSTONE_PREFIX;
+    }
+
+    private boolean l2Enabled() {
+        return !l2Ttl.isZero();
+    }
+
+    private byte[] l2Key(String cacheKey) {
+        return ("cache:" + name + ":" + generation + ":" + cacheKey).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] generationKey() {
+        return ("cache:" + name + ":generation").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /// Размер L1 и сроки жизни уровней. l2Ttl = 0 - кэш только в памяти
+    public record Spec(long maximumSize, Duration l1Ttl, Duration l2Ttl) {
+    }
+}
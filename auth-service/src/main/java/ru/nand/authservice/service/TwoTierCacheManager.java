@@ -0,0 +1,77 @@
+package ru.nand.authservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import ru.nand.authservice.util.CacheCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/// Создание двухуровневых кэшей и рассылка их инвалидаций между инстансами через Redis pub/sub.
+/// Сообщение: k|{кэш}|{ключ} - один ключ, a|{кэш}|{поколение} - весь кэш
+@Slf4j
+@Component
+public class TwoTierCacheManager implements MessageListener {
+    public static final String INVALIDATION_CHANNEL = "cache-invalidation";
+
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TwoTierCache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TwoTierCacheManager(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /// Новый кэш. keyEncoder - строковое представление ключа для Redis и сообщений инвалидации
+    public <K, V> CacheService<K, V> create(String name, TwoTierCache.Spec spec, Function<K, String> keyEncoder, CacheCodec<V> codec) {
+        TwoTierCache<K, V> cache = new TwoTierCache<>(name, spec, keyEncoder, codec, redisTemplate, this, meterRegistry);
+        if (caches.putIfAbsent(name, cache) != null) {
+            throw new IllegalStateException("Cache " + name + " already exists");
+        }
+        return cache;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length < 3) {
+            return;
+        }
+
+        TwoTierCache<?, ?> cache = caches.get(parts[1]);
+        if (cache == null) {
+            return; // Кэш есть только на инстансах другой конфигурации
+        }
+        if ("a".equals(parts[0])) {
+            cache.onRemoteInvalidateAll(Long.parseLong(parts[2]));
+        } else {
+            cache.onRemoteInvalidation(parts[2]);
+        }
+    }
+
+    void publishInvalidation(String cache, String cacheKey) {
+        publish("k|" + cache + "|" + cacheKey);
+    }
+
+    void publishInvalidateAll(String cache, long generation) {
+        publish("a|" + cache + "|" + generation);
+    }
+
+    private void publish(String payload) {
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, payload);
+        } catch (RuntimeException e) {
+            // Остальные инстансы в худшем случае увидят изменение по истечении TTL L1
+            log.warn("Не удалось разослать инвалидацию кэша: {}", e.getMessage());
+        }
+    }
+}
@@ -12,4 +12,5 @@ public interface UserService {
     TokenResponse login(User user);
     TokenResponse refreshAccessToken(String refreshToken);
     void logout(String authHeader);
+    void updatePasswordHash(User user, String passwordHash); // Замена хэша пароля (перехэш с новой стоимостью)
 }
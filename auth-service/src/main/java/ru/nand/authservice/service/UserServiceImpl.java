@@ -2,13 +2,15 @@ package ru.nand.authservice.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.nand.authservice.entity.ENUMS.ROLE;
 import ru.nand.authservice.entity.User;
 import ru.nand.authservice.entity.dto.RegisterDTO;
 import ru.nand.authservice.entity.dto.TokenResponse;
 import ru.nand.authservice.repository.UserRepository;
+import ru.nand.authservice.util.PasswordHasher;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -19,13 +21,16 @@ public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
     private final SessionService sessionService;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
-    public UserServiceImpl(UserRepository userRepository, SessionService sessionService, PasswordEncoder passwordEncoder) {
+    public UserServiceImpl(UserRepository userRepository, SessionService sessionService, PasswordHasher passwordHasher,
+                           PlatformTransactionManager transactionManager) {
         this.userRepository = userRepository;
         this.sessionService = sessionService;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Override
@@ -46,26 +51,28 @@ public class UserServiceImpl implements UserService {
         }
 
         log.info("Создание новго пользователя");
-        // Создаем нового пользоваетеля
+        // Создаем нового пользоваетеля. Хэш считается до транзакции, чтобы BCrypt не держал соединение с БД
         User user = User.builder()
                 .username(registerDTO.getUsername())
                 .email(registerDTO.getEmail())
-                .password(passwordEncoder.encode(registerDTO.getPassword()))
+                .password(passwordHasher.encode(registerDTO.getPassword())) // В пуле хэширования, при перегрузке - RejectedExecutionException
                 .registrationDate(LocalDateTime.now())
                 .role(ROLE.ROLE_USER)
                 .build();
 
+        // Пользователь, сессия и outbox уведомления фиксируются вместе: если сессия не создалась, почта остается свободной
+        return transactionTemplate.execute(tx -> {
+            userRepository.save(user);
+            log.debug("Пользователь {} успешно сохранен", user.getUsername());
 
-        userRepository.save(user);
-        log.debug("Пользователь {} успешно сохранен", user.getUsername());
-
-        // Создаем сессию и получаем DTO для отправки в сервис аккаунтов, из которого можно получить пару токенов и вернуть клиенту
-        try{
-            return sessionService.createSession(user);
-        } catch (RuntimeException e){
-            log.error("Ошибка при создании сессии для пользователя {}: {}", user.getUsername(), e.getMessage());
-            throw e; // Прокидываем дальше
-        }
+            // Создаем сессию и получаем DTO для отправки в сервис аккаунтов, из которого можно получить пару токенов и вернуть клиенту
+            try{
+                return sessionService.createSession(user);
+            } catch (RuntimeException e){
+                log.error("Ошибка при создании сессии для пользователя {}: {}", user.getUsername(), e.getMessage());
+                throw e; // Прокидываем дальше, транзакция откатывается
+            }
+        });
     }
 
     @Override
@@ -73,6 +80,12 @@ public class UserServiceImpl implements UserService {
         return sessionService.createSession(user); // Исключение из createSession() ловим в AuthService
     }
 
+    @Override
+    public void updatePasswordHash(User user, String passwordHash) {
+        userRepository.updatePassword(user.getId(), passwordHash);
+        log.debug("Хэш пароля пользователя {} обновлен", user.getUsername());
+    }
+
     @Override
     public void logout(String authHeader) throws RuntimeException {
         sessionService.deactivateSessionByAccessToken(authHeader);
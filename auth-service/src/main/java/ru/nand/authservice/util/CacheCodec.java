@@ -0,0 +1,25 @@
+package ru.nand.authservice.util;
+
+import java.nio.charset.StandardCharsets;
+
+/// Двоичное представление значения кэша в Redis (L2)
+public interface CacheCodec<T> {
+    byte[] encode(T value);
+
+    T decode(byte[] bytes);
+
+    /// Enum по имени константы: переживает перестановку констант, в отличие от ordinal
+    static <E extends Enum<E>> CacheCodec<E> ofEnum(Class<E> type) {
+        return new CacheCodec<>() {
+            @Override
+            public byte[] encode(E value) {
+                return value.name().getBytes(StandardCharsets.US_ASCII);
+            }
+
+            @Override
+            public E decode(byte[] bytes) {
+                return Enum.valueOf(type, new String(bytes, StandardCharsets.US_ASCII));
+            }
+        };
+    }
+}
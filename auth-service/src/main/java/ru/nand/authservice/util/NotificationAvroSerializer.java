@@ -0,0 +1,73 @@
+package ru.nand.authservice.util;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+import ru.nand.authservice.entity.dto.NotificationDTO;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/// NotificationDTO в Avro по последней версии схемы: [0][id схемы, 4 байта][Avro binary].
+/// UUID - 16 байт вместо 36 символов, дата - long вместо ISO строки
+public class NotificationAvroSerializer implements Serializer<NotificationDTO> {
+    private final Schema schema;
+    private final byte[] header;
+    private final Schema uuidSchema;
+    private final GenericDatumWriter<GenericRecord> writer;
+
+    public NotificationAvroSerializer(NotificationSchemaRegistry registry) {
+        this.schema = registry.latest();
+        this.header = ByteBuffer.allocate(NotificationSchemaRegistry.HEADER_LENGTH)
+                .put(NotificationSchemaRegistry.MAGIC_BYTE)
+                .putInt(registry.latestId())
+                .array();
+        this.uuidSchema = schema.getField("notificationId").schema().getTypes().get(1);
+        this.writer = new GenericDatumWriter<>(schema);
+    }
+
+    @Override
+    public byte[] serialize(String topic, NotificationDTO notification) {
+        if (notification == null) {
+            return null;
+        }
+
+        GenericRecord record = new GenericData.Record(schema);
+        record.put("notificationId", toFixed(notification.getNotificationId()));
+        record.put("createdAt", toFixed(notification.getCreatedAt()));
+        record.put("message", notification.getMessage());
+        record.put("userEmail", notification.getUserEmail());
+        record.put("creationDate", notification.getCreationDate() == null
+                ? null
+                : notification.getCreationDate().toInstant(ZoneOffset.UTC).toEpochMilli()); // local-timestamp-millis, без зоны
+
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+            out.write(header);
+            BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+            writer.write(record, encoder);
+            encoder.flush();
+            return out.toByteArray();
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Failed to serialize notification for " + notification.getUserEmail(), e);
+        }
+    }
+
+    private GenericData.Fixed toFixed(UUID uuid) {
+        if (uuid == null) {
+            return null;
+        }
+        return new GenericData.Fixed(uuidSchema, ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array());
+    }
+}
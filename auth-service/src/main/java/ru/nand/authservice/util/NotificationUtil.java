@@ -1,43 +1,47 @@
 package ru.nand.authservice.util;
 
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
-import ru.nand.authservice.entity.User;
-import ru.nand.authservice.entity.dto.NotificationDTO;
+import ru.nand.authservice.entity.NotificationOutbox;
+import ru.nand.authservice.repository.NotificationOutboxRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 
 @Slf4j
 @Component
 public class NotificationUtil {
-    private final KafkaTemplate<String, String> kafkaTemplate;
-    private final ObjectMapper objectMapper;
+    private final NotificationOutboxRepository notificationOutboxRepository;
 
     @Autowired
-    public NotificationUtil(KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper) {
-        this.kafkaTemplate = kafkaTemplate;
-        this.objectMapper = objectMapper;
+    public NotificationUtil(NotificationOutboxRepository notificationOutboxRepository) {
+        this.notificationOutboxRepository = notificationOutboxRepository;
     }
 
-    /// Соаздание уведомления и отправка его в топик
+    /// Создание уведомления в outbox. Запись присоединяется к текущей транзакции (если она есть) и публикуется
+    /// в auth-notifications-topic релеем после коммита (см. NotificationOutboxRelay), поэтому запрос не ждет Kafka
     public void createAndSendNotification(String targetEmail, String message) throws RuntimeException{
-        log.info("Соаздние уведомления для передачи в топик");
-        NotificationDTO notificationDTO = NotificationDTO.builder()
-                .message(message)
+        log.debug("Создание уведомления в outbox для {}", targetEmail);
+        notificationOutboxRepository.save(NotificationOutbox.builder()
                 .userEmail(targetEmail)
-                .build();
-
-        try{
-            String notificationMessage = objectMapper.writeValueAsString(notificationDTO);
+                .message(message)
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
 
-            log.info("Отправка уведомления в топик auth-notifications-topic");
-            kafkaTemplate.send("auth-notifications-topic", notificationMessage);
-        } catch (Exception e) {
-            log.error("Ошибка при отправке уведомления в auth-notifications-topic: {}", e.getMessage());
-            throw new RuntimeException(e);
-        }
+    /// Одно уведомление нескольким получателям (например, всем администраторам). id берутся блоками из последовательности,
+    /// поэтому записи уходят в outbox JDBC-пачками (hibernate.jdbc.batch_size), а не отдельным INSERT на получателя.
+    /// Блоки id разных инстансов не упорядочены по времени, поэтому порядок публикации задает created_at (см. NotificationOutboxRelay)
+    public void createAndSendNotification(Collection<String> targetEmails, String message) throws RuntimeException{
+        LocalDateTime createdAt = LocalDateTime.now();
+        notificationOutboxRepository.saveAll(targetEmails.stream()
+                .map(targetEmail -> NotificationOutbox.builder()
+                        .userEmail(targetEmail)
+                        .message(message)
+                        .createdAt(createdAt)
+                        .build())
+                .toList());
     }
 }
@@ -0,0 +1,112 @@
+package ru.nand.authservice.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/// Защита исходящих вызовов к одному сервису: bulkhead ограничивает число одновременных запросов, circuit breaker
+/// отклоняет их сразу, пока сервис отвечает ошибками. В обоих случаях - RejectedExecutionException без сетевого вызова
+/// (вызывающий отвечает 503, как при перегрузке пула хэширования). Длительность пишется гистограммой по шаблону URI
+public class OutboundCallGuard implements ClientHttpRequestInterceptor {
+    private static final String URI_TEMPLATE_ATTRIBUTE = RestClient.class.getName() + ".uriTemplate";
+
+    private final String service;
+    private final Semaphore bulkhead;
+    private final long maxWaitNanos;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+    private final Counter bulkheadRejected;
+    private final Counter circuitRejected;
+
+    public OutboundCallGuard(String service, int maxConcurrentCalls, Duration maxWait, CircuitBreaker circuitBreaker, MeterRegistry meterRegistry) {
+        this.service = service;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.circuitBreaker = circuitBreaker;
+        this.meterRegistry = meterRegistry;
+        this.bulkheadRejected = meterRegistry.counter("http.client.outbound.rejected", "service", service, "reason", "bulkhead");
+        this.circuitRejected = meterRegistry.counter("http.client.outbound.rejected", "service", service, "reason", "circuit-open");
+        meterRegistry.gauge("http.client.outbound.in-flight", Tags.of("service", service),
+                bulkhead, permits -> maxConcurrentCalls - permits.availablePermits());
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (!acquireBulkhead()) {
+            bulkheadRejected.increment();
+            throw new RejectedExecutionException(service + ": too many concurrent calls");
+        }
+
+        // Тело ответа дочитывается уже после освобождения места: bulkhead ограничивает ожидание ответа, а не разбор
+        try {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                circuitRejected.increment();
+                throw new RejectedExecutionException(service + ": circuit breaker is open");
+            }
+
+            long start = System.nanoTime();
+            String outcome = "IO_ERROR";
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                outcome = String.valueOf(response.getStatusCode().value());
+                if (response.getStatusCode().is5xxServerError()) {
+                    circuitBreaker.onFailure();
+                } else {
+                    circuitBreaker.onSuccess(); // 4xx - ошибка запроса, а не недоступность сервиса
+                }
+                return response;
+            } catch (IOException | RuntimeException e) {
+                circuitBreaker.onFailure();
+                throw e;
+            } finally {
+                timer(request, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private boolean acquireBulkhead() {
+        try {
+            return bulkhead.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Timer timer(HttpRequest request, String outcome) {
+        // Шаблон, а не фактический путь - иначе path-переменные раздуют число серий
+        Object template = request.getAttributes().get(URI_TEMPLATE_ATTRIBUTE);
+        String endpoint = request.getMethod().name() + " " + (template != null ? stripBaseUrl(template.toString()) : request.getURI().getPath());
+
+        return Timer.builder("http.client.outbound")
+                .tag("service", service)
+                .tag("endpoint", endpoint)
+                .tag("status", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /// Шаблон приходит вместе с baseUrl клиента: http://host:port/api/{id} -> /api/{id}
+    private static String stripBaseUrl(String template) {
+        int scheme = template.indexOf("://");
+        if (scheme < 0) {
+            return template;
+        }
+        int path = template.indexOf('/', scheme + 3);
+        return path < 0 ? "/" : template.substring(path);
+    }
+}
@@ -0,0 +1,227 @@
+package ru.nand.authservice.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/// Хэширование паролей BCrypt в отдельном пуле по числу ядер с ограниченной очередью, чтобы шторм логинов
+/// не занимал потоки Tomcat, нужные refresh и logout. Переполнение очереди или ожидание дольше timeout -
+/// RejectedExecutionException (вызывающий отвечает 503). Стоимость BCrypt подбирается под целевое время проверки при первом
+/// хэшировании, а не при старте: калибровка - один хэш со стоимостью 10, и платит за него первый вход, а не запуск сервиса.
+/// Перехэш после входа идет в отдельном однопоточном пуле с низким приоритетом и отбрасывается, если пул входов занят
+@Slf4j
+@Component
+public class PasswordHasher {
+    private static final int MIN_STRENGTH = 10;
+    private static final int MAX_STRENGTH = 16;
+
+    @Getter
+    private final PasswordEncoder passwordEncoder = new LazyPasswordEncoder(); // Для Spring Security, калибруется так же лениво
+    private final int configuredStrength;
+    private final Duration targetLatency;
+    private volatile BCryptPasswordEncoder bcrypt; // null - калибровка еще не проводилась
+    private volatile int strength;
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor rehashExecutor;
+    private final Duration timeout;
+    private final Timer queueTimer;
+    private final Timer matchesTimer;
+    private final Timer encodeTimer;
+    private final Counter rejected;
+    private final Counter rehashDropped;
+
+    @Autowired
+    public PasswordHasher(@Value("${password.hashing.strength:0}") int configuredStrength,
+                          @Value("${password.hashing.target-latency:PT0.1S}") Duration targetLatency,
+                          @Value("${password.hashing.threads:0}") int threads,
+                          @Value("${password.hashing.queue-capacity:64}") int queueCapacity,
+                          @Value("${password.hashing.timeout:PT2S}") Duration timeout,
+                          @Value("${password.hashing.rehash-queue-capacity:16}") int rehashQueueCapacity,
+                          MeterRegistry meterRegistry) {
+        this.configuredStrength = configuredStrength;
+        this.targetLatency = targetLatency;
+        this.timeout = timeout;
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.rehashExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(rehashQueueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-rehasher");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.queueTimer = meterRegistry.timer("password.hashing.queue");
+        this.matchesTimer = meterRegistry.timer("password.hashing.duration", "operation", "matches");
+        this.encodeTimer = meterRegistry.timer("password.hashing.duration", "operation", "encode");
+        this.rejected = meterRegistry.counter("password.hashing.rejected");
+        this.rehashDropped = meterRegistry.counter("password.hashing.rehash.dropped");
+        meterRegistry.gauge("password.hashing.queue.size", executor, pool -> pool.getQueue().size());
+
+        log.info("BCrypt: пул {} потоков, очередь {}", poolSize, queueCapacity);
+    }
+
+    /// Стоимость BCrypt (при первом обращении - калибровка)
+    public int getStrength() {
+        bcrypt();
+        return strength;
+    }
+
+    /// Проверка пароля в пуле хэширования
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return await(submit(matchesTimer, () -> bcrypt().matches(rawPassword, encodedPassword)));
+    }
+
+    /// Хэш пароля с текущей стоимостью в пуле хэширования
+    public String encode(String rawPassword) {
+        return await(submit(encodeTimer, () -> bcrypt().encode(rawPassword)));
+    }
+
+    /// Хэш сохранен с меньшей стоимостью. Только вверх: калибровка на более медленном железе не ослабляет сохраненные хэши
+    public boolean needsRehash(String encodedPassword) {
+        try {
+            return Integer.parseInt(encodedPassword.substring(4, 6)) < getStrength(); // $2a$NN$...
+        } catch (RuntimeException e) {
+            return false; // Не BCrypt-хэш, matches его все равно не примет
+        }
+    }
+
+    /// Фоновый перехэш пароля после успешного входа. Пул входов занят или очередь перехэша полна - перехэш
+    /// откладывается до следующего входа: он не должен отнимать ядра у проверок паролей
+    public void rehashAsync(String rawPassword, Consumer<String> onEncoded) {
+        if (executor.getActiveCount() >= executor.getMaximumPoolSize() || !executor.getQueue().isEmpty()) {
+            rehashDropped.increment();
+            log.debug("Пул хэширования занят, перехэш пароля отложен");
+            return;
+        }
+
+        try {
+            rehashExecutor.execute(() -> {
+                try {
+                    onEncoded.accept(encodeTimer.record(() -> bcrypt().encode(rawPassword)));
+                } catch (RuntimeException e) {
+                    log.warn("Не удалось сохранить перехэшированный пароль: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rehashDropped.increment();
+            log.debug("Очередь перехэша заполнена, перехэш пароля отложен");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        rehashExecutor.shutdown();
+    }
+
+    private BCryptPasswordEncoder bcrypt() {
+        BCryptPasswordEncoder encoder = bcrypt;
+        if (encoder == null) {
+            synchronized (this) {
+                if (bcrypt == null) {
+                    strength = configuredStrength > 0 ? configuredStrength : calibrate(targetLatency);
+                    bcrypt = new BCryptPasswordEncoder(strength);
+                    log.info("BCrypt: стоимость {}", strength);
+                }
+                encoder = bcrypt;
+            }
+        }
+        return encoder;
+    }
+
+    private <T> Future<T> submit(Timer operationTimer, Callable<T> task) {
+        long enqueuedAt = System.nanoTime();
+        try {
+            return executor.submit(() -> {
+                queueTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                return operationTimer.recordCallable(task);
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new RejectedExecutionException("Password hashing timed out in queue", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /// Стоимость, при которой проверка пароля укладывается в targetLatency на текущем железе.
+    /// Время BCrypt удваивается с каждой единицей стоимости, поэтому достаточно одного замера
+    static int calibrate(Duration targetLatency) {
+        String salt = BCrypt.gensalt(MIN_STRENGTH);
+        BCrypt.hashpw("calibration", BCrypt.gensalt(4)); // Прогрев
+
+        long start = System.nanoTime();
+        BCrypt.hashpw("calibration", salt);
+        long elapsed = Math.max(System.nanoTime() - start, 1L);
+
+        int extra = (int) Math.floor(Math.log((double) targetLatency.toNanos() / elapsed) / Math.log(2));
+        int calibrated = Math.clamp(MIN_STRENGTH + extra, MIN_STRENGTH, MAX_STRENGTH);
+        log.info("Калибровка BCrypt: стоимость {} - {} мс, выбрана стоимость {} под {} мс",
+                MIN_STRENGTH, TimeUnit.NANOSECONDS.toMillis(elapsed), calibrated, targetLatency.toMillis());
+        return calibrated;
+    }
+
+    /// Кодировщик для Spring Security поверх той же ленивой калибровки (в потоке вызывающего, без пула)
+    private class LazyPasswordEncoder implements PasswordEncoder {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return bcrypt().encode(rawPassword);
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return bcrypt().matches(rawPassword, encodedPassword);
+        }
+
+        @Override
+        public boolean upgradeEncoding(String encodedPassword) {
+            return needsRehash(encodedPassword);
+        }
+    }
+}
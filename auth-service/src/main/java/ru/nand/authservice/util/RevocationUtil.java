@@ -0,0 +1,45 @@
+package ru.nand.authservice.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import ru.nand.authservice.entity.UserSession;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HexFormat;
+
+@Slf4j
+@Component
+public class RevocationUtil {
+    public static final String REVOCATIONS_TOPIC = "session-revocations-topic";
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    public RevocationUtil(KafkaTemplate<String, String> kafkaTemplate) {
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    /// Публикация отзыва access токена сессии: ключ - хэш токена (для компакции), значение - истечение токена в epoch ms
+    public void publishRevocation(byte[] accessTokenHash, LocalDateTime accessTokenExpires) {
+        if (accessTokenHash == null || accessTokenExpires == null) {
+            return;
+        }
+
+        long expiresAtMillis = accessTokenExpires.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        try {
+            kafkaTemplate.send(REVOCATIONS_TOPIC, HexFormat.of().formatHex(accessTokenHash), String.valueOf(expiresAtMillis));
+        } catch (RuntimeException e) {
+            // Состояние сессии в auth-service уже изменено, остальные сервисы отсекут токен не позже его exp
+            log.warn("Не удалось опубликовать отзыв сессии: {}", e.getMessage());
+        }
+    }
+
+    /// Публикация отзывов всех переданных сессий
+    public void publishRevocations(Collection<UserSession> sessions) {
+        sessions.forEach(session -> publishRevocation(session.getAccessTokenHash(), session.getAccessTokenExpires()));
+    }
+}
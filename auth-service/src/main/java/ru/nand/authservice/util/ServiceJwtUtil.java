@@ -2,11 +2,13 @@ package ru.nand.authservice.util;
 
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
+import java.time.Duration;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -21,8 +23,17 @@ public class ServiceJwtUtil {
     @Value("${spring.application.name}")
     private String appName;
 
-    private Key getServiceSigningKey(){
-        return Keys.hmacShaKeyFor(serviceSecretKey.getBytes());
+    private Key serviceSigningKey;
+
+    /// Ключ создается один раз, а не на каждую подпись
+    @PostConstruct
+    private void init(){
+        this.serviceSigningKey = Keys.hmacShaKeyFor(serviceSecretKey.getBytes());
+    }
+
+    /// Срок жизни сервисного токена
+    public Duration getServiceExpiration(){
+        return Duration.ofMillis(serviceExpiration);
     }
 
     /// Генерация сервисного токена
@@ -43,7 +54,7 @@ public class ServiceJwtUtil {
                 .setSubject("auth-service")
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expirationTime))
-                .signWith(getServiceSigningKey())
+                .signWith(serviceSigningKey)
                 .compact();
     }
 
@@ -0,0 +1,119 @@
+package ru.nand.authservice.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+/// Сервисный JWT для исходящих запросов: подписывается один раз и переиспользуется, пока не подойдет срок обновления.
+/// Обновление - фоновая задача шедулера на renew-at доли срока жизни минус случайный jitter, чтобы инстансы не обновлялись разом.
+/// Вызывающие только читают volatile-ссылку и не ждут обновления. Если фоновое обновление почему-то не успело,
+/// токен переподписывается на месте (HMAC - микросекунды, без блокировок) уже за expiry-skew до exp:
+/// иначе токен мог бы истечь, пока запрос еще идет, и account-service ответил бы 401
+@Slf4j
+@Component
+public class ServiceTokenProvider implements ClientHttpRequestInterceptor {
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+    private static final Duration MIN_EXPIRY_SKEW = Duration.ofSeconds(5);
+    private static final double EXPIRY_SKEW_SHARE = 0.05;
+
+    private final ServiceJwtUtil serviceJwtUtil;
+    private final TaskScheduler taskScheduler;
+    private final Duration lifetime;
+    private final Duration expirySkew; // Запас до exp, в который токен уже не отдается
+    private final double renewAt;
+    private final double jitter;
+    private final Counter renewals;
+    private final Counter renewalFailures;
+
+    private volatile ServiceToken current;
+
+    record ServiceToken(String value, Instant expiresAt, Instant usableUntil) {
+        boolean isStale() {
+            return !Instant.now().isBefore(usableUntil);
+        }
+    }
+
+    @Autowired
+    public ServiceTokenProvider(ServiceJwtUtil serviceJwtUtil, TaskScheduler taskScheduler, MeterRegistry meterRegistry,
+                                @Value("${jwt.service.renew-at:0.75}") double renewAt,
+                                @Value("${jwt.service.renew-jitter:0.1}") double jitter) {
+        this.serviceJwtUtil = serviceJwtUtil;
+        this.taskScheduler = taskScheduler;
+        this.lifetime = serviceJwtUtil.getServiceExpiration();
+        this.expirySkew = expirySkew(lifetime);
+        this.renewAt = renewAt;
+        this.jitter = jitter;
+        this.renewals = meterRegistry.counter("service.token.renewals");
+        this.renewalFailures = meterRegistry.counter("service.token.renewal.failures");
+
+        this.current = mint();
+        scheduleRenewal();
+    }
+
+    /// Текущий сервисный токен
+    public String getToken() {
+        ServiceToken token = current;
+        if (token.isStale()) {
+            token = mint();
+            current = token;
+        }
+        return token.value();
+    }
+
+    /// Authorization: Bearer для каждого исходящего запроса, если вызывающий не задал свой
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (!request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION)) {
+            request.getHeaders().setBearerAuth(getToken());
+        }
+        return execution.execute(request, body);
+    }
+
+    void renew() {
+        try {
+            current = mint();
+            renewals.increment();
+            scheduleRenewal();
+        } catch (RuntimeException e) {
+            // Текущий токен еще действует, при неудаче до его истечения getToken переподпишет сам
+            renewalFailures.increment();
+            log.warn("Не удалось обновить сервисный токен, повтор через {} с: {}", RETRY_DELAY.toSeconds(), e.getMessage());
+            taskScheduler.schedule(this::renew, Instant.now().plus(RETRY_DELAY));
+        }
+    }
+
+    private void scheduleRenewal() {
+        long lifetimeMillis = lifetime.toMillis();
+        long spread = (long) (lifetimeMillis * jitter);
+        long delay = (long) (lifetimeMillis * renewAt) - (spread > 0 ? ThreadLocalRandom.current().nextLong(spread + 1) : 0);
+
+        taskScheduler.schedule(this::renew, Instant.now().plusMillis(Math.max(delay, 0)));
+    }
+
+    private ServiceToken mint() {
+        // Срок считается до подписи, поэтому не позже exp в самом токене
+        Instant expiresAt = Instant.now().plus(lifetime);
+        return new ServiceToken(serviceJwtUtil.generateServiceToken(), expiresAt, expiresAt.minus(expirySkew));
+    }
+
+    /// max(5 с, 5% срока жизни), но не больше половины срока - иначе короткоживущий токен переподписывался бы на каждый запрос
+    private static Duration expirySkew(Duration lifetime) {
+        Duration skew = Duration.ofMillis(Math.max(MIN_EXPIRY_SKEW.toMillis(), (long) (lifetime.toMillis() * EXPIRY_SKEW_SHARE)));
+        Duration half = lifetime.dividedBy(2);
+        return skew.compareTo(half) > 0 ? half : skew;
+    }
+}
@@ -0,0 +1,19 @@
+package ru.nand.authservice.util;
+
+import ru.nand.authservice.entity.dto.TokenResponse;
+
+import java.time.LocalDateTime;
+
+/// Пара токенов, выпущенная TokenPairMinter, вместе с их хэшами и сроками (в том виде, в каком они хранятся в сессии)
+public record TokenPair(String accessToken,
+                        String refreshToken,
+                        byte[] accessTokenHash,
+                        byte[] refreshTokenHash,
+                        LocalDateTime issuedAt,
+                        LocalDateTime accessTokenExpires,
+                        LocalDateTime refreshTokenExpires) {
+
+    public TokenResponse toTokenResponse() {
+        return new TokenResponse(accessToken, refreshToken);
+    }
+}
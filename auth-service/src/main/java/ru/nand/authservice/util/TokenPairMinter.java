@@ -0,0 +1,130 @@
+package ru.nand.authservice.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.SignatureAlgorithm;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.nand.authservice.entity.User;
+
+import javax.crypto.Mac;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/// Выпуск пары access/refresh токенов. Каждый токен подписывается ровно один раз: заголовок JWS закодирован заранее,
+/// HMAC переиспользуется потоком, общие claims (sub, role, email, user_id, iat) сериализуются один раз на пару
+/// с одним чтением часов. Вместе с токенами возвращаются их SHA-256 хэши для сессии.
+/// Формат совпадает с тем, что выпускает jjwt (compact JWS, iat/exp в секундах), проверка в сервисах не меняется
+@Component
+public class TokenPairMinter {
+    private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+
+    private final UserJwtUtil userJwtUtil;
+    private final ObjectMapper objectMapper;
+
+    @Value("${jwt.user.access.expiration}")
+    private long accessTokenExpiration;
+    @Value("${jwt.user.refresh.expiration}")
+    private long refreshTokenExpiration;
+
+    private String encodedHeader; // base64url({"alg":"HS..."}) - неизменен для ключа
+    private ThreadLocal<Mac> mac;
+    private Mac macPrototype; // Инициализирован ключом, только для clone() на виртуальных потоках
+
+    @Autowired
+    public TokenPairMinter(UserJwtUtil userJwtUtil, ObjectMapper objectMapper) {
+        this.userJwtUtil = userJwtUtil;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    private void init() {
+        Key key = userJwtUtil.getUserSigningKey();
+        SignatureAlgorithm algorithm = SignatureAlgorithm.forSigningKey(key); // Тот же выбор алгоритма по длине ключа, что и в jjwt
+
+        this.encodedHeader = BASE64URL.encodeToString(("{\"alg\":\"" + algorithm.getValue() + "\"}").getBytes(StandardCharsets.US_ASCII));
+        this.macPrototype = newMac(key, algorithm);
+        this.mac = ThreadLocal.withInitial(() -> newMac(key, algorithm));
+    }
+
+    /// Новая пара токенов пользователя
+    public TokenPair mint(User user) {
+        long now = System.currentTimeMillis();
+        String claimsBase = claimsBase(user, now / 1000);
+
+        String accessToken = sign(claimsBase, "access", (now + accessTokenExpiration) / 1000);
+        String refreshToken = sign(claimsBase, "refresh", (now + refreshTokenExpiration) / 1000);
+
+        return new TokenPair(
+                accessToken,
+                refreshToken,
+                userJwtUtil.hashToken(accessToken),
+                userJwtUtil.hashToken(refreshToken),
+                toLocalDateTime(now),
+                toLocalDateTime(now + accessTokenExpiration),
+                toLocalDateTime(now + refreshTokenExpiration));
+    }
+
+    /// Общие claims пары без закрывающей скобки: к ним дописываются тип токена, jti и exp
+    private String claimsBase(User user, long issuedAtSeconds) {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("sub", user.getUsername());
+        claims.put("role", user.getRole().name());
+        claims.put("email", user.getEmail());
+        claims.put("user_id", user.getId());
+        claims.put("iat", issuedAtSeconds);
+
+        try {
+            String json = objectMapper.writeValueAsString(claims);
+            return json.substring(0, json.length() - 1);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Token claims serialization error: " + e.getMessage());
+        }
+    }
+
+    private String sign(String claimsBase, String tokenType, long expiresAtSeconds) {
+        // jti - уникальность токена (и его хэша) даже при выдаче в одну секунду
+        String payload = claimsBase + ",\"token_type\":\"" + tokenType + "\",\"jti\":\"" + UUID.randomUUID() + "\",\"exp\":" + expiresAtSeconds + "}";
+        String signingInput = encodedHeader + "." + BASE64URL.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        byte[] signature = mac().doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+
+        return signingInput + "." + BASE64URL.encodeToString(signature);
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    /// HMAC с ключом: платформенный поток переиспользует свой экземпляр, виртуальному (один запрос) достается копия
+    /// прототипа - clone() копирует уже подготовленный ключ без повторной init
+    private Mac mac() {
+        if (!Thread.currentThread().isVirtual()) {
+            return mac.get();
+        }
+        try {
+            return (Mac) macPrototype.clone();
+        } catch (CloneNotSupportedException e) {
+            return newMac(userJwtUtil.getUserSigningKey(), SignatureAlgorithm.forSigningKey(userJwtUtil.getUserSigningKey()));
+        }
+    }
+
+    private static Mac newMac(Key key, SignatureAlgorithm algorithm) {
+        try {
+            Mac instance = Mac.getInstance(algorithm.getJcaName());
+            instance.init(key);
+            return instance;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialize " + algorithm.getJcaName(), e);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+-- Повторы сверки AccountProvisioner с экспоненциальной паузой: пользователь, которого account-service
+-- стабильно не принимает, не занимает каждую пачку сверки.
+-- provisioning_next_attempt_at NULL - повторов еще не было, пользователь идет в сверку первым
+ALTER TABLE users ADD COLUMN provisioning_attempts INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN provisioning_next_attempt_at TIMESTAMP;
+
+DROP INDEX IF EXISTS users_unprovisioned_idx;
+CREATE INDEX users_unprovisioned_idx ON users (provisioning_next_attempt_at NULLS FIRST, registration_date, id) WHERE account_provisioned_at IS NULL;
@@ -0,0 +1,4 @@
+-- Захват строк outbox релеем на время публикации (см. NotificationOutboxRelay): транзакция с FOR UPDATE SKIP LOCKED
+-- только помечает пачку, ожидание подтверждений брокера идет без открытой транзакции.
+-- NULL - строка свободна, истекший срок - релей, захвативший строку, не завершил публикацию
+ALTER TABLE notification_outbox ADD COLUMN claimed_until TIMESTAMP;
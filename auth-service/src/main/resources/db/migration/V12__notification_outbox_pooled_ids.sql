@@ -0,0 +1,3 @@
+-- id outbox выдаются блоками по 50 (pooled-оптимизатор Hibernate), чтобы вставки пачки уведомлений
+-- уходили в JDBC batch: с IDENTITY каждая строка требует отдельного INSERT ... RETURNING
+ALTER SEQUENCE notification_outbox_id_seq INCREMENT BY 50;
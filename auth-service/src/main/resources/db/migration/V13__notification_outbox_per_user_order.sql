@@ -0,0 +1,5 @@
+-- Публикация outbox по порядку создания внутри получателя (см. NotificationOutboxRelay). id из пула последовательности
+-- (V12) выдаются инстансам блоками и порядка записи между инстансами не отражают, поэтому порядок - (created_at, id).
+-- Второй индекс - проверка, нет ли у получателя более раннего уведомления, которое еще публикуется
+CREATE INDEX notification_outbox_created_idx ON notification_outbox (created_at, id);
+CREATE INDEX notification_outbox_user_created_idx ON notification_outbox (user_email, created_at, id);
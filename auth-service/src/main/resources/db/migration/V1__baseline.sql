@@ -0,0 +1,30 @@
+-- Исходная схема в том виде, в каком ее создавал Hibernate (ddl-auto), включая IDENTITY-столбцы id.
+-- Для существующей БД пропускается через baseline, поэтому обе ветки проходят одинаковые последующие миграции
+CREATE TABLE users
+(
+    id                BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    email             VARCHAR(255) UNIQUE,
+    is_blocked        BOOLEAN,
+    password          VARCHAR(255),
+    registration_date TIMESTAMP(6),
+    role              VARCHAR(255) CHECK (role IN ('ROLE_USER', 'ROLE_ADMIN', 'ROLE_MANAGER')),
+    username          VARCHAR(255) UNIQUE,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE sessions
+(
+    id                    BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    access_token_expires  TIMESTAMP(6),
+    access_token_hash     TEXT,
+    last_activity_time    TIMESTAMP(6),
+    refresh_token_expires TIMESTAMP(6),
+    refresh_token_hash    TEXT,
+    session_creation_time TIMESTAMP(6),
+    status                VARCHAR(255) CHECK (status IN ('ACTIVE', 'INACTIVE', 'REVOKED', 'BLOCKED')),
+    user_id               BIGINT,
+    PRIMARY KEY (id)
+);
+
+ALTER TABLE IF EXISTS sessions
+    ADD CONSTRAINT FKruie73rneumyyd1bgo6qw8vjt FOREIGN KEY (user_id) REFERENCES users;
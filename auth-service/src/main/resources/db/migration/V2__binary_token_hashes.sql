@@ -0,0 +1,17 @@
+-- Хэши токенов: hex TEXT (64 символа) -> бинарный SHA-256 (32 байта)
+ALTER TABLE sessions
+    ALTER COLUMN access_token_hash TYPE bytea USING decode(access_token_hash, 'hex'),
+    ALTER COLUMN refresh_token_hash TYPE bytea USING decode(refresh_token_hash, 'hex');
+
+ALTER TABLE sessions
+    ADD CONSTRAINT sessions_access_token_hash_length CHECK (octet_length(access_token_hash) = 32),
+    ADD CONSTRAINT sessions_refresh_token_hash_length CHECK (octet_length(refresh_token_hash) = 32);
+
+-- Токены, выданные в одну секунду, раньше совпадали - оставляем самую новую сессию с таким хэшем
+DELETE FROM sessions s
+    USING sessions newer
+    WHERE s.id < newer.id
+      AND (s.access_token_hash = newer.access_token_hash OR s.refresh_token_hash = newer.refresh_token_hash);
+
+CREATE UNIQUE INDEX sessions_access_token_hash_uidx ON sessions (access_token_hash);
+CREATE UNIQUE INDEX sessions_refresh_token_hash_uidx ON sessions (refresh_token_hash);
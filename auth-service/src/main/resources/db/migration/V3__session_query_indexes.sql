@@ -0,0 +1,9 @@
+-- Индексы под запросы UserSessionRepository (поиск по хэшам покрыт уникальными индексами из V2)
+
+-- findByUserAndStatus
+CREATE INDEX IF NOT EXISTS sessions_user_id_status_idx ON sessions (user_id, status);
+
+-- findByStatusAndLastActivityTimeBefore: шедулеры выбирают по одному статусу, поэтому частичные индексы меньше составного
+CREATE INDEX IF NOT EXISTS sessions_active_last_activity_idx ON sessions (last_activity_time) WHERE status = 'ACTIVE';
+CREATE INDEX IF NOT EXISTS sessions_inactive_last_activity_idx ON sessions (last_activity_time) WHERE status = 'INACTIVE';
+CREATE INDEX IF NOT EXISTS sessions_revoked_last_activity_idx ON sessions (last_activity_time) WHERE status = 'REVOKED';
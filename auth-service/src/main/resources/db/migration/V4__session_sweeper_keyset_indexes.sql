@@ -0,0 +1,9 @@
+-- Шедулеры идут порциями по (last_activity_time, id): id в частичных индексах дает ключ пагинации без сортировки
+CREATE INDEX IF NOT EXISTS sessions_active_sweep_idx ON sessions (last_activity_time, id) WHERE status = 'ACTIVE';
+CREATE INDEX IF NOT EXISTS sessions_inactive_sweep_idx ON sessions (last_activity_time, id) WHERE status = 'INACTIVE';
+CREATE INDEX IF NOT EXISTS sessions_revoked_sweep_idx ON sessions (last_activity_time, id) WHERE status = 'REVOKED';
+
+-- Новые индексы покрывают и findByStatusAndLastActivityTimeBefore
+DROP INDEX IF EXISTS sessions_active_last_activity_idx;
+DROP INDEX IF EXISTS sessions_inactive_last_activity_idx;
+DROP INDEX IF EXISTS sessions_revoked_last_activity_idx;
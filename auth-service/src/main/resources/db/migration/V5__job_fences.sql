@@ -0,0 +1,6 @@
+-- Fencing tokens аренд фоновых задач (см. JobLeaseManager)
+CREATE TABLE job_fences
+(
+    lease VARCHAR(255) PRIMARY KEY,
+    token BIGINT NOT NULL
+);
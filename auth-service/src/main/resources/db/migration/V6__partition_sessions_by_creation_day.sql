@@ -0,0 +1,68 @@
+-- sessions -> декларативное секционирование по дню создания сессии (session_creation_time не меняется, строки не переезжают).
+-- Будущие секции создает и пустые старые удаляет SessionPartitionManager, sessions_default страхует вставку вне диапазона
+ALTER TABLE sessions RENAME TO sessions_legacy;
+ALTER INDEX sessions_pkey RENAME TO sessions_legacy_pkey;
+-- Hibernate (ddl-auto) создавал id как IDENTITY, а последовательность IDENTITY нельзя отвязать от столбца.
+-- Поэтому IDENTITY снимается вместе со своей последовательностью и заменяется отдельной, начиная после max(id)
+ALTER TABLE sessions_legacy ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE sessions_legacy ALTER COLUMN id DROP DEFAULT;
+DROP SEQUENCE IF EXISTS sessions_id_seq;
+CREATE SEQUENCE sessions_id_seq;
+SELECT setval('sessions_id_seq', COALESCE((SELECT max(id) FROM sessions_legacy), 0) + 1, false);
+
+-- Раньше JPA-хранилище не заполняло время создания
+UPDATE sessions_legacy
+SET session_creation_time = COALESCE(last_activity_time, now())
+WHERE session_creation_time IS NULL;
+
+CREATE TABLE sessions
+(
+    id                    BIGINT       NOT NULL DEFAULT nextval('sessions_id_seq'),
+    access_token_hash     BYTEA,
+    refresh_token_hash    BYTEA,
+    access_token_expires  TIMESTAMP(6),
+    refresh_token_expires TIMESTAMP(6),
+    session_creation_time TIMESTAMP(6) NOT NULL,
+    last_activity_time    TIMESTAMP(6),
+    status                VARCHAR(255) CHECK (status IN ('ACTIVE', 'INACTIVE', 'REVOKED', 'BLOCKED')),
+    user_id               BIGINT REFERENCES users (id),
+    PRIMARY KEY (id, session_creation_time),
+    CONSTRAINT sessions_access_token_hash_length CHECK (octet_length(access_token_hash) = 32),
+    CONSTRAINT sessions_refresh_token_hash_length CHECK (octet_length(refresh_token_hash) = 32)
+) PARTITION BY RANGE (session_creation_time);
+
+ALTER SEQUENCE sessions_id_seq OWNED BY sessions.id;
+
+CREATE TABLE sessions_default PARTITION OF sessions DEFAULT;
+
+DO
+$$
+    DECLARE
+        day DATE;
+    BEGIN
+        FOR day IN SELECT generate_series(COALESCE((SELECT min(session_creation_time)::date FROM sessions_legacy), current_date),
+                                          current_date + 7, INTERVAL '1 day')::date
+            LOOP
+                EXECUTE format('CREATE TABLE sessions_%s PARTITION OF sessions FOR VALUES FROM (%L) TO (%L)',
+                               to_char(day, 'YYYYMMDD'), day, day + 1);
+            END LOOP;
+    END
+$$;
+
+INSERT INTO sessions (id, access_token_hash, refresh_token_hash, access_token_expires, refresh_token_expires,
+                      session_creation_time, last_activity_time, status, user_id)
+SELECT id, access_token_hash, refresh_token_hash, access_token_expires, refresh_token_expires,
+       session_creation_time, last_activity_time, status, user_id
+FROM sessions_legacy;
+
+DROP TABLE sessions_legacy;
+
+-- Уникальный индекс секционированной таблицы обязан включать ключ секционирования.
+-- Глобальную уникальность хэшей обеспечивает jti токена, поиск по хэшу проходит индексы всех секций
+CREATE UNIQUE INDEX sessions_access_token_hash_uidx ON sessions (access_token_hash, session_creation_time);
+CREATE UNIQUE INDEX sessions_refresh_token_hash_uidx ON sessions (refresh_token_hash, session_creation_time);
+
+CREATE INDEX sessions_user_id_status_idx ON sessions (user_id, status);
+CREATE INDEX sessions_active_sweep_idx ON sessions (last_activity_time, id) WHERE status = 'ACTIVE';
+CREATE INDEX sessions_inactive_sweep_idx ON sessions (last_activity_time, id) WHERE status = 'INACTIVE';
+CREATE INDEX sessions_revoked_sweep_idx ON sessions (last_activity_time, id) WHERE status = 'REVOKED';
@@ -0,0 +1,9 @@
+-- Transactional outbox уведомлений (см. NotificationUtil, NotificationOutboxRelay).
+-- Строка пишется в транзакции изменения, релей публикует ее в auth-notifications-topic и удаляет
+CREATE TABLE notification_outbox
+(
+    id         BIGSERIAL PRIMARY KEY,
+    user_email VARCHAR(255) NOT NULL,
+    message    TEXT         NOT NULL,
+    created_at TIMESTAMP    NOT NULL DEFAULT now()
+);
@@ -0,0 +1,7 @@
+-- Асинхронное создание аккаунта в account-service (см. AccountProvisioner).
+-- NULL - подтверждение от account-service еще не пришло, такие строки переотправляет сверка.
+-- Существующие пользователи создавались синхронным запросом и считаются созданными
+ALTER TABLE users ADD COLUMN account_provisioned_at TIMESTAMP;
+UPDATE users SET account_provisioned_at = COALESCE(registration_date, now());
+
+CREATE INDEX IF NOT EXISTS users_unprovisioned_idx ON users (registration_date, id) WHERE account_provisioned_at IS NULL;
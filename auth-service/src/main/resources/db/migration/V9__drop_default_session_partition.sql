@@ -0,0 +1,27 @@
+-- DETACH PARTITION CONCURRENTLY недоступен при наличии DEFAULT секции, поэтому sessions_default убирается.
+-- Ее строки переезжают в дневные секции, вставку на будущие дни страхует SessionPartitionManager (premake-days)
+ALTER TABLE sessions DETACH PARTITION sessions_default;
+ALTER TABLE sessions_default RENAME TO sessions_orphaned;
+
+DO
+$$
+    DECLARE
+        day DATE;
+    BEGIN
+        FOR day IN SELECT DISTINCT session_creation_time::date FROM sessions_orphaned
+            LOOP
+                IF to_regclass(format('sessions_%s', to_char(day, 'YYYYMMDD'))) IS NULL THEN
+                    EXECUTE format('CREATE TABLE sessions_%s PARTITION OF sessions FOR VALUES FROM (%L) TO (%L)',
+                                   to_char(day, 'YYYYMMDD'), day, day + 1);
+                END IF;
+            END LOOP;
+    END
+$$;
+
+INSERT INTO sessions (id, access_token_hash, refresh_token_hash, access_token_expires, refresh_token_expires,
+                      session_creation_time, last_activity_time, status, user_id)
+SELECT id, access_token_hash, refresh_token_hash, access_token_expires, refresh_token_expires,
+       session_creation_time, last_activity_time, status, user_id
+FROM sessions_orphaned;
+
+DROP TABLE sessions_orphaned;
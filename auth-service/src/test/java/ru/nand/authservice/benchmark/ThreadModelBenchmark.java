@@ -0,0 +1,136 @@
+package ru.nand.authservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.nand.authservice.entity.ENUMS.ROLE;
+import ru.nand.authservice.entity.User;
+import ru.nand.authservice.util.TokenPair;
+import ru.nand.authservice.util.TokenPairMinter;
+import ru.nand.authservice.util.UserJwtUtil;
+import ru.nand.authservice.util.VerifiedTokenCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/// Потолок конкурентности и p99 обработки запроса: пул платформенных потоков размера Tomcat по умолчанию (200)
+/// против виртуального потока на запрос. Запрос - выпуск пары токенов (реальный код) и три блокирующих
+/// обращения по 5 мс (Postgres, Redis, Kafka), как при логине. Вариант virtual-pinned блокируется внутри synchronized,
+/// как SMTPTransport без пула mail.executor: carrier-потоки закрепляются, и потолок падает до числа ядер.
+/// Клиенты в замкнутом цикле: каждый отправляет следующий запрос после ответа на предыдущий.
+/// Запуск: main из IDE или mvn test-compile exec:java с classpath тестов
+public class ThreadModelBenchmark {
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final int BLOCKING_CALLS = 3;
+    private static final long BLOCKING_CALL_MILLIS = 5;
+    private static final Duration WARMUP = Duration.ofSeconds(2);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(5);
+
+    private final TokenPairMinter tokenPairMinter;
+    private final UserJwtUtil userJwtUtil;
+    private final User user;
+
+    public ThreadModelBenchmark() {
+        userJwtUtil = new UserJwtUtil(new VerifiedTokenCache(1000, Duration.ofMinutes(5), new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(userJwtUtil, "userSecretKey", "0123456789abcdef0123456789abcdef0123456789abcdef");
+        ReflectionTestUtils.invokeMethod(userJwtUtil, "init");
+
+        tokenPairMinter = new TokenPairMinter(userJwtUtil, new ObjectMapper());
+        ReflectionTestUtils.setField(tokenPairMinter, "accessTokenExpiration", 900_000L);
+        ReflectionTestUtils.setField(tokenPairMinter, "refreshTokenExpiration", 86_400_000L);
+        ReflectionTestUtils.invokeMethod(tokenPairMinter, "init");
+
+        user = User.builder().id(42L).username("alice").email("alice@example.com").role(ROLE.ROLE_USER).build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        ThreadModelBenchmark benchmark = new ThreadModelBenchmark();
+        int[] concurrencyLevels = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray() : new int[]{100, 500, 2000};
+
+        System.out.printf("%-15s %8s %12s %10s %10s%n", "mode", "clients", "req/s", "p50 ms", "p99 ms");
+        for (int clients : concurrencyLevels) {
+            benchmark.run("platform-200", clients, () -> Executors.newFixedThreadPool(TOMCAT_MAX_THREADS), false);
+            benchmark.run("virtual", clients, Executors::newVirtualThreadPerTaskExecutor, false);
+            benchmark.run("virtual-pinned", clients, Executors::newVirtualThreadPerTaskExecutor, true);
+        }
+    }
+
+    private void run(String mode, int clients, Supplier<ExecutorService> server, boolean pinned) throws Exception {
+        try (ExecutorService executor = server.get()) {
+            measure(executor, clients, pinned, WARMUP);
+            long[] latencies = measure(executor, clients, pinned, MEASUREMENT);
+
+            Arrays.sort(latencies);
+            System.out.printf("%-15s %8d %12.0f %10.1f %10.1f%n", mode, clients,
+                    latencies.length / (double) MEASUREMENT.toSeconds(),
+                    percentile(latencies, 0.50), percentile(latencies, 0.99));
+        }
+    }
+
+    /// Задержки всех запросов, завершенных за duration, в наносекундах
+    private long[] measure(ExecutorService executor, int clients, boolean pinned, Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<long[]>> results = new ArrayList<>(clients);
+
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                results.add(clientThreads.submit(() -> {
+                    Object monitor = new Object(); // Свой у клиента: без конкуренции, но и без элиминации блокировки JIT'ом
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        executor.submit(() -> handleRequest(pinned ? monitor : null)).get();
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - start;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+        }
+
+        return results.stream().map(ThreadModelBenchmark::join).flatMapToLong(Arrays::stream).toArray();
+    }
+
+    /// monitor != null - блокирующие вызовы внутри synchronized
+    private TokenPair handleRequest(Object monitor) throws InterruptedException {
+        TokenPair tokens = tokenPairMinter.mint(user);
+        userJwtUtil.hashToken(tokens.accessToken());
+
+        for (int i = 0; i < BLOCKING_CALLS; i++) {
+            if (monitor != null) {
+                synchronized (monitor) {
+                    Thread.sleep(BLOCKING_CALL_MILLIS);
+                }
+            } else {
+                Thread.sleep(BLOCKING_CALL_MILLIS);
+            }
+        }
+        return tokens;
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static long[] join(Future<long[]> future) {
+        try {
+            return future.get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package ru.nand.authservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.nand.authservice.entity.ENUMS.ROLE;
+import ru.nand.authservice.entity.User;
+import ru.nand.authservice.util.TokenPairMinter;
+import ru.nand.authservice.util.UserJwtUtil;
+import ru.nand.authservice.util.VerifiedTokenCache;
+
+import java.security.Key;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/// Выпуск пары токенов при логине/refresh: TokenPairMinter против прежнего пути
+/// (каждый токен отдельно через JwtBuilder, затем отдельное хэширование каждого токена).
+/// Запуск: main из IDE или mvn test-compile exec:java с classpath тестов
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class TokenPairMinterBenchmark {
+    private static final long ACCESS_EXPIRATION = 900_000L;
+    private static final long REFRESH_EXPIRATION = 86_400_000L;
+    private static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private UserJwtUtil userJwtUtil;
+    private Key signingKey;
+    private TokenPairMinter tokenPairMinter;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        userJwtUtil = new UserJwtUtil(new VerifiedTokenCache(1000, Duration.ofMinutes(5), new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(userJwtUtil, "userSecretKey", SECRET);
+        ReflectionTestUtils.invokeMethod(userJwtUtil, "init");
+        signingKey = Keys.hmacShaKeyFor(SECRET.getBytes());
+
+        tokenPairMinter = new TokenPairMinter(userJwtUtil, new ObjectMapper());
+        ReflectionTestUtils.setField(tokenPairMinter, "accessTokenExpiration", ACCESS_EXPIRATION);
+        ReflectionTestUtils.setField(tokenPairMinter, "refreshTokenExpiration", REFRESH_EXPIRATION);
+        ReflectionTestUtils.invokeMethod(tokenPairMinter, "init");
+
+        user = User.builder()
+                .id(42L)
+                .username("benchmark-user")
+                .email("benchmark@example.com")
+                .role(ROLE.ROLE_USER)
+                .build();
+    }
+
+    @Benchmark
+    public Object minter() {
+        return tokenPairMinter.mint(user);
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        String accessToken = legacyToken("access", ACCESS_EXPIRATION);
+        String refreshToken = legacyToken("refresh", REFRESH_EXPIRATION);
+        blackhole.consume(userJwtUtil.hashToken(accessToken));
+        blackhole.consume(userJwtUtil.hashToken(refreshToken));
+    }
+
+    /// Прежний выпуск токена: claims в HashMap и полная сборка через JwtBuilder
+    private String legacyToken(String tokenType, long expirationTime) {
+        Map<String, Object> claims = new HashMap<>();
+
+        claims.put("role", user.getRole().name());
+        claims.put("email", user.getEmail());
+        claims.put("token_type", tokenType);
+        claims.put("user_id", user.getId());
+
+        return Jwts.builder()
+                .setClaims(claims)
+                .setSubject(user.getUsername())
+                .setId(UUID.randomUUID().toString())
+                .setIssuedAt(new Date(System.currentTimeMillis()))
+                .setExpiration(new Date(System.currentTimeMillis() + expirationTime))
+                .signWith(signingKey)
+                .compact();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TokenPairMinterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
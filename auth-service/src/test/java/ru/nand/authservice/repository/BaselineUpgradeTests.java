@@ -0,0 +1,86 @@
+package ru.nand.authservice.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/// Обновление БД, которую создавал Hibernate (ddl-auto): baseline на версии 1 и все последующие миграции.
+/// Чистая установка (схема fresh) должна прийти к той же схеме
+@Testcontainers(disabledWithoutDocker = true)
+class BaselineUpgradeTests {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void upgrade() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()));
+
+        // DDL Hibernate 6 для исходных сущностей User и UserSession
+        jdbcTemplate.execute("create table users (id bigint generated by default as identity, email varchar(255) unique, is_blocked boolean,"
+                + " password varchar(255), registration_date timestamp(6), role varchar(255) check (role in ('ROLE_USER','ROLE_ADMIN','ROLE_MANAGER')),"
+                + " username varchar(255) unique, primary key (id))");
+        jdbcTemplate.execute("create table sessions (id bigint generated by default as identity, access_token_expires timestamp(6),"
+                + " access_token_hash TEXT, last_activity_time timestamp(6), refresh_token_expires timestamp(6), refresh_token_hash TEXT,"
+                + " session_creation_time timestamp(6), status varchar(255) check (status in ('ACTIVE','INACTIVE','REVOKED','BLOCKED')),"
+                + " user_id bigint, primary key (id))");
+        jdbcTemplate.execute("alter table if exists sessions add constraint FKruie73rneumyyd1bgo6qw8vjt foreign key (user_id) references users");
+
+        jdbcTemplate.update("INSERT INTO users (username, email, password, role, is_blocked, registration_date) VALUES ('user', 'user@example.com', 'x', 'ROLE_USER', false, now())");
+        for (int i = 1; i <= 3; i++) {
+            jdbcTemplate.update("INSERT INTO sessions (access_token_hash, refresh_token_hash, session_creation_time, last_activity_time, status, user_id)"
+                    + " VALUES (repeat(?, 32), repeat(?, 32), now() - make_interval(days => ?), now(), 'ACTIVE', 1)", "a" + i, "b" + i, i);
+        }
+
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .schemas("fresh")
+                .load()
+                .migrate();
+    }
+
+    @Test
+    void sessionsSurviveRepartitioning() {
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT count(*) FROM sessions WHERE id <= 3", Integer.class));
+        assertEquals(32, jdbcTemplate.queryForObject("SELECT max(octet_length(access_token_hash)) FROM sessions", Integer.class));
+        assertTrue(jdbcTemplate.queryForObject("SELECT relkind = 'p' FROM pg_class WHERE oid = 'sessions'::regclass", Boolean.class));
+    }
+
+    @Test
+    void newSessionIdsContinueAfterExistingOnes() {
+        Long id = jdbcTemplate.queryForObject("INSERT INTO sessions (session_creation_time, status, user_id) VALUES (now(), 'ACTIVE', 1) RETURNING id", Long.class);
+
+        assertTrue(id > 3);
+        assertEquals(id, jdbcTemplate.queryForObject("SELECT max(id) FROM sessions", Long.class));
+    }
+
+    @Test
+    void freshInstallEndsWithTheSameSchema() {
+        assertEquals(columns("fresh"), columns("public"));
+    }
+
+    private static List<String> columns(String schema) {
+        return jdbcTemplate.queryForList("SELECT concat_ws(' ', table_name, column_name, data_type, is_nullable, is_identity,"
+                + " replace(column_default, ?, '')) FROM information_schema.columns"
+                + " WHERE table_schema = ? AND table_name IN ('users', 'sessions', 'notification_outbox', 'job_fences')"
+                + " ORDER BY table_name, column_name", String.class, schema + ".", schema);
+    }
+}
@@ -0,0 +1,53 @@
+package ru.nand.authservice.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/// Выдача и продвижение fencing token на схеме из миграций: устаревший держатель аренды получает 0
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class JobFenceRepositoryTests {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private JobFenceRepository jobFenceRepository;
+
+    @Test
+    void advanceRejectsStaleToken() {
+        assertEquals(1, jobFenceRepository.advance("job:0", 5));
+        assertEquals(1, jobFenceRepository.advance("job:0", 5)); // Тот же держатель, следующая порция
+        assertEquals(1, jobFenceRepository.advance("job:0", 7)); // Аренда перешла новому держателю
+
+        assertEquals(0, jobFenceRepository.advance("job:0", 5));
+        assertEquals(1, jobFenceRepository.advance("job:1", 5)); // Токены шардов независимы
+        assertEquals(7L, jobFenceRepository.findById("job:0").orElseThrow().getToken());
+    }
+
+    @Test
+    void issueContinuesAfterStoredToken() {
+        assertEquals(1L, jobFenceRepository.issue("job:2"));
+        assertEquals(1, jobFenceRepository.advance("job:2", 9)); // Токен, выданный до переноса счетчика из Redis
+
+        assertEquals(10L, jobFenceRepository.issue("job:2"));
+        assertEquals(0, jobFenceRepository.advance("job:2", 9));
+    }
+}
@@ -0,0 +1,85 @@
+package ru.nand.authservice.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/// Планы запросов UserSessionRepository/UserRepository на схеме из миграций не должны содержать Seq Scan.
+/// enable_seqscan=off заставляет планировщик выбрать индекс, если подходящий вообще существует
+@Testcontainers(disabledWithoutDocker = true)
+class SessionQueryPlanTests {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .load()
+                .migrate();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            // findByUserAndStatus
+            "SELECT * FROM sessions WHERE user_id = 1 AND status = 'ACTIVE'",
+            // findByAccessTokenHash / findByRefreshTokenHash
+            "SELECT * FROM sessions WHERE access_token_hash = decode(repeat('ab', 32), 'hex')",
+            "SELECT * FROM sessions WHERE refresh_token_hash = decode(repeat('ab', 32), 'hex')",
+            // findByStatusAndLastActivityTimeBefore для каждого шедулера
+            "SELECT * FROM sessions WHERE status = 'ACTIVE' AND last_activity_time < now()",
+            "SELECT * FROM sessions WHERE status = 'INACTIVE' AND last_activity_time < now()",
+            "SELECT * FROM sessions WHERE status = 'REVOKED' AND last_activity_time < now()",
+            // lockSweepCandidates: порция шедулера по ключу (last_activity_time, id)
+            "SELECT id FROM sessions WHERE status = 'ACTIVE' AND last_activity_time < now()"
+                    + " AND (last_activity_time, id) > ('1970-01-01', 0) ORDER BY last_activity_time, id LIMIT 1000 FOR UPDATE SKIP LOCKED",
+            // summarizeByUserId
+            "SELECT count(s.id) FILTER (WHERE s.status = 'ACTIVE'), count(s.id) FILTER (WHERE s.status = 'BLOCKED'), u.is_blocked"
+                    + " FROM users u LEFT JOIN sessions s ON s.user_id = u.id AND s.status IN ('ACTIVE', 'BLOCKED') WHERE u.id = 1 GROUP BY u.id",
+            // NotificationOutboxRepository.lockBatch
+            "SELECT * FROM notification_outbox n WHERE abs(mod(hashtext(n.user_email), 1)) = 0 AND (n.claimed_until IS NULL OR n.claimed_until < now())"
+                    + " AND NOT EXISTS (SELECT 1 FROM notification_outbox earlier WHERE earlier.user_email = n.user_email"
+                    + " AND (earlier.created_at, earlier.id) < (n.created_at, n.id) AND earlier.claimed_until >= now())"
+                    + " ORDER BY n.created_at, n.id LIMIT 500 FOR UPDATE SKIP LOCKED",
+            // UserRepository.findUnprovisioned
+            "SELECT * FROM users WHERE account_provisioned_at IS NULL AND registration_date < now()"
+                    + " AND (provisioning_next_attempt_at IS NULL OR provisioning_next_attempt_at <= now())"
+                    + " ORDER BY provisioning_next_attempt_at NULLS FIRST, registration_date, id LIMIT 500",
+            // findByUsername / findByEmail
+            "SELECT * FROM users WHERE username = 'user'",
+            "SELECT * FROM users WHERE email = 'user@example.com'"
+    })
+    void hotQueriesUseIndexes(String query) throws SQLException {
+        String plan = explain(query);
+
+        assertFalse(plan.contains("Seq Scan"), () -> "Sequential scan in plan of " + query + ":\n" + plan);
+    }
+
+    private static String explain(String query) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute("SET enable_seqscan = off");
+
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet resultSet = statement.executeQuery("EXPLAIN " + query)) {
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ru.nand.authservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import ru.nand.authservice.entity.User;
+import ru.nand.authservice.entity.dto.UserRegisteredEvent;
+import ru.nand.authservice.repository.UserRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/// Асинхронное создание аккаунта через StandInAccountConsumer вместо account-service
+class AccountProvisionerTests {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private UserRepository userRepository;
+    private KafkaTemplate<String, String> kafkaTemplate;
+    private JobLeaseManager jobLeaseManager;
+    private StandInAccountConsumer standIn;
+    private User user;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        kafkaTemplate = mock(KafkaTemplate.class);
+        jobLeaseManager = mock(JobLeaseManager.class);
+        standIn = new StandInAccountConsumer();
+
+        user = User.builder().id(42L).username("alice").email("alice@example.com").password("$2a$10$hash")
+                .registrationDate(LocalDateTime.now().minusMinutes(10)).build();
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user));
+        when(userRepository.findById(42L)).thenReturn(Optional.of(user));
+        when(kafkaTemplate.send(anyString(), anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void duplicateDeliveryCreatesOneAccountAndConfirmsIdempotently() throws Exception {
+        AccountProvisioner provisioner = provisioner("async");
+        when(userRepository.markAccountProvisioned(eq(42L), any())).thenReturn(1, 0);
+
+        provisioner.requestProvisioning("alice");
+        String event = sentEvents().getFirst();
+
+        // Повторная доставка того же события
+        provisioner.handleAccountProvisioned(record(standIn.handle(event)));
+        provisioner.handleAccountProvisioned(record(standIn.handle(event)));
+
+        assertEquals(1, standIn.accountCount());
+        verify(userRepository, times(2)).markAccountProvisioned(eq(42L), any());
+        assertFalse(objectMapper.readTree(event).has("password")); // Учетные данные не покидают auth-service
+    }
+
+    @Test
+    void reconcileRepublishesWithSameEventId() throws Exception {
+        AccountProvisioner provisioner = provisioner("async");
+        when(jobLeaseManager.acquire(anyString(), anyInt())).thenReturn(Optional.of(new JobLease("account-provisioning-reconcile", 0, 1, 1L)));
+        when(userRepository.findUnprovisioned(any(), any(), anyInt())).thenReturn(List.of(user));
+
+        provisioner.requestProvisioning("alice");
+        provisioner.reconcile();
+
+        List<String> events = sentEvents();
+        assertEquals(2, events.size());
+        assertEquals(objectMapper.readValue(events.get(0), UserRegisteredEvent.class).getEventId(),
+                objectMapper.readValue(events.get(1), UserRegisteredEvent.class).getEventId());
+        verify(userRepository).scheduleProvisioningRetry(eq(List.of(42L)), any(), eq(300.0), eq(21600.0));
+        verify(jobLeaseManager).release(any());
+    }
+
+    @Test
+    void syncModeDoesNotReconcile() {
+        provisioner("sync").reconcile();
+
+        verify(jobLeaseManager, never()).acquire(anyString(), anyInt());
+        verify(userRepository, never()).findUnprovisioned(any(), any(), anyInt());
+    }
+
+    @Test
+    void syncRequestCarriesTheSameContractAsEvent() throws Exception {
+        provisioner("async").requestProvisioning("alice");
+
+        assertEquals(objectMapper.readValue(sentEvents().getFirst(), UserRegisteredEvent.class),
+                provisioner("sync").registration("alice"));
+    }
+
+    private AccountProvisioner provisioner(String mode) {
+        return new AccountProvisioner(userRepository, kafkaTemplate, objectMapper, jobLeaseManager, new SimpleMeterRegistry(),
+                mode, Duration.ofMinutes(5), 500, Duration.ofHours(6));
+    }
+
+    private List<String> sentEvents() {
+        ArgumentCaptor<String> values = ArgumentCaptor.forClass(String.class);
+        verify(kafkaTemplate, atLeastOnce()).send(eq(AccountProvisioner.USER_REGISTERED_TOPIC), eq("42"), values.capture());
+        return values.getAllValues();
+    }
+
+    private static ConsumerRecord<String, String> record(String value) {
+        return new ConsumerRecord<>(AccountProvisioner.ACCOUNT_PROVISIONED_TOPIC, 0, 0L, "42", value);
+    }
+}
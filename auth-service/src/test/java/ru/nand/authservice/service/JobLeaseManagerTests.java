@@ -0,0 +1,130 @@
+package ru.nand.authservice.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.nand.authservice.repository.JobFenceRepository;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/// Скрипты аренды JobLeaseManager на настоящем Redis: два инстанса соревнуются за один шард.
+/// Выдачу токенов в job_fences заменяет счетчик
+@Testcontainers(disabledWithoutDocker = true)
+class JobLeaseManagerTests {
+
+    @Container
+    private static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+    private final AtomicLong issuedTokens = new AtomicLong(); // Счетчик job_fences
+    private final JobFenceRepository jobFenceRepository = mock(JobFenceRepository.class);
+    private JobLeaseManager first;
+    private JobLeaseManager second;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(REDIS.getHost(), REDIS.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        when(jobFenceRepository.issue(anyString())).thenAnswer(invocation -> issuedTokens.incrementAndGet());
+        first = manager(Duration.ofSeconds(30));
+        second = manager(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void onlyOneContenderHoldsTheLease() {
+        Optional<JobLease> held = first.acquire("job", 0);
+
+        assertTrue(held.isPresent());
+        assertTrue(second.acquire("job", 0).isEmpty());
+        assertTrue(second.acquire("job", 1).isPresent()); // Другой шард свободен
+
+        first.release(held.get());
+        Optional<JobLease> next = second.acquire("job", 0);
+        assertTrue(next.isPresent());
+        assertTrue(next.get().fencingToken() > held.get().fencingToken());
+    }
+
+    @Test
+    void renewFailsAfterLeaseIsLost() throws InterruptedException {
+        first = manager(Duration.ofMillis(100));
+        JobLease lost = first.acquire("job", 0).orElseThrow();
+        Thread.sleep(300); // Аренда истекла по TTL
+
+        assertFalse(first.renew(lost));
+
+        JobLease taken = second.acquire("job", 0).orElseThrow();
+        assertFalse(first.renew(lost)); // Ключ снова есть, но у другого держателя
+        assertTrue(second.renew(taken));
+    }
+
+    @Test
+    void releaseByNonOwnerKeepsTheLease() {
+        JobLease held = first.acquire("job", 0).orElseThrow();
+
+        second.release(held);
+
+        assertTrue(second.acquire("job", 0).isEmpty());
+        assertTrue(first.renew(held));
+    }
+
+    @Test
+    void tokensKeepGrowingAfterRedisLosesData() {
+        JobLease held = first.acquire("job", 0).orElseThrow();
+        first.release(held);
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+
+        assertTrue(second.acquire("job", 0).orElseThrow().fencingToken() > held.fencingToken());
+    }
+
+    @Test
+    void leaseIsReleasedWhenTokenCannotBeIssued() {
+        when(jobFenceRepository.issue(anyString())).thenThrow(new QueryTimeoutException("timeout"));
+
+        assertTrue(first.acquire("job", 0).isEmpty());
+        assertFalse(redisTemplate.hasKey("job-lease:job:0"));
+    }
+
+    private JobLeaseManager manager(Duration leaseTtl) {
+        JobLeaseManager manager = new JobLeaseManager(redisTemplate, jobFenceRepository);
+        ReflectionTestUtils.setField(manager, "leaseTtl", leaseTtl);
+        ReflectionTestUtils.setField(manager, "shardCount", 2);
+        return manager;
+    }
+}
@@ -0,0 +1,64 @@
+package ru.nand.authservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import ru.nand.authservice.entity.dto.NotificationDTO;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KafkaNotificationPublisherTests {
+    private KafkaTemplate<String, NotificationDTO> kafkaTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private KafkaNotificationPublisher publisher;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        kafkaTemplate = mock(KafkaTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        publisher = new KafkaNotificationPublisher(kafkaTemplate, meterRegistry);
+    }
+
+    @Test
+    void notificationsAreKeyedByRecipientAndFlushedOncePerBatch() {
+        when(kafkaTemplate.send(eq("auth-notifications-topic"), anyString(), any(NotificationDTO.class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        List<CompletableFuture<Void>> sends = publisher.publishAll(List.of(notification("a@example.com"), notification("b@example.com")));
+
+        assertTrue(sends.stream().allMatch(CompletableFuture::isDone));
+        verify(kafkaTemplate).send(eq("auth-notifications-topic"), eq("a@example.com"), any(NotificationDTO.class));
+        verify(kafkaTemplate).send(eq("auth-notifications-topic"), eq("b@example.com"), any(NotificationDTO.class));
+        verify(kafkaTemplate, times(1)).flush();
+        assertEquals(2, meterRegistry.timer("notification.publish.latency").count());
+    }
+
+    @Test
+    void synchronousSendFailureCompletesFutureExceptionally() {
+        when(kafkaTemplate.send(anyString(), anyString(), any(NotificationDTO.class))).thenThrow(new IllegalStateException("metadata timeout"));
+
+        CompletableFuture<Void> send = publisher.publish(notification("a@example.com"));
+
+        assertTrue(send.isCompletedExceptionally());
+        assertEquals(1.0, meterRegistry.counter("notification.publish.errors", "exception", "IllegalStateException").count());
+    }
+
+    private static NotificationDTO notification(String email) {
+        return NotificationDTO.builder()
+                .userEmail(email)
+                .message("message")
+                .build();
+    }
+}
@@ -0,0 +1,142 @@
+package ru.nand.authservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.nand.authservice.entity.NotificationOutbox;
+import ru.nand.authservice.entity.dto.NotificationDTO;
+import ru.nand.authservice.repository.NotificationOutboxRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.notNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationOutboxRelayTests {
+    private NotificationOutboxRepository repository;
+    private NotificationPublisher notificationPublisher;
+    private JobLeaseManager jobLeaseManager;
+    private NotificationOutboxRelay relay;
+    private final JobLease lease = new JobLease("notification-outbox", 0, 1, 1L);
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(NotificationOutboxRepository.class);
+        notificationPublisher = mock(NotificationPublisher.class);
+        jobLeaseManager = mock(JobLeaseManager.class);
+        when(jobLeaseManager.shardOrder()).thenReturn(List.of(0));
+        when(jobLeaseManager.acquire("notification-outbox", 0)).thenReturn(Optional.of(lease));
+        when(jobLeaseManager.renew(lease)).thenReturn(true);
+        relay = new NotificationOutboxRelay(repository, notificationPublisher, jobLeaseManager, mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(relay, "batchSize", 3);
+        ReflectionTestUtils.setField(relay, "sendTimeout", Duration.ofSeconds(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void onlyAcknowledgedNotificationsLeaveOutbox() {
+        when(repository.lockBatch(eq(1), eq(0), eq(3), any())).thenReturn(List.of(outbox(1L, "a@example.com"), outbox(2L, "b@example.com")));
+        when(notificationPublisher.publishAll(anyList())).thenReturn(List.of(
+                CompletableFuture.completedFuture(null),
+                CompletableFuture.failedFuture(new RuntimeException("broker down"))));
+
+        assertEquals(1, relay.relayBatch(lease));
+
+        ArgumentCaptor<Collection<Long>> deleted = ArgumentCaptor.forClass(Collection.class);
+        verify(repository).deleteByIds(deleted.capture());
+        assertEquals(List.of(1L), List.copyOf(deleted.getValue()));
+        verify(repository).claim(eq(List.of(1L, 2L)), notNull()); // Захват до публикации
+        verify(repository).claim(List.of(2L), null); // Неподтвержденное освобождается сразу
+    }
+
+    @Test
+    void fullBatchIsFollowedImmediatelyByNextOne() {
+        when(repository.lockBatch(eq(1), eq(0), eq(3), any()))
+                .thenReturn(List.of(outbox(1L, "a@example.com"), outbox(2L, "b@example.com"), outbox(3L, "c@example.com")))
+                .thenReturn(List.of(outbox(4L, "d@example.com")));
+        when(notificationPublisher.publishAll(anyList())).thenAnswer(invocation -> invocation.<List<NotificationDTO>>getArgument(0).stream()
+                .map(notification -> CompletableFuture.<Void>completedFuture(null))
+                .toList());
+
+        relay.relay();
+
+        verify(repository, times(2)).lockBatch(anyInt(), anyInt(), anyInt(), any());
+        verify(repository, times(2)).deleteByIds(anyCollection());
+        verify(jobLeaseManager).release(lease);
+    }
+
+    @Test
+    void userNotificationsArePublishedOneAfterAnother() {
+        when(repository.lockBatch(eq(1), eq(0), eq(3), any()))
+                .thenReturn(List.of(outbox(1L, "a@example.com"), outbox(2L, "a@example.com"), outbox(3L, "b@example.com")));
+        when(notificationPublisher.publishAll(anyList())).thenAnswer(invocation -> invocation.<List<NotificationDTO>>getArgument(0).stream()
+                .map(notification -> CompletableFuture.<Void>completedFuture(null))
+                .toList());
+
+        assertEquals(3, relay.relayBatch(lease));
+
+        // Второе уведомление a@ - только следующим раундом, после подтверждения первого
+        InOrder rounds = inOrder(notificationPublisher);
+        rounds.verify(notificationPublisher).publishAll(argThat(round -> round.size() == 2));
+        rounds.verify(notificationPublisher).publishAll(argThat(round -> round.size() == 1 && round.getFirst().getUserEmail().equals("a@example.com")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void laterNotificationsAreHeldBackAfterFailure() {
+        when(repository.lockBatch(eq(1), eq(0), eq(3), any()))
+                .thenReturn(List.of(outbox(1L, "a@example.com"), outbox(2L, "a@example.com"), outbox(3L, "b@example.com")));
+        when(notificationPublisher.publishAll(anyList())).thenReturn(List.of(
+                CompletableFuture.failedFuture(new RuntimeException("broker down")),
+                CompletableFuture.completedFuture(null)));
+
+        assertEquals(1, relay.relayBatch(lease));
+
+        verify(notificationPublisher, times(1)).publishAll(anyList()); // Уведомление 2 не отправлялось
+        ArgumentCaptor<Collection<Long>> deleted = ArgumentCaptor.forClass(Collection.class);
+        verify(repository).deleteByIds(deleted.capture());
+        assertEquals(List.of(3L), List.copyOf(deleted.getValue()));
+        verify(repository).claim(List.of(1L, 2L), null);
+    }
+
+    @Test
+    void emptyOutboxDoesNotTouchPublisher() {
+        when(repository.lockBatch(eq(1), eq(0), eq(3), any())).thenReturn(List.of());
+
+        assertEquals(0, relay.relayBatch(lease));
+
+        verify(notificationPublisher, never()).publishAll(anyList());
+        verify(repository, never()).deleteByIds(anyCollection());
+        verify(repository, never()).claim(anyCollection(), any());
+    }
+
+    private static NotificationOutbox outbox(Long id, String email) {
+        return NotificationOutbox.builder()
+                .id(id)
+                .userEmail(email)
+                .message("message")
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
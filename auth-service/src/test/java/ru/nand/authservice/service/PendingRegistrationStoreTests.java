@@ -0,0 +1,73 @@
+package ru.nand.authservice.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.nand.authservice.entity.dto.RegisterDTO;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/// Скрипты PendingRegistrationStore на настоящем Redis
+@Testcontainers(disabledWithoutDocker = true)
+class PendingRegistrationStoreTests {
+
+    @Container
+    private static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static PendingRegistrationStore store;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(REDIS.getHost(), REDIS.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+        store = new PendingRegistrationStore(redisTemplate);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void codeIsConsumedTogetherWithRegistration() {
+        store.save(registration("alice@example.com"), "1234", Duration.ofMinutes(5));
+
+        PendingRegistrationStore.Verification verified = store.verify("alice@example.com", "1234");
+        PendingRegistrationStore.Verification replayed = store.verify("alice@example.com", "1234");
+
+        assertEquals(PendingRegistrationStore.Status.VERIFIED, verified.status());
+        assertEquals("alice", verified.registerDTO().getUsername());
+        assertEquals("secret", verified.registerDTO().getPassword());
+        assertNull(verified.registerDTO().getRequestId());
+        assertTrue(verified.remainingTtl().compareTo(Duration.ofMinutes(4)) > 0);
+        assertEquals(PendingRegistrationStore.Status.MISSING, replayed.status());
+    }
+
+    @Test
+    void wrongCodeKeepsRegistration() {
+        store.save(registration("bob@example.com"), "1234", Duration.ofMinutes(5));
+
+        assertEquals(PendingRegistrationStore.Status.INVALID_CODE, store.verify("bob@example.com", "0000").status());
+        assertEquals(PendingRegistrationStore.Status.VERIFIED, store.verify("bob@example.com", "1234").status());
+    }
+
+    private static RegisterDTO registration(String email) {
+        RegisterDTO registerDTO = new RegisterDTO();
+        registerDTO.setUsername(email.substring(0, email.indexOf('@')));
+        registerDTO.setEmail(email);
+        registerDTO.setPassword("secret");
+        return registerDTO;
+    }
+}
@@ -0,0 +1,87 @@
+package ru.nand.authservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/// Скрипт токен-бакета RateLimiter на настоящем Redis
+@Testcontainers(disabledWithoutDocker = true)
+class RateLimiterTests {
+
+    @Container
+    private static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+    private RateLimiter rateLimiter;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(REDIS.getHost(), REDIS.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute((org.springframework.data.redis.core.RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        rateLimiter = new RateLimiter(redisTemplate, new SimpleMeterRegistry(),
+                "100/PT1H", "2/PT1H", "100/PT1M", "2/PT1M", "100/PT1M", "2/PT1M");
+        ReflectionTestUtils.setField(rateLimiter, "enabled", true);
+    }
+
+    @Test
+    void subjectBudgetIsSharedAcrossAddresses() {
+        assertEquals(Duration.ZERO, rateLimiter.tryAcquire(RateLimiter.Endpoint.REGISTER, "10.0.0.1", "alice@example.com"));
+        assertEquals(Duration.ZERO, rateLimiter.tryAcquire(RateLimiter.Endpoint.REGISTER, "10.0.0.2", "Alice@Example.com"));
+
+        Duration retryAfter = rateLimiter.tryAcquire(RateLimiter.Endpoint.REGISTER, "10.0.0.3", "alice@example.com");
+
+        // Один токен восстанавливается за полчаса при 2/PT1H
+        assertTrue(retryAfter.compareTo(Duration.ofMinutes(29)) > 0 && retryAfter.compareTo(Duration.ofMinutes(31)) < 0, retryAfter::toString);
+        assertEquals(Duration.ZERO, rateLimiter.tryAcquire(RateLimiter.Endpoint.REGISTER, "10.0.0.3", "bob@example.com"));
+    }
+
+    @Test
+    void rejectedRequestDoesNotSpendOtherBuckets() {
+        rateLimiter.tryAcquire(RateLimiter.Endpoint.LOGIN, "10.0.0.1", "alice");
+        rateLimiter.tryAcquire(RateLimiter.Endpoint.LOGIN, "10.0.0.1", "alice");
+
+        // Отказ по имени пользователя не списывает токены IP
+        for (int i = 0; i < 10; i++) {
+            assertTrue(rateLimiter.tryAcquire(RateLimiter.Endpoint.LOGIN, "10.0.0.1", "alice").toMillis() > 0);
+        }
+        assertEquals("98", redisTemplate.<String, String>opsForHash().get("rate-limit:login:ip:10.0.0.1", "tokens").substring(0, 2));
+        assertEquals(Duration.ZERO, rateLimiter.tryAcquire(RateLimiter.Endpoint.LOGIN, "10.0.0.1", "bob"));
+    }
+
+    @Test
+    void endpointsHaveSeparateBudgets() {
+        rateLimiter.tryAcquire(RateLimiter.Endpoint.VERIFY_EMAIL, "10.0.0.1", "alice@example.com");
+        rateLimiter.tryAcquire(RateLimiter.Endpoint.VERIFY_EMAIL, "10.0.0.1", "alice@example.com");
+
+        assertEquals(Duration.ZERO, rateLimiter.tryAcquire(RateLimiter.Endpoint.REGISTER, "10.0.0.1", "alice@example.com"));
+    }
+}
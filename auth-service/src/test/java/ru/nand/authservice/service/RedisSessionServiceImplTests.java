@@ -0,0 +1,148 @@
+package ru.nand.authservice.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.nand.authservice.entity.ENUMS.STATUS;
+import ru.nand.authservice.entity.User;
+import ru.nand.authservice.repository.UserRepository;
+import ru.nand.authservice.repository.UserSessionRepository;
+import ru.nand.authservice.util.NotificationUtil;
+import ru.nand.authservice.util.RevocationUtil;
+import ru.nand.authservice.util.TokenPair;
+import ru.nand.authservice.util.TokenPairMinter;
+import ru.nand.authservice.util.UserJwtUtil;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/// Ключи Redis-хранилища сессий: частичные хэши не создаются, у множеств статусов есть TTL, блокировка переживает истечение сессий
+@Testcontainers(disabledWithoutDocker = true)
+class RedisSessionServiceImplTests {
+    private static final String ACCESS_TOKEN = "access";
+
+    @Container
+    private static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private final TokenPairMinter tokenPairMinter = mock(TokenPairMinter.class);
+    private final UserJwtUtil userJwtUtil = mock(UserJwtUtil.class);
+    private final User user = User.builder().id(1L).username("user").email("user@example.com").isBlocked(false).build();
+    private RedisSessionServiceImpl sessionService;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(REDIS.getHost(), REDIS.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+
+        LocalDateTime now = LocalDateTime.now();
+        byte[] accessTokenHash = filled(1);
+        when(tokenPairMinter.mint(any())).thenReturn(new TokenPair(ACCESS_TOKEN, "refresh", accessTokenHash, filled(2),
+                now, now.plusMinutes(15), now.plusDays(7)));
+        when(userJwtUtil.hashToken(ACCESS_TOKEN)).thenReturn(accessTokenHash);
+
+        sessionService = new RedisSessionServiceImpl(redisTemplate, mock(UserRepository.class), mock(UserSessionRepository.class),
+                mock(NotificationUtil.class), userJwtUtil, mock(RevocationUtil.class), tokenPairMinter);
+        ReflectionTestUtils.setField(sessionService, "idleTimeout", Duration.ofHours(2));
+    }
+
+    @Test
+    void activityUpdateSkipsExpiredSessionsWithoutRecreatingThem() {
+        sessionService.createSession(user);
+        String sessionId = onlyMember("user_sessions:1:ACTIVE");
+        redisTemplate.opsForHash().put("session:" + sessionId, "lastActivityTime", LocalDateTime.now().minusHours(1).toString());
+        redisTemplate.opsForSet().add("user_sessions:1:ACTIVE", "expired");
+
+        sessionService.updateLastActivityTime(user);
+
+        assertFalse(redisTemplate.hasKey("session:expired"));
+        assertFalse(redisTemplate.opsForSet().isMember("user_sessions:1:ACTIVE", "expired"));
+        assertTrue(LocalDateTime.parse((String) redisTemplate.opsForHash().get("session:" + sessionId, "lastActivityTime"))
+                .isAfter(LocalDateTime.now().minusMinutes(1)));
+    }
+
+    @Test
+    void activityUpdateForOnlyExpiredSessionsFails() {
+        redisTemplate.opsForSet().add("user_sessions:1:ACTIVE", "expired");
+
+        assertThrows(RuntimeException.class, () -> sessionService.updateLastActivityTime(user));
+        assertFalse(redisTemplate.hasKey("session:expired"));
+    }
+
+    @Test
+    void statusSetsExpireWithTheirSessions() {
+        sessionService.createSession(user);
+        String sessionId = onlyMember("user_sessions:1:ACTIVE");
+
+        sessionService.deactivateSessionByAccessToken("Bearer " + ACCESS_TOKEN);
+
+        assertEquals(sessionId, onlyMember("user_sessions:1:INACTIVE"));
+        long setTtl = redisTemplate.getExpire("user_sessions:1:INACTIVE");
+        assertTrue(setTtl > 0 && setTtl >= redisTemplate.getExpire("session:" + sessionId) - 1);
+    }
+
+    @Test
+    void blockOutlivesSessionHashes() {
+        sessionService.createSession(user);
+        String sessionId = onlyMember("user_sessions:1:ACTIVE");
+
+        sessionService.blockUserSessions(user, List.of());
+
+        assertTrue(redisTemplate.getExpire("session:" + sessionId) > 0); // Хэш истекает вместе с refresh
+        assertEquals(-1, redisTemplate.getExpire("user_sessions:1:BLOCKED"));
+
+        redisTemplate.delete("session:" + sessionId); // Истечение хэша
+        assertTrue(sessionService.hasBlockedSessions(user));
+        assertTrue(sessionService.findByUserAndStatus(user, STATUS.BLOCKED).isEmpty());
+        assertTrue(sessionService.hasBlockedSessions(user));
+        assertNotEquals(0L, sessionService.getSessionSummary(user).getBlockedSessions());
+    }
+
+    private static String onlyMember(String setKey) {
+        List<String> members = List.copyOf(redisTemplate.opsForSet().members(setKey));
+        assertEquals(1, members.size());
+        return members.getFirst();
+    }
+
+    private static byte[] filled(int value) {
+        byte[] hash = new byte[32];
+        Arrays.fill(hash, (byte) value);
+        return hash;
+    }
+}
@@ -0,0 +1,97 @@
+package ru.nand.authservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SessionActivityBufferTests {
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    private JdbcTemplate jdbcTemplate;
+    private SessionActivityBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        buffer = new SessionActivityBuffer(jdbcTemplate, Duration.ofMinutes(1), Duration.ofSeconds(5), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(buffer, "batchSize", 3);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void latestActivityPerSessionIsWrittenOnce() {
+        LocalDateTime earlier = LocalDateTime.of(2024, 1, 1, 10, 0);
+        LocalDateTime later = earlier.plusSeconds(30);
+
+        buffer.record(1L, 10L, CREATED, later);
+        buffer.record(1L, 10L, CREATED, earlier);
+        buffer.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+        assertEquals(1, batch.getValue().size());
+        assertEquals(Timestamp.valueOf(later), batch.getValue().getFirst()[0]);
+        assertEquals(10L, batch.getValue().getFirst()[1]);
+        assertEquals(Timestamp.valueOf(CREATED), batch.getValue().getFirst()[2]); // Ключ секции sessions
+    }
+
+    @Test
+    void userIsSkippedInsideGranularityWindow() {
+        assertFalse(buffer.isRecent(1L));
+
+        buffer.record(1L, 10L, CREATED, LocalDateTime.now());
+
+        assertTrue(buffer.isRecent(1L));
+        assertFalse(buffer.isRecent(2L));
+    }
+
+    @Test
+    void reachingBatchSizeFlushesWithoutTimerOutsideCallerThread() {
+        AtomicReference<Thread> writer = new AtomicReference<>();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            writer.set(Thread.currentThread());
+            return new int[]{1, 1, 1};
+        });
+
+        buffer.record(1L, 10L, CREATED, LocalDateTime.now());
+        buffer.record(2L, 20L, CREATED, LocalDateTime.now());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+
+        buffer.record(3L, 30L, CREATED, LocalDateTime.now());
+        verify(jdbcTemplate, timeout(5_000).times(1)).batchUpdate(anyString(), anyList());
+        assertNotEquals(Thread.currentThread(), writer.get());
+    }
+
+    @Test
+    void failedWriteIsRetriedOnNextFlush() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("connection refused")).thenReturn(new int[]{1});
+
+        buffer.record(1L, 10L, CREATED, LocalDateTime.now());
+        buffer.flush();
+        buffer.flush();
+
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+    }
+}
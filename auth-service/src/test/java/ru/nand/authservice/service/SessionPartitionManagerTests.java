@@ -0,0 +1,125 @@
+package ru.nand.authservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/// Создание и удаление секций sessions на схеме из миграций
+@Testcontainers(disabledWithoutDocker = true)
+class SessionPartitionManagerTests {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SessionPartitionManager partitionManager;
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .load()
+                .migrate();
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()));
+        jdbcTemplate.update("INSERT INTO users (id, username, email, password, role, registration_date) VALUES (1, 'user', 'user@example.com', 'x', 'ROLE_USER', now())");
+    }
+
+    @BeforeEach
+    void setUp() {
+        JobLeaseManager jobLeaseManager = mock(JobLeaseManager.class);
+        when(jobLeaseManager.acquire(anyString(), anyInt())).thenAnswer(invocation ->
+                Optional.of(new JobLease(invocation.getArgument(0), invocation.getArgument(1), 1, 1)));
+
+        partitionManager = new SessionPartitionManager(jdbcTemplate, new DataSourceTransactionManager(jdbcTemplate.getDataSource()),
+                jobLeaseManager, meterRegistry, mock(SessionStatusCache.class));
+        ReflectionTestUtils.setField(partitionManager, "premakeDays", 7);
+        ReflectionTestUtils.setField(partitionManager, "sessionRetention", Duration.ofDays(1));
+        ReflectionTestUtils.setField(partitionManager, "lockTimeout", Duration.ofSeconds(5));
+    }
+
+    @Test
+    void createsNextDayPartition() {
+        String tomorrow = partition(LocalDate.now().plusDays(1));
+        jdbcTemplate.execute("DROP TABLE " + tomorrow);
+
+        partitionManager.maintainPartitions();
+
+        assertTrue(isPartition(tomorrow));
+        assertEquals(1.0, meterRegistry.get("session.partitions.created").counter().count());
+    }
+
+    @Test
+    void retainsPartitionWithLiveSessions() {
+        LocalDate day = LocalDate.now().minusDays(10);
+        String partition = createPartition(day);
+        insertSession(day, "BLOCKED", day.atTime(12, 0));
+        insertSession(day, "ACTIVE", LocalDateTime.now()); // Сессией еще пользуются
+        insertSession(day, "ACTIVE", day.atTime(12, 0)); // Простаивает дольше срока хранения
+
+        partitionManager.maintainPartitions();
+
+        assertTrue(isPartition(partition));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM " + partition + " WHERE status = 'REVOKED'", Integer.class));
+        assertEquals(1.0, meterRegistry.get("session.partitions.retained").counter().count());
+    }
+
+    @Test
+    void dropsFullyRevokedPartition() {
+        LocalDate day = LocalDate.now().minusDays(20);
+        String partition = createPartition(day);
+        insertSession(day, "REVOKED", day.atTime(12, 0));
+        insertSession(day, "INACTIVE", day.atTime(13, 0)); // Отзывается перед удалением
+
+        partitionManager.maintainPartitions();
+
+        assertFalse(isPartition(partition));
+        assertFalse(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition));
+        assertEquals(1.0, meterRegistry.get("session.partitions.dropped").counter().count());
+    }
+
+    private static String createPartition(LocalDate day) {
+        String partition = partition(day);
+        jdbcTemplate.execute("CREATE TABLE " + partition + " PARTITION OF sessions FOR VALUES FROM ('" + day + "') TO ('" + day.plusDays(1) + "')");
+        return partition;
+    }
+
+    private static void insertSession(LocalDate day, String status, LocalDateTime lastActivityTime) {
+        jdbcTemplate.update("INSERT INTO sessions (session_creation_time, last_activity_time, status, user_id) VALUES (?, ?, ?, 1)",
+                day.atTime(10, 0), lastActivityTime, status);
+    }
+
+    private static boolean isPartition(String partition) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_inherits WHERE inhrelid = to_regclass(?) AND inhparent = 'sessions'::regclass)",
+                Boolean.class, partition));
+    }
+
+    private static String partition(LocalDate day) {
+        return "sessions_" + day.format(DateTimeFormatter.BASIC_ISO_DATE);
+    }
+}
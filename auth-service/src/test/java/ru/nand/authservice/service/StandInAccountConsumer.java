@@ -0,0 +1,71 @@
+package ru.nand.authservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import ru.nand.authservice.entity.dto.AccountProvisionedEvent;
+import ru.nand.authservice.entity.dto.UserRegisteredEvent;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/// Заменитель account-service по контракту AccountProvisioner: аккаунты в памяти, по одному на userId.
+/// В тестах вызывается напрямую, для локального запуска против Kafka из docker-compose - main
+/// (auth-service с account-service.provisioning.mode=async)
+public class StandInAccountConsumer {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<Long, Long> accountsByUserId = new ConcurrentHashMap<>();
+    private final AtomicLong accountIds = new AtomicLong();
+
+    /// Событие user-registered -> подтверждение для account-provisioned (ключ - userId). Повтор возвращает тот же accountId
+    public String handle(String userRegisteredJson) {
+        try {
+            UserRegisteredEvent event = objectMapper.readValue(userRegisteredJson, UserRegisteredEvent.class);
+            Long accountId = accountsByUserId.computeIfAbsent(event.getUserId(), userId -> accountIds.incrementAndGet());
+            return objectMapper.writeValueAsString(new AccountProvisionedEvent(event.getUserId(), accountId));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int accountCount() {
+        return accountsByUserId.size();
+    }
+
+    public static void main(String[] args) {
+        String bootstrapServers = args.length > 0 ? args[0] : "localhost:9092";
+        StandInAccountConsumer standIn = new StandInAccountConsumer();
+
+        try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(Map.of(
+                     ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                     ConsumerConfig.GROUP_ID_CONFIG, "account-stand-in",
+                     ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false,
+                     ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest",
+                     ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+                     ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class));
+             KafkaProducer<String, String> producer = new KafkaProducer<>(Map.of(
+                     ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                     ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                     ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class))) {
+            consumer.subscribe(List.of(AccountProvisioner.USER_REGISTERED_TOPIC));
+            while (!Thread.currentThread().isInterrupted()) {
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofSeconds(1))) {
+                    producer.send(new ProducerRecord<>(AccountProvisioner.ACCOUNT_PROVISIONED_TOPIC, record.key(), standIn.handle(record.value())));
+                }
+                producer.flush();
+                consumer.commitSync(); // После подтверждений: падение между ними дает только повтор
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package ru.nand.authservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import ru.nand.authservice.util.CacheCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TwoTierCacheTests {
+    private static final CacheCodec<String> STRING_CODEC = new CacheCodec<>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private StringRedisTemplate redisTemplate;
+    private TwoTierCacheManager manager;
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        manager = new TwoTierCacheManager(redisTemplate, meterRegistry);
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        CacheService<String, String> cache = manager.create("test", new TwoTierCache.Spec(100, Duration.ofMinutes(1), Duration.ZERO), key -> key, STRING_CODEC);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = executor.submit(() -> cache.get("key", key -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return "value";
+            }));
+            loading.await(5, TimeUnit.SECONDS);
+            Future<String> second = executor.submit(() -> cache.get("key", key -> {
+                loads.incrementAndGet();
+                return "other";
+            }));
+            release.countDown();
+
+            assertEquals("value", first.get(5, TimeUnit.SECONDS));
+            assertEquals("value", second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void remoteInvalidationEvictsLocalEntry() {
+        CacheService<String, String> cache = manager.create("test", new TwoTierCache.Spec(100, Duration.ofMinutes(1), Duration.ZERO), key -> key, STRING_CODEC);
+        cache.get("key", key -> "old");
+
+        manager.onMessage(new DefaultMessage(TwoTierCacheManager.INVALIDATION_CHANNEL.getBytes(), "k|test|key".getBytes()), null);
+
+        assertEquals("new", cache.get("key", key -> "new"));
+    }
+
+    @Test
+    void missingValuesAreNotCachedAndRedisFailureFallsBackToLoader() {
+        when(redisTemplate.execute(any(RedisCallback.class))).thenThrow(new IllegalStateException("connection refused"));
+        CacheService<String, String> cache = manager.create("test", new TwoTierCache.Spec(100, Duration.ofMinutes(1), Duration.ofMinutes(5)), key -> key, STRING_CODEC);
+
+        assertNull(cache.get("key", key -> null));
+        assertEquals("loaded", cache.get("key", key -> "loaded"));
+    }
+
+    @Test
+    void undecodableL2ValueIsTreatedAsMiss() {
+        CacheCodec<String> versionedCodec = new CacheCodec<>() {
+            @Override
+            public byte[] encode(String value) {
+                return ("2" + value).getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String decode(byte[] bytes) {
+                if (bytes[0] != '2') {
+                    throw new IllegalStateException("Unknown cached format");
+                }
+                return new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8);
+            }
+        };
+        // Поколение не записано, в L2 значение прежней версии кодека, запись обратно
+        when(redisTemplate.execute(any(RedisCallback.class))).thenReturn(null, "1old".getBytes(StandardCharsets.UTF_8), 1L);
+        CacheService<String, String> cache = manager.create("test", new TwoTierCache.Spec(100, Duration.ofMinutes(1), Duration.ofMinutes(5)), key -> key, versionedCodec);
+
+        assertEquals("loaded", cache.get("key", key -> "loaded"));
+        assertEquals(1.0, meterRegistry.get("cache.l2.decode.errors").counter().count());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
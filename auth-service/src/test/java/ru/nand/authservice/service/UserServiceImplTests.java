@@ -0,0 +1,74 @@
+package ru.nand.authservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.nand.authservice.entity.dto.RegisterDTO;
+import ru.nand.authservice.repository.NotificationOutboxRepository;
+import ru.nand.authservice.repository.UserRepository;
+import ru.nand.authservice.util.NotificationUtil;
+import ru.nand.authservice.util.PasswordHasher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/// Регистрация на схеме из миграций: пользователь, сессия и outbox уведомления фиксируются одной транзакцией
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // createUser открывает собственную транзакцию
+@Testcontainers(disabledWithoutDocker = true)
+class UserServiceImplTests {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private NotificationOutboxRepository notificationOutboxRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void failedSessionRollsBackUserAndOutbox() {
+        NotificationUtil notificationUtil = new NotificationUtil(notificationOutboxRepository);
+        SessionService sessionService = mock(SessionService.class);
+        when(sessionService.createSession(any())).thenAnswer(invocation -> {
+            notificationUtil.createAndSendNotification("user@example.com", "Обнаружено несколько активных сессий");
+            throw new RuntimeException("Session store unavailable");
+        });
+        PasswordHasher passwordHasher = mock(PasswordHasher.class);
+        when(passwordHasher.encode("password")).thenReturn("hash");
+
+        UserServiceImpl userService = new UserServiceImpl(userRepository, sessionService, passwordHasher, transactionManager);
+        RegisterDTO registerDTO = new RegisterDTO();
+        registerDTO.setUsername("user");
+        registerDTO.setEmail("user@example.com");
+        registerDTO.setPassword("password");
+
+        assertThrows(RuntimeException.class, () -> userService.createUser(registerDTO));
+
+        assertTrue(userRepository.findByEmail("user@example.com").isEmpty()); // Почта свободна для повторной регистрации
+        assertEquals(0, notificationOutboxRepository.count());
+    }
+}
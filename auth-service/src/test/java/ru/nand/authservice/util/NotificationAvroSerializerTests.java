@@ -0,0 +1,83 @@
+package ru.nand.authservice.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DecoderFactory;
+import org.junit.jupiter.api.Test;
+import ru.nand.authservice.entity.dto.NotificationDTO;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NotificationAvroSerializerTests {
+    private final NotificationSchemaRegistry registry = NotificationSchemaRegistry.load();
+    private final NotificationAvroSerializer serializer = new NotificationAvroSerializer(registry);
+
+    @Test
+    void recordCarriesSchemaIdAndDecodesWithWriterSchema() throws Exception {
+        UUID notificationId = UUID.randomUUID();
+        LocalDateTime creationDate = LocalDateTime.of(2024, 5, 1, 12, 30, 15);
+        NotificationDTO notification = NotificationDTO.builder()
+                .notificationId(notificationId)
+                .message("Ваш код верификации: 1234")
+                .userEmail("alice@example.com")
+                .creationDate(creationDate)
+                .build();
+
+        byte[] data = serializer.serialize("auth-notifications-topic", notification);
+
+        ByteBuffer header = ByteBuffer.wrap(data, 0, NotificationSchemaRegistry.HEADER_LENGTH);
+        assertEquals(NotificationSchemaRegistry.MAGIC_BYTE, header.get());
+        int schemaId = header.getInt();
+        assertEquals(registry.latestId(), schemaId);
+
+        GenericRecord record = new GenericDatumReader<GenericRecord>(registry.schema(schemaId)).read(null,
+                DecoderFactory.get().binaryDecoder(data, NotificationSchemaRegistry.HEADER_LENGTH, data.length - NotificationSchemaRegistry.HEADER_LENGTH, null));
+        assertEquals("alice@example.com", record.get("userEmail").toString());
+        assertEquals("Ваш код верификации: 1234", record.get("message").toString());
+        assertEquals(creationDate.toInstant(ZoneOffset.UTC).toEpochMilli(), record.get("creationDate"));
+        assertArrayEquals(ByteBuffer.allocate(16).putLong(notificationId.getMostSignificantBits()).putLong(notificationId.getLeastSignificantBits()).array(),
+                ((GenericData.Fixed) record.get("notificationId")).bytes());
+        assertNull(record.get("createdAt"));
+    }
+
+    @Test
+    void binaryRecordIsSmallerThanJson() throws Exception {
+        NotificationDTO notification = NotificationDTO.builder()
+                .notificationId(UUID.randomUUID())
+                .createdAt(UUID.randomUUID())
+                .message("Обнаружено несколько активных сессий")
+                .userEmail("alice@example.com")
+                .creationDate(LocalDateTime.now())
+                .build();
+
+        byte[] json = new ObjectMapper().registerModule(new JavaTimeModule()).writeValueAsBytes(notification);
+        byte[] avro = serializer.serialize("auth-notifications-topic", notification);
+
+        assertTrue(avro.length * 5 < json.length * 3, () -> "avro " + avro.length + " bytes, json " + json.length + " bytes");
+    }
+
+    @Test
+    void incompatibleEvolutionIsRejected() {
+        Schema v1 = registry.schema(1);
+        // Новое обязательное поле без default: v2 не прочитает записи v1
+        Schema v2 = new Schema.Parser().parse(v1.toString().replace(
+                "{\"name\":\"userEmail\",\"type\":\"string\"}",
+                "{\"name\":\"userEmail\",\"type\":\"string\"},{\"name\":\"locale\",\"type\":\"string\"}"));
+
+        assertThrows(IllegalStateException.class, () -> NotificationSchemaRegistry.checkCompatibility(List.of(v1, v2)));
+    }
+}
@@ -0,0 +1,156 @@
+package ru.nand.authservice.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/// Защита исходящих вызовов на локальном stub-сервере вместо account-service
+class OutboundCallGuardTests {
+    private HttpServer server;
+    private HttpClient httpClient;
+    private SimpleMeterRegistry meterRegistry;
+    private CircuitBreaker circuitBreaker;
+    private RestClient restClient;
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final List<Integer> clientPorts = new CopyOnWriteArrayList<>();
+    private volatile int status = 200;
+    private volatile CountDownLatch release = new CountDownLatch(0);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/api/accounts/", this::handle);
+        server.start();
+
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new CircuitBreaker("account-service", 4, 4, 0.5, Duration.ofMillis(200), meterRegistry);
+        httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(300));
+
+        restClient = RestClient.builder()
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+                .requestFactory(requestFactory)
+                .requestInterceptor(new OutboundCallGuard("account-service", 1, Duration.ZERO, circuitBreaker, meterRegistry))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        httpClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    void connectionIsReusedAndLatencyIsRecordedByTemplate() {
+        register(1);
+        register(2);
+
+        assertEquals(1, clientPorts.stream().distinct().count(), "Keep-alive connection was not reused");
+        Timer timer = meterRegistry.find("http.client.outbound")
+                .tags("service", "account-service", "endpoint", "POST /api/accounts/{id}", "status", "200")
+                .timer();
+        assertNotNull(timer);
+        assertEquals(2, timer.count());
+    }
+
+    @Test
+    void serverErrorsOpenCircuitAndTrialCallClosesIt() throws InterruptedException {
+        status = 503;
+        for (int i = 0; i < 4; i++) {
+            assertThrows(HttpServerErrorException.class, () -> register(1));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        // Открытая цепь отклоняет вызов без обращения к серверу
+        assertThrows(RejectedExecutionException.class, () -> register(1));
+        assertEquals(4, hits.get());
+
+        Thread.sleep(250);
+        status = 200;
+        register(1);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void readTimeoutCountsAsFailure() {
+        release = new CountDownLatch(1);
+
+        assertThrows(ResourceAccessException.class, () -> register(1));
+
+        assertEquals(1, meterRegistry.find("http.client.outbound").tag("status", "IO_ERROR").timer().count());
+        release.countDown();
+    }
+
+    @Test
+    void bulkheadRejectsCallsOverLimit() throws Exception {
+        release = new CountDownLatch(1);
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> {
+            try {
+                register(1);
+            } catch (ResourceAccessException ignored) {
+                // Таймаут чтения - место в bulkhead все равно освобождается
+            }
+        });
+        while (hits.get() == 0) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(RejectedExecutionException.class, () -> register(2));
+        assertEquals(1, meterRegistry.counter("http.client.outbound.rejected", "service", "account-service", "reason", "bulkhead").count());
+
+        release.countDown();
+        first.get(2, TimeUnit.SECONDS);
+        register(3);
+    }
+
+    private void register(int id) {
+        restClient.post()
+                .uri("/api/accounts/{id}", id)
+                .body("{}")
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        hits.incrementAndGet();
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        exchange.getRequestBody().readAllBytes();
+        try {
+            release.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+}
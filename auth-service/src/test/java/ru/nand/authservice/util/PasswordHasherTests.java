@@ -0,0 +1,77 @@
+package ru.nand.authservice.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHasherTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PasswordHasher passwordHasher = new PasswordHasher(5, Duration.ofMillis(100), 1, 4, Duration.ofSeconds(5), 4, meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        passwordHasher.shutdown();
+    }
+
+    @Test
+    void encodedPasswordMatchesOnlyOriginal() {
+        String encoded = passwordHasher.encode("secret");
+
+        assertTrue(passwordHasher.matches("secret", encoded));
+        assertFalse(passwordHasher.matches("other", encoded));
+    }
+
+    @Test
+    void onlyCheaperHashNeedsRehash() {
+        assertFalse(passwordHasher.needsRehash(passwordHasher.encode("secret")));
+        assertTrue(passwordHasher.needsRehash(BCrypt.hashpw("secret", BCrypt.gensalt(4))));
+        assertFalse(passwordHasher.needsRehash(BCrypt.hashpw("secret", BCrypt.gensalt(6))));
+        assertFalse(passwordHasher.needsRehash("not-a-bcrypt-hash"));
+    }
+
+    @Test
+    void rehashIsDroppedWhileLoginPoolIsBusy() throws InterruptedException {
+        ThreadPoolExecutor loginPool = (ThreadPoolExecutor) ReflectionTestUtils.getField(passwordHasher, "executor");
+        CountDownLatch release = new CountDownLatch(1);
+        loginPool.execute(() -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        AtomicReference<String> rehashed = new AtomicReference<>();
+
+        try {
+            while (loginPool.getActiveCount() == 0) {
+                Thread.sleep(1);
+            }
+            passwordHasher.rehashAsync("secret", rehashed::set);
+        } finally {
+            release.countDown();
+        }
+
+        assertEquals(1.0, meterRegistry.get("password.hashing.rehash.dropped").counter().count());
+        assertNull(rehashed.get());
+    }
+
+    @Test
+    void calibratedCostStaysWithinBounds() {
+        int strength = PasswordHasher.calibrate(Duration.ofMillis(1));
+
+        assertTrue(strength >= 10 && strength <= 16);
+    }
+}
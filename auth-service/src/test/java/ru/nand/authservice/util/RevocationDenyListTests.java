@@ -0,0 +1,106 @@
+package ru.nand.authservice.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RevocationDenyListTests {
+    // Отпечатки с младшими битами 0xF: при емкости 16 у всех домашний слот 15, цепочка переходит через конец таблицы
+    private static final String LAST_SLOT_A = "000000000000000f";
+    private static final String LAST_SLOT_B = "000000000000001f";
+    private static final String LAST_SLOT_C = "000000000000002f";
+
+    @TempDir
+    Path tempDir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void chainWrapsAroundTableEnd() {
+        RevocationDenyList denyList = denyList("deny-list.bin", 16);
+        long now = System.currentTimeMillis();
+
+        denyList.revoke(LAST_SLOT_A, now + 60_000);
+        denyList.revoke(LAST_SLOT_B, now + 60_000);
+        denyList.revoke(LAST_SLOT_C, now + 60_000);
+
+        assertTrue(denyList.isRevoked(hash(LAST_SLOT_A)));
+        assertTrue(denyList.isRevoked(hash(LAST_SLOT_B)));
+        assertTrue(denyList.isRevoked(hash(LAST_SLOT_C)));
+        assertFalse(denyList.isRevoked(hash("000000000000003f")));
+    }
+
+    @Test
+    void expiredSlotsAreReusedAndReclaimedWithoutBreakingLiveChains() throws InterruptedException {
+        RevocationDenyList denyList = denyList("deny-list.bin", 16);
+        long now = System.currentTimeMillis();
+
+        denyList.revoke(LAST_SLOT_A, now + 50); // Слот 15, истечет первым
+        denyList.revoke(LAST_SLOT_B, now + 60_000); // Слот 0, цепочка идет через слот 15
+        denyList.revoke("0000000000000005", now + 50);
+        Thread.sleep(100);
+
+        denyList.compact();
+
+        // Слот 5 освобожден, слот 15 остается: через него проходит живая цепочка B
+        assertEquals(1.0, meterRegistry.get("revocation.deny-list.reclaimed").counter().count());
+        assertTrue(denyList.isRevoked(hash(LAST_SLOT_B)));
+
+        denyList.revoke(LAST_SLOT_C, System.currentTimeMillis() + 60_000); // Занимает истекший слот 15
+        assertTrue(denyList.isRevoked(hash(LAST_SLOT_C)));
+        assertFalse(denyList.isRevoked(hash(LAST_SLOT_A)));
+        assertEquals(0.0, meterRegistry.get("revocation.deny-list.overflow").counter().count());
+    }
+
+    @Test
+    void fullTableKeepsRevocationsInMemoryAndReplaysTopicAfterRestart() {
+        Path file = tempDir.resolve("deny-list.bin");
+        RevocationDenyList denyList = new RevocationDenyList(file, 2, meterRegistry);
+        long now = System.currentTimeMillis();
+        denyList.commitOffset(0, 41);
+
+        denyList.revoke("1000000000000000", now + 60_000);
+        denyList.revoke("2000000000000000", now + 60_000);
+        denyList.revoke("3000000000000000", now + 60_000); // Места нет - в память
+
+        assertTrue(denyList.isRevoked(hash("1000000000000000")));
+        assertTrue(denyList.isRevoked(hash("2000000000000000")));
+        assertTrue(denyList.isRevoked(hash("3000000000000000")));
+        assertEquals(1.0, meterRegistry.get("revocation.deny-list.overflow").counter().count());
+        assertEquals(1.0, meterRegistry.get("revocation.deny-list.overflow.size").gauge().value());
+
+        // Отзыв из памяти не пережил бы рестарт, поэтому топик перечитывается с начала
+        denyList.close();
+        RevocationDenyList reopened = new RevocationDenyList(file, 2, new SimpleMeterRegistry());
+        assertEquals(-1, reopened.committedOffset(0));
+    }
+
+    @Test
+    void fileHeldByAnotherInstanceIsNotShared() {
+        RevocationDenyList first = denyList("deny-list.bin", 16);
+        RevocationDenyList second = denyList("deny-list.bin", 16);
+
+        first.revoke(LAST_SLOT_A, System.currentTimeMillis() + 60_000);
+        first.commitOffset(0, 7);
+
+        assertFalse(second.isRevoked(hash(LAST_SLOT_A)));
+        assertNotEquals(7, second.committedOffset(0));
+    }
+
+    private RevocationDenyList denyList(String fileName, int capacity) {
+        return new RevocationDenyList(tempDir.resolve(fileName), capacity, meterRegistry);
+    }
+
+    /// 32-байтный хэш с заданными первыми 8 байтами (отпечатком)
+    private static byte[] hash(String fingerprintHex) {
+        return HexFormat.of().parseHex(fingerprintHex + "0".repeat(48));
+    }
+}
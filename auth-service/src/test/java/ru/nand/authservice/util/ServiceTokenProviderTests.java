@@ -0,0 +1,99 @@
+package ru.nand.authservice.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ServiceTokenProviderTests {
+    private ServiceJwtUtil serviceJwtUtil;
+    private TaskScheduler taskScheduler;
+
+    @BeforeEach
+    void setUp() {
+        serviceJwtUtil = mock(ServiceJwtUtil.class);
+        taskScheduler = mock(TaskScheduler.class);
+        when(serviceJwtUtil.generateServiceToken()).thenReturn("first", "second", "third");
+    }
+
+    @Test
+    void tokenIsSignedOnceAndRenewedInBackground() {
+        when(serviceJwtUtil.getServiceExpiration()).thenReturn(Duration.ofHours(1));
+        Instant before = Instant.now();
+        ServiceTokenProvider provider = new ServiceTokenProvider(serviceJwtUtil, taskScheduler, new SimpleMeterRegistry(), 0.75, 0.1);
+
+        assertEquals("first", provider.getToken());
+        assertEquals("first", provider.getToken());
+        verify(serviceJwtUtil, times(1)).generateServiceToken();
+
+        // Обновление между 65% и 75% срока жизни
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        ArgumentCaptor<Instant> at = ArgumentCaptor.forClass(Instant.class);
+        verify(taskScheduler).schedule(task.capture(), at.capture());
+        assertTrue(!at.getValue().isBefore(before.plus(Duration.ofMinutes(39))), at.getValue()::toString);
+        assertTrue(!at.getValue().isAfter(Instant.now().plus(Duration.ofMinutes(45))), at.getValue()::toString);
+
+        task.getValue().run();
+
+        assertEquals("second", provider.getToken());
+        verify(taskScheduler, times(2)).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    @Test
+    void expiredTokenIsResignedWhenRenewalLagsBehind() throws InterruptedException {
+        when(serviceJwtUtil.getServiceExpiration()).thenReturn(Duration.ofMillis(20));
+        ServiceTokenProvider provider = new ServiceTokenProvider(serviceJwtUtil, taskScheduler, new SimpleMeterRegistry(), 0.75, 0.1);
+
+        Thread.sleep(30); // Шедулер-заглушка обновление не выполняет
+
+        assertEquals("second", provider.getToken());
+    }
+
+    @Test
+    void tokenCloseToExpiryIsResignedBeforeItExpires() throws InterruptedException {
+        when(serviceJwtUtil.getServiceExpiration()).thenReturn(Duration.ofMillis(400)); // Запас - половина срока, 200 мс
+        ServiceTokenProvider provider = new ServiceTokenProvider(serviceJwtUtil, taskScheduler, new SimpleMeterRegistry(), 0.75, 0.1);
+
+        assertEquals("first", provider.getToken());
+        Thread.sleep(250); // Токен еще действует, но истечет раньше, чем долгий запрос дойдет до account-service
+
+        assertEquals("second", provider.getToken());
+    }
+
+    @Test
+    void interceptorAttachesBearerUnlessCallerSetAuthorization() throws Exception {
+        when(serviceJwtUtil.getServiceExpiration()).thenReturn(Duration.ofHours(1));
+        ServiceTokenProvider provider = new ServiceTokenProvider(serviceJwtUtil, taskScheduler, new SimpleMeterRegistry(), 0.75, 0.1);
+        ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+
+        HttpRequest plain = request(new HttpHeaders());
+        provider.intercept(plain, new byte[0], execution);
+        assertEquals("Bearer first", plain.getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+
+        HttpHeaders custom = new HttpHeaders();
+        custom.setBearerAuth("user-token");
+        provider.intercept(request(custom), new byte[0], execution);
+        assertEquals("Bearer user-token", custom.getFirst(HttpHeaders.AUTHORIZATION));
+    }
+
+    private static HttpRequest request(HttpHeaders headers) {
+        HttpRequest request = mock(HttpRequest.class);
+        when(request.getHeaders()).thenReturn(headers);
+        return request;
+    }
+}
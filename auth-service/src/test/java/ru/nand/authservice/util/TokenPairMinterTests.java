@@ -0,0 +1,107 @@
+package ru.nand.authservice.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.nand.authservice.entity.ENUMS.ROLE;
+import ru.nand.authservice.entity.User;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenPairMinterTests {
+    private static final long ACCESS_EXPIRATION = 900_000L;
+    private static final long REFRESH_EXPIRATION = 86_400_000L;
+
+    private UserJwtUtil userJwtUtil;
+    private TokenPairMinter tokenPairMinter;
+
+    @BeforeEach
+    void setUp() {
+        userJwtUtil = new UserJwtUtil(new VerifiedTokenCache(1000, Duration.ofMinutes(5), new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(userJwtUtil, "userSecretKey", "0123456789abcdef0123456789abcdef0123456789abcdef");
+        ReflectionTestUtils.invokeMethod(userJwtUtil, "init");
+
+        tokenPairMinter = new TokenPairMinter(userJwtUtil, new ObjectMapper());
+        ReflectionTestUtils.setField(tokenPairMinter, "accessTokenExpiration", ACCESS_EXPIRATION);
+        ReflectionTestUtils.setField(tokenPairMinter, "refreshTokenExpiration", REFRESH_EXPIRATION);
+        ReflectionTestUtils.invokeMethod(tokenPairMinter, "init");
+    }
+
+    @Test
+    void mintedTokensPassJjwtVerification() {
+        TokenPair tokens = tokenPairMinter.mint(user());
+
+        VerifiedUserToken access = userJwtUtil.verify(tokens.accessToken()).getToken();
+        VerifiedUserToken refresh = userJwtUtil.verify(tokens.refreshToken()).getToken();
+
+        assertEquals("alice", access.getSubject());
+        assertEquals("ROLE_USER", access.getRole());
+        assertEquals("alice@example.com", access.getEmail());
+        assertEquals(42L, access.getUserId());
+        assertEquals("access", access.getTokenType());
+        assertEquals("refresh", refresh.getTokenType());
+        assertEquals("alice", userJwtUtil.extractUsername(tokens.refreshToken()));
+    }
+
+    @Test
+    void storedHashesAndExpirationsMatchReturnedTokens() {
+        TokenPair tokens = tokenPairMinter.mint(user());
+
+        assertArrayEquals(userJwtUtil.hashToken(tokens.accessToken()), tokens.accessTokenHash());
+        assertArrayEquals(userJwtUtil.hashToken(tokens.refreshToken()), tokens.refreshTokenHash());
+
+        long accessExp = userJwtUtil.verify(tokens.accessToken()).getToken().getExpiresAt().getEpochSecond();
+        assertEquals(tokens.accessTokenExpires().atZone(ZoneId.systemDefault()).toEpochSecond(), accessExp);
+        assertEquals(Duration.ofMillis(REFRESH_EXPIRATION), Duration.between(tokens.issuedAt(), tokens.refreshTokenExpires()));
+    }
+
+    @Test
+    void pairsMintedTogetherAreDistinct() {
+        User user = user();
+
+        TokenPair first = tokenPairMinter.mint(user);
+        TokenPair second = tokenPairMinter.mint(user);
+
+        assertNotEquals(first.accessToken(), second.accessToken());
+        assertNotEquals(first.accessToken(), first.refreshToken());
+        assertTrue(userJwtUtil.verify(second.accessToken()).isValid());
+    }
+
+    @Test
+    void virtualThreadsMintAndHashWithoutThreadLocalCaches() throws Exception {
+        // На виртуальных потоках Mac и дайджест - копии прототипов, результат тот же, что на платформенном
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<TokenPair>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(executor.submit(() -> tokenPairMinter.mint(user())));
+            }
+            for (Future<TokenPair> future : futures) {
+                TokenPair tokens = future.get();
+                assertTrue(userJwtUtil.verify(tokens.accessToken()).isValid());
+                assertArrayEquals(userJwtUtil.hashToken(tokens.refreshToken()), tokens.refreshTokenHash());
+            }
+        }
+    }
+
+    private static User user() {
+        return User.builder()
+                .id(42L)
+                .username("alice")
+                .email("alice@example.com")
+                .role(ROLE.ROLE_USER)
+                .build();
+    }
+}
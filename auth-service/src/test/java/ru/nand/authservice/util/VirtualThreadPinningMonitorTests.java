@@ -0,0 +1,67 @@
+package ru.nand.authservice.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VirtualThreadPinningMonitorTests {
+    private SimpleMeterRegistry meterRegistry;
+    private VirtualThreadPinningMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        monitor = new VirtualThreadPinningMonitor(Duration.ofMillis(5), meterRegistry);
+        monitor.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        monitor.stop();
+    }
+
+    @Test
+    void blockingInsideMonitorIsReported() throws InterruptedException {
+        Object lock = new Object();
+        Thread.ofVirtual().start(() -> {
+            synchronized (lock) {
+                sleep(50); // Парковка внутри synchronized на Java 21 не отпускает carrier
+            }
+        }).join();
+
+        assertTrue(awaitPinned(1), "Pinning was not detected");
+    }
+
+    @Test
+    void blockingOutsideMonitorIsNotReported() throws InterruptedException {
+        Thread.ofVirtual().start(() -> sleep(50)).join();
+
+        assertFalse(awaitPinned(1));
+    }
+
+    private boolean awaitPinned(double expected) throws InterruptedException {
+        // JFR отдает события в поток пачками примерно раз в секунду
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (System.nanoTime() < deadline) {
+            if (meterRegistry.counter("jvm.threads.virtual.pinned").count() >= expected) {
+                return true;
+            }
+            Thread.sleep(100);
+        }
+        return false;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,21 +1,35 @@
 package ru.nand.notificationservice.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import ru.nand.notificationservice.entity.dto.NotificationDTO;
+import ru.nand.notificationservice.util.NotificationAvroDeserializer;
+import ru.nand.notificationservice.util.NotificationSchemaRegistry;
 
 import java.util.HashMap;
 import java.util.Map;
 
+@Slf4j
 @Configuration
 @EnableKafka
 public class KafkaConsumerConfig {
 
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
     @Bean
     public ConsumerFactory<String, String> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
@@ -32,7 +46,71 @@ public class KafkaConsumerConfig {
     public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        useVirtualThreads(factory, "kafka-listener-");
+        return factory;
+    }
+
+    @Bean
+    public NotificationSchemaRegistry notificationSchemaRegistry() {
+        return NotificationSchemaRegistry.load();
+    }
+
+    /// Уведомления auth-notifications-topic в Avro. Нечитаемая запись не роняет listener:
+    /// ErrorHandlingDeserializer передает ошибку обработчику контейнера, тот пропускает запись без повторов
+    @Bean
+    public ConsumerFactory<String, NotificationDTO> notificationConsumerFactory(NotificationSchemaRegistry notificationSchemaRegistry, ObjectMapper objectMapper) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092, localhost:9093, localhost:9094");
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, "auth-group");
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+
+        return new DefaultKafkaConsumerFactory<>(props,
+                new ErrorHandlingDeserializer<>(new StringDeserializer()),
+                new ErrorHandlingDeserializer<>(new NotificationAvroDeserializer(notificationSchemaRegistry, objectMapper)));
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, NotificationDTO> notificationListenerContainerFactory(ConsumerFactory<String, NotificationDTO> notificationConsumerFactory,
+                                                                                                                MeterRegistry meterRegistry) {
+        ConcurrentKafkaListenerContainerFactory<String, NotificationDTO> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(notificationConsumerFactory);
+        // DeserializationException не повторяется (повтор ничего не изменит), остальные ошибки - по умолчанию, затем запись пропускается
+        factory.setCommonErrorHandler(new DefaultErrorHandler((record, e) -> {
+            meterRegistry.counter("notification.consume.failures", "exception", e.getClass().getSimpleName()).increment();
+            log.error("Уведомление {}-{}@{} пропущено: {}", record.topic(), record.partition(), record.offset(), e.getMessage());
+        }));
+        useVirtualThreads(factory, "kafka-notifications-");
         return factory;
     }
 
+    /// Отзывы сессий: у каждого инстанса своя группа, чтобы получать все события, оффсеты хранятся в файле deny-list
+    @Bean
+    public ConsumerFactory<String, String> revocationConsumerFactory(@Value("${spring.application.name}-revocations-${random.uuid}") String groupId) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092, localhost:9093, localhost:9094");
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> revocationListenerContainerFactory(ConsumerFactory<String, String> revocationConsumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(revocationConsumerFactory);
+        useVirtualThreads(factory, "kafka-revocations-");
+        return factory;
+    }
+
+    /// Boot переводит на виртуальные потоки только свою фабрику контейнеров, а фабрики здесь объявлены вручную
+    private void useVirtualThreads(ConcurrentKafkaListenerContainerFactory<?, ?> factory, String threadNamePrefix) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+            executor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(executor);
+        }
+    }
 }
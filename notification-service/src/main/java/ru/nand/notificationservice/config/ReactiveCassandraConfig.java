@@ -0,0 +1,39 @@
+package ru.nand.notificationservice.config;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.cassandra.ReactiveSession;
+import org.springframework.data.cassandra.ReactiveSessionFactory;
+import org.springframework.data.cassandra.core.ReactiveCassandraTemplate;
+import org.springframework.data.cassandra.core.convert.CassandraConverter;
+import org.springframework.data.cassandra.core.cql.session.DefaultBridgedReactiveSession;
+import org.springframework.data.cassandra.core.cql.session.DefaultReactiveSessionFactory;
+import org.springframework.data.cassandra.repository.config.EnableReactiveCassandraRepositories;
+import ru.nand.notificationservice.repository.ReactiveNotificationRepository;
+
+/// Реактивная сессия, шаблон и репозитории Cassandra - только в reactive-режиме. Автоконфигурация Boot подняла бы их
+/// в обоих режимах, поэтому она выключена в application.yml (spring.autoconfigure.exclude, spring.data.cassandra.repositories.type).
+/// Блокирующие NotificationRepository и CqlSession нужны в обоих режимах: через них KafkaNotificationListener сохраняет уведомления
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableReactiveCassandraRepositories(basePackageClasses = ReactiveNotificationRepository.class)
+public class ReactiveCassandraConfig {
+
+    /// Асинхронный драйвер поверх той же CqlSession, отдельного пула соединений нет
+    @Bean
+    public ReactiveSession reactiveCassandraSession(CqlSession cqlSession) {
+        return new DefaultBridgedReactiveSession(cqlSession);
+    }
+
+    @Bean
+    public ReactiveSessionFactory reactiveCassandraSessionFactory(ReactiveSession reactiveCassandraSession) {
+        return new DefaultReactiveSessionFactory(reactiveCassandraSession);
+    }
+
+    @Bean
+    public ReactiveCassandraTemplate reactiveCassandraTemplate(ReactiveSessionFactory reactiveCassandraSessionFactory, CassandraConverter converter) {
+        return new ReactiveCassandraTemplate(reactiveCassandraSessionFactory, converter);
+    }
+}
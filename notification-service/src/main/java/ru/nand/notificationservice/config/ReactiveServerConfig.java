@@ -0,0 +1,18 @@
+package ru.nand.notificationservice.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveServerConfig {
+
+    /// Tomcat в classpath ради servlet-режима, и без явной фабрики Boot поднял бы WebFlux на нем.
+    /// Netty обслуживает все соединения несколькими event-loop потоками (по числу ядер, не меньше 4)
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
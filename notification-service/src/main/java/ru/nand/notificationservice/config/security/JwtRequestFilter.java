@@ -6,6 +6,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -13,19 +14,25 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import ru.nand.notificationservice.entity.User;
 import ru.nand.notificationservice.entity.UserDetailsImpl;
+import ru.nand.notificationservice.util.RevocationDenyList;
+import ru.nand.notificationservice.util.TokenVerificationResult;
 import ru.nand.notificationservice.util.UserJwtUtil;
+import ru.nand.notificationservice.util.VerifiedUserToken;
 
 import java.io.IOException;
 
 @Slf4j
 @Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET) // В reactive-режиме - ReactiveJwtFilter
 public class JwtRequestFilter extends OncePerRequestFilter {
 
     private final UserJwtUtil userJwtUtil;
+    private final RevocationDenyList revocationDenyList;
 
     @Autowired
-    public JwtRequestFilter(UserJwtUtil userJwtUtil) {
+    public JwtRequestFilter(UserJwtUtil userJwtUtil, RevocationDenyList revocationDenyList) {
         this.userJwtUtil = userJwtUtil;
+        this.revocationDenyList = revocationDenyList;
     }
 
 
@@ -35,18 +42,22 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         try{
             if (token != null) {
+                // Подпись, срок действия и claims проверяются за один разбор
+                byte[] tokenHash = userJwtUtil.hashToken(token);
+                TokenVerificationResult verification = userJwtUtil.verify(token, tokenHash);
+
                 // Если токен истек
-                if(!userJwtUtil.validateExpirationUserToken(token)){
+                if(verification.isExpired()){
                     log.warn("Токен истек");
 
                     response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Token expired");
                     return;
                 }
 
-                // Если токен валиден
-                if(userJwtUtil.validateUserToken(token)){
-                    String username = userJwtUtil.extractUsername(token);
-                    String role = userJwtUtil.extractRole(token);
+                // Если токен валиден и его сессия не отозвана (логаут, блокировка, шедулеры auth-service)
+                if(verification.isValid() && !revocationDenyList.isRevoked(tokenHash)){
+                    VerifiedUserToken verifiedToken = verification.getToken();
+                    String username = verifiedToken.getSubject();
 
                     if(username != null && SecurityContextHolder.getContext().getAuthentication() == null){
                         UserDetails userDetails = new UserDetailsImpl(
@@ -58,13 +69,14 @@ public class JwtRequestFilter extends OncePerRequestFilter {
                                 new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
 
                         SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+                        request.setAttribute(VerifiedUserToken.REQUEST_ATTRIBUTE, verifiedToken); // Чтобы дальше по цепочке токен не разбирали заново
                         log.debug("Пользователь {} в КБ", userDetails);
                     } else {
                         log.error("Не получилось достать username: {} или в КБ уже есть пользователь: {}", username, SecurityContextHolder.getContext().getAuthentication().getName());
                         response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Token processing error");
                     }
                 } else {
-                    log.error("Токен не прошел валидацию или сессия неактивна");
+                    log.warn("Токен не прошел валидацию или сессия неактивна");
                     response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Token invalid or session is inactive");
                     return;
                 }
@@ -0,0 +1,81 @@
+package ru.nand.notificationservice.config.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import ru.nand.notificationservice.entity.User;
+import ru.nand.notificationservice.entity.UserDetailsImpl;
+import ru.nand.notificationservice.util.RevocationDenyList;
+import ru.nand.notificationservice.util.TokenVerificationResult;
+import ru.nand.notificationservice.util.UserJwtUtil;
+import ru.nand.notificationservice.util.VerifiedUserToken;
+
+/// Аналог JwtRequestFilter для WebFlux с теми же ответами. Проверка токена - разбор с HMAC, кэш проверенных токенов
+/// и deny-list в памяти, без ввода-вывода, поэтому выполняется прямо на event-loop потоке. Аутентификация
+/// передается дальше через контекст Reactor, а не ThreadLocal, так как запрос может продолжиться на другом потоке.
+/// Не бин: включается в цепочку Spring Security в ReactiveWebSecurityConfig, иначе WebFlux добавил бы его второй раз
+@Slf4j
+public class ReactiveJwtFilter implements WebFilter {
+
+    private final UserJwtUtil userJwtUtil;
+    private final RevocationDenyList revocationDenyList;
+
+    public ReactiveJwtFilter(UserJwtUtil userJwtUtil, RevocationDenyList revocationDenyList) {
+        this.userJwtUtil = userJwtUtil;
+        this.revocationDenyList = revocationDenyList;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String token = userJwtUtil.resolveUserToken(exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+        if (token == null) {
+            log.error("Токен не обнаружен в заголовке");
+            return Mono.error(new ResponseStatusException(HttpStatus.FORBIDDEN, "Token not found"));
+        }
+
+        VerifiedUserToken verifiedToken;
+        try {
+            // Подпись, срок действия и claims проверяются за один разбор
+            byte[] tokenHash = userJwtUtil.hashToken(token);
+            TokenVerificationResult verification = userJwtUtil.verify(token, tokenHash);
+
+            if (verification.isExpired()) {
+                log.warn("Токен истек");
+                return Mono.error(new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Token expired"));
+            }
+
+            if (!verification.isValid() || revocationDenyList.isRevoked(tokenHash)) {
+                log.warn("Токен не прошел валидацию или сессия неактивна");
+                return Mono.error(new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Token invalid or session is inactive"));
+            }
+
+            verifiedToken = verification.getToken();
+        } catch (Exception e) {
+            log.error("Ошибка обработки токена: {}", e.getMessage());
+            return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Token processing error"));
+        }
+
+        String username = verifiedToken.getSubject();
+        if (username == null) {
+            log.error("Не получилось достать username из токена");
+            return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Token processing error"));
+        }
+
+        UserDetails userDetails = new UserDetailsImpl(new User(username));
+        UsernamePasswordAuthenticationToken authenticationToken =
+                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        exchange.getAttributes().put(VerifiedUserToken.REQUEST_ATTRIBUTE, verifiedToken); // Чтобы дальше по цепочке токен не разбирали заново
+        log.debug("Пользователь {} в КБ", username);
+
+        return chain.filter(exchange)
+                .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authenticationToken));
+    }
+}
@@ -0,0 +1,52 @@
+package ru.nand.notificationservice.config.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import reactor.core.publisher.Mono;
+import ru.nand.notificationservice.util.RevocationDenyList;
+import ru.nand.notificationservice.util.UserJwtUtil;
+
+/// Безопасность для spring.main.web-application-type=reactive, в servlet-режиме - WebSecurityConfig
+@Configuration
+@EnableWebFluxSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebSecurityConfig {
+
+    private final UserJwtUtil userJwtUtil;
+    private final RevocationDenyList revocationDenyList;
+
+    @Autowired
+    public ReactiveWebSecurityConfig(UserJwtUtil userJwtUtil, RevocationDenyList revocationDenyList) {
+        this.userJwtUtil = userJwtUtil;
+        this.revocationDenyList = revocationDenyList;
+    }
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity httpSecurity) {
+        return httpSecurity
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                .logout(ServerHttpSecurity.LogoutSpec::disable)
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance()) // Без сессий, как STATELESS
+                .addFilterAt(new ReactiveJwtFilter(userJwtUtil, revocationDenyList), SecurityWebFiltersOrder.AUTHENTICATION)
+                .authorizeExchange(exchanges -> exchanges
+                        .anyExchange().authenticated()
+                )
+                .build();
+    }
+
+    /// Аутентифицирует только ReactiveJwtFilter. Бин нужен, чтобы Boot не создавал пользователя с паролем по умолчанию
+    @Bean
+    public ReactiveAuthenticationManager reactiveAuthenticationManager() {
+        return authentication -> Mono.empty();
+    }
+}
@@ -2,6 +2,7 @@ package ru.nand.notificationservice.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
@@ -13,6 +14,7 @@ import java.util.UUID;
 @Slf4j
 @RestController
 @RequestMapping("/api/notification")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET) // В reactive-режиме - ReactiveNotificationController
 public class NotificationController {
     private final NotificationService notificationService;
 
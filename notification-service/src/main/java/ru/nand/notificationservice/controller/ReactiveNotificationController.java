@@ -0,0 +1,53 @@
+package ru.nand.notificationservice.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.nand.notificationservice.entity.dto.NotificationDTO;
+import ru.nand.notificationservice.service.ReactiveNotificationService;
+import ru.nand.notificationservice.util.VerifiedUserToken;
+
+import java.util.UUID;
+
+/// /api/notification на WebFlux (spring.main.web-application-type=reactive). Список отдается потоком:
+/// JSON-массив или application/x-ndjson, элементы пишутся по мере записи в сокет, и медленный клиент
+/// через обратное давление тормозит чтение страниц из Cassandra, не занимая поток
+@Slf4j
+@RestController
+@RequestMapping("/api/notification")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveNotificationController {
+    private final ReactiveNotificationService notificationService;
+
+    @Autowired
+    public ReactiveNotificationController(ReactiveNotificationService notificationService) {
+        this.notificationService = notificationService;
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<NotificationDTO> getAll(@RequestAttribute(VerifiedUserToken.REQUEST_ATTRIBUTE) VerifiedUserToken token) {
+        log.info("Запрос от клиента на получение всех уведомлений");
+        return notificationService.getAllByEmail(token.getEmail());
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<?>> get(@PathVariable UUID id, @RequestAttribute(VerifiedUserToken.REQUEST_ATTRIBUTE) VerifiedUserToken token) {
+        log.info("Запрос от клиента на получение уведомления по идентификатору");
+        return notificationService.getById(id, token.getEmail())
+                .<ResponseEntity<?>>map(notification -> ResponseEntity.status(200).body(notification))
+                .defaultIfEmpty(ResponseEntity.status(404).body("Notification not found"));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<?>> delete(@PathVariable UUID id, @RequestAttribute(VerifiedUserToken.REQUEST_ATTRIBUTE) VerifiedUserToken token) {
+        log.info("Запрос от клиента на удаление уведомления");
+        return notificationService.deleteById(id, token.getEmail())
+                .<ResponseEntity<?>>map(message -> ResponseEntity.status(200).body(message))
+                .onErrorResume(RuntimeException.class, e -> Mono.just(ResponseEntity.status(400).body("Cannot delete notification")));
+    }
+}
@@ -19,8 +19,8 @@ public class UserSession {
     @Column(name = "id")
     private Long id;
 
-    @Column(name = "access_token_hash", columnDefinition = "TEXT")
-    private String accessTokenHash;
+    @Column(name = "access_token_hash", columnDefinition = "bytea", length = 32, unique = true) // SHA-256 в бинарном виде
+    private byte[] accessTokenHash;
 
     private LocalDateTime lastActivityTime;
 
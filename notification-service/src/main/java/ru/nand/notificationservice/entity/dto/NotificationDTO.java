@@ -3,11 +3,14 @@ package ru.nand.notificationservice.entity.dto;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.nand.notificationservice.entity.Notification;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Data
+@NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class NotificationDTO {
@@ -20,4 +23,15 @@ public class NotificationDTO {
     private String userEmail;
 
     private LocalDateTime creationDate;
+
+    /// Маппинг сущности в DTO
+    public static NotificationDTO from(Notification n) {
+        return NotificationDTO.builder()
+                .notificationId(n.getKey().getNotificationId())
+                .createdAt(n.getKey().getCreatedAt())
+                .message(n.getMessage())
+                .userEmail(n.getKey().getUserEmail())
+                .creationDate(n.getCreationDate())
+                .build();
+    }
 }
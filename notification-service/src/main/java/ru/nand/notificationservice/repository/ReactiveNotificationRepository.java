@@ -0,0 +1,26 @@
+package ru.nand.notificationservice.repository;
+
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.data.cassandra.repository.ReactiveCassandraRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.nand.notificationservice.entity.Notification;
+
+import java.util.UUID;
+
+/// Те же запросы, что в NotificationRepository, на асинхронном драйвере. Строки приходят страницами
+/// (spring.cassandra.request.page-size), следующая страница запрашивается только по спросу подписчика
+@Repository
+public interface ReactiveNotificationRepository extends ReactiveCassandraRepository<Notification, Notification.NotificationKey> {
+    // Все уведомления пользователя, отсортированные по createdAt DESC
+    Flux<Notification> findAllByKeyUserEmailOrderByKeyCreatedAtDesc(String userEmail);
+
+    // Поиск в пределах партиции пользователя, как в NotificationRepository
+    @Query("SELECT * FROM notifications WHERE user_email = :userEmail AND notification_id = :notificationId ALLOW FILTERING")
+    Mono<Notification> findByUserEmailAndNotificationId(
+            @Param("userEmail") String userEmail,
+            @Param("notificationId") UUID notificationId
+    );
+}
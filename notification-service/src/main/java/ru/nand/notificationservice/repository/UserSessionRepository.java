@@ -8,5 +8,5 @@ import java.util.Optional;
 
 @Repository
 public interface UserSessionRepository extends JpaRepository<UserSession, Long> {
-    Optional<UserSession> findByAccessTokenHash(String accessTokenHash);
+    Optional<UserSession> findByAccessTokenHash(byte[] accessTokenHash);
 }
@@ -1,7 +1,5 @@
 package ru.nand.notificationservice.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
@@ -12,22 +10,19 @@ import ru.nand.notificationservice.entity.dto.NotificationDTO;
 @Service
 public class KafkaNotificationListener implements NotificationListener{
     private final SenderService senderService;
-    private final ObjectMapper mapper;
     private final NotificationService notificationService;
 
     @Autowired
-    public KafkaNotificationListener(SenderService senderService, ObjectMapper mapper, NotificationService notificationService) {
+    public KafkaNotificationListener(SenderService senderService, NotificationService notificationService) {
         this.senderService = senderService;
-        this.mapper = mapper;
         this.notificationService = notificationService;
     }
 
     /// Обработчик для уведомлений о регистрации
     @Override
-    @KafkaListener(topics = "auth-notifications-topic")
-    public void handleAuthNotification(String message) throws JsonProcessingException {
+    @KafkaListener(topics = "auth-notifications-topic", containerFactory = "notificationListenerContainerFactory")
+    public void handleAuthNotification(NotificationDTO notificationDTO) {
         log.info("В auth слушатель принято уведомление");
-        NotificationDTO notificationDTO = mapper.readValue(message, NotificationDTO.class);
 
         senderService.send(notificationDTO.getUserEmail(), "Регистрация аккаунта", notificationDTO.getUserEmail());
 
@@ -37,7 +32,7 @@ public class KafkaNotificationListener implements NotificationListener{
     /// Обработчик для уведомлений об изменениях в аккаунте (изменение электронной почты)
     @Override
     @KafkaListener() // TODO
-    public void handleAccountNotification(String message) throws JsonProcessingException {
+    public void handleAccountNotification(String message) {
 
     }
 }
@@ -1,12 +1,23 @@
 package ru.nand.notificationservice.service;
 
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/// Отправка писем. SMTPTransport (Jakarta Mail) держит монитор на все время connect/sendMessage, и на Java 21
+/// виртуальный поток внутри synchronized закрепляет carrier-поток на весь обмен с SMTP-сервером. Поэтому с виртуального
+/// потока письмо уходит через небольшой пул платформенных потоков, а сам виртуальный поток паркуется на Future без закрепления
 @Slf4j
 @Service
 public class MailSenderService implements SenderService{
@@ -15,10 +26,18 @@ public class MailSenderService implements SenderService{
     private String sender;
 
     private final JavaMailSender javaMailSender;
+    private final ExecutorService mailExecutor;
 
     @Autowired
-    public MailSenderService(JavaMailSender javaMailSender) {
+    public MailSenderService(JavaMailSender javaMailSender, @Value("${mail.executor.threads:4}") int mailThreads) {
         this.javaMailSender = javaMailSender;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.mailExecutor = Executors.newFixedThreadPool(mailThreads, runnable -> {
+            Thread thread = new Thread(runnable, "mail-sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     @Override
@@ -31,6 +50,29 @@ public class MailSenderService implements SenderService{
         mailMessage.setText(message);
 
         log.debug("Создано уведомление {} для отправки на почту пользователю {}", message, targetUserEmail);
-        javaMailSender.send(mailMessage);
+        if (!Thread.currentThread().isVirtual()) {
+            javaMailSender.send(mailMessage);
+            return;
+        }
+
+        Future<?> sending = mailExecutor.submit(() -> javaMailSender.send(mailMessage));
+        try {
+            sending.get();
+        } catch (ExecutionException e) {
+            // Исключение отправки как есть, чтобы обработчик ошибок listener'а видел ту же MailException
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new MailSendException("Mail sending failed", e.getCause());
+        } catch (InterruptedException e) {
+            sending.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while sending mail", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        mailExecutor.shutdown();
     }
 }
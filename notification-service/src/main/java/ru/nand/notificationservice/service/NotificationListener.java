@@ -1,8 +1,8 @@
 package ru.nand.notificationservice.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import ru.nand.notificationservice.entity.dto.NotificationDTO;
 
 public interface NotificationListener {
-    void handleAuthNotification(String message) throws JsonProcessingException;
-    void handleAccountNotification(String message) throws JsonProcessingException;
+    void handleAuthNotification(NotificationDTO notificationDTO);
+    void handleAccountNotification(String message);
 }
@@ -6,6 +6,7 @@ import org.springframework.stereotype.Service;
 import ru.nand.notificationservice.entity.Notification;
 import ru.nand.notificationservice.entity.dto.NotificationDTO;
 import ru.nand.notificationservice.repository.NotificationRepository;
+import ru.nand.notificationservice.util.TokenVerificationResult;
 import ru.nand.notificationservice.util.UserJwtUtil;
 
 import java.time.LocalDateTime;
@@ -13,6 +14,8 @@ import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
+/// Блокирующее чтение для NotificationController и запись уведомлений для KafkaNotificationListener.
+/// Загружается в обоих режимах: в reactive-режиме через него по-прежнему сохраняются уведомления из Kafka
 @Service
 public class NotificationServiceImpl implements NotificationService {
     private final NotificationRepository notificationRepository;
@@ -31,7 +34,7 @@ public class NotificationServiceImpl implements NotificationService {
 
         return notificationRepository.findAllByKeyUserEmailOrderByKeyCreatedAtDesc(email)
                 .stream()
-                .map(this::toDto)
+                .map(NotificationDTO::from)
                 .collect(Collectors.toList());
     }
 
@@ -44,7 +47,7 @@ public class NotificationServiceImpl implements NotificationService {
                 .findByUserEmailAndNotificationId(email, notificationId)
                 .orElseThrow(() -> new IllegalArgumentException("Notification not found"));
 
-        return toDto(notification);
+        return NotificationDTO.from(notification);
     }
 
     /// Удаление по идентификатору
@@ -92,17 +95,11 @@ public class NotificationServiceImpl implements NotificationService {
             throw new RuntimeException("Not full header");
         }
 
-        return userJwtUtil.extractEmail(accessToken);
-    }
+        TokenVerificationResult verification = userJwtUtil.verify(accessToken);
+        if (!verification.isValid()) {
+            throw new RuntimeException("Invalid access token");
+        }
 
-    /// Вспомогательный метод для маппинга сущности в DTO
-    private NotificationDTO toDto(Notification n) {
-        return NotificationDTO.builder()
-                .notificationId(n.getKey().getNotificationId())
-                .createdAt(n.getKey().getCreatedAt())
-                .message(n.getMessage())
-                .userEmail(n.getKey().getUserEmail())
-                .creationDate(n.getCreationDate())
-                .build();
+        return verification.getToken().getEmail();
     }
 }
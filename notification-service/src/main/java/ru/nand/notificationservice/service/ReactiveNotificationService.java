@@ -0,0 +1,13 @@
+package ru.nand.notificationservice.service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.nand.notificationservice.entity.dto.NotificationDTO;
+
+import java.util.UUID;
+
+public interface ReactiveNotificationService {
+    Flux<NotificationDTO> getAllByEmail(String email);
+    Mono<NotificationDTO> getById(UUID notificationId, String email);
+    Mono<String> deleteById(UUID notificationId, String email);
+}
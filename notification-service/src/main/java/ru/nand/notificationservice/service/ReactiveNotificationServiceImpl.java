@@ -0,0 +1,47 @@
+package ru.nand.notificationservice.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.nand.notificationservice.entity.dto.NotificationDTO;
+import ru.nand.notificationservice.repository.ReactiveNotificationRepository;
+
+import java.util.UUID;
+
+/// Чтение и удаление уведомлений без блокировок. Почта берется из токена, уже проверенного ReactiveJwtFilter.
+/// Только в reactive-режиме, как и ReactiveNotificationRepository (см. ReactiveCassandraConfig)
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveNotificationServiceImpl implements ReactiveNotificationService {
+    private final ReactiveNotificationRepository notificationRepository;
+
+    @Autowired
+    public ReactiveNotificationServiceImpl(ReactiveNotificationRepository notificationRepository) {
+        this.notificationRepository = notificationRepository;
+    }
+
+    /// Все уведомления пользователя потоком, без сборки списка в памяти
+    @Override
+    public Flux<NotificationDTO> getAllByEmail(String email) {
+        return notificationRepository.findAllByKeyUserEmailOrderByKeyCreatedAtDesc(email)
+                .map(NotificationDTO::from);
+    }
+
+    /// Получение конкретного уведомления (пустой Mono, если его нет)
+    @Override
+    public Mono<NotificationDTO> getById(UUID notificationId, String email) {
+        return notificationRepository.findByUserEmailAndNotificationId(email, notificationId)
+                .map(NotificationDTO::from);
+    }
+
+    /// Удаление по идентификатору
+    @Override
+    public Mono<String> deleteById(UUID notificationId, String email) {
+        return notificationRepository.findByUserEmailAndNotificationId(email, notificationId)
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Notification not found")))
+                .flatMap(notification -> notificationRepository.deleteById(notification.getKey()))
+                .thenReturn("Notification deleted successfully");
+    }
+}
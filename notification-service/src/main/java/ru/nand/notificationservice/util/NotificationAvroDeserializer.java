@@ -0,0 +1,86 @@
+package ru.nand.notificationservice.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import ru.nand.notificationservice.entity.dto.NotificationDTO;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/// Avro запись auth-notifications-topic ([0][id схемы][Avro binary]) в NotificationDTO.
+/// Запись читается схемой писателя и приводится к последней известной версии (правила эволюции - NotificationSchemaRegistry).
+/// JSON сообщения, оставшиеся в топике с прежнего формата, читаются ObjectMapper.
+/// Ошибки - SerializationException, в контейнере их перехватывает ErrorHandlingDeserializer
+public class NotificationAvroDeserializer implements Deserializer<NotificationDTO> {
+    private final NotificationSchemaRegistry registry;
+    private final ObjectMapper objectMapper;
+    private final Map<Integer, DatumReader<GenericRecord>> readers = new ConcurrentHashMap<>(); // id схемы писателя -> reader
+
+    public NotificationAvroDeserializer(NotificationSchemaRegistry registry, ObjectMapper objectMapper) {
+        this.registry = registry;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public NotificationDTO deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.length > 0 && data[0] == '{') {
+            return readLegacyJson(data);
+        }
+        if (data.length < NotificationSchemaRegistry.HEADER_LENGTH || data[0] != NotificationSchemaRegistry.MAGIC_BYTE) {
+            throw new SerializationException("Unknown notification format, " + data.length + " bytes");
+        }
+
+        int schemaId = ByteBuffer.wrap(data, 1, 4).getInt();
+        DatumReader<GenericRecord> reader = readers.computeIfAbsent(schemaId,
+                id -> new GenericDatumReader<>(registry.schema(id), registry.latest()));
+        try {
+            GenericRecord record = reader.read(null, DecoderFactory.get().binaryDecoder(
+                    data, NotificationSchemaRegistry.HEADER_LENGTH, data.length - NotificationSchemaRegistry.HEADER_LENGTH, null));
+            return toNotificationDTO(record);
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Failed to decode notification with schema id " + schemaId, e);
+        }
+    }
+
+    private NotificationDTO readLegacyJson(byte[] data) {
+        try {
+            return objectMapper.readValue(data, NotificationDTO.class);
+        } catch (IOException e) {
+            throw new SerializationException("Failed to parse legacy JSON notification", e);
+        }
+    }
+
+    private static NotificationDTO toNotificationDTO(GenericRecord record) {
+        Object creationDate = record.get("creationDate");
+        return NotificationDTO.builder()
+                .notificationId(toUuid(record.get("notificationId")))
+                .createdAt(toUuid(record.get("createdAt")))
+                .message(record.get("message").toString())
+                .userEmail(record.get("userEmail").toString())
+                .creationDate(creationDate == null ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli((Long) creationDate), ZoneOffset.UTC))
+                .build();
+    }
+
+    private static UUID toUuid(Object fixed) {
+        if (fixed == null) {
+            return null;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(((GenericData.Fixed) fixed).bytes());
+        return new UUID(bytes.getLong(), bytes.getLong());
+    }
+}
@@ -0,0 +1,78 @@
+package ru.nand.notificationservice.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaCompatibility;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/// Встроенный реестр схем уведомлений (вместо внешнего Schema Registry).
+/// Версии лежат в resources/avro/notification/v{N}.avsc и нумеруются подряд с 1, id схемы в сообщении - номер версии.
+/// Правила эволюции проверяются при старте: любая пара версий совместима в обе стороны (FULL_TRANSITIVE),
+/// то есть поля только добавляются или удаляются и всегда имеют default. Новая версия сначала добавляется
+/// в notification-service, затем в auth-service - потребитель должен знать схему писателя
+@Slf4j
+public final class NotificationSchemaRegistry {
+    public static final byte MAGIC_BYTE = 0;
+    public static final int HEADER_LENGTH = 5; // magic + int id схемы
+    private static final String SCHEMA_PATH = "avro/notification/v%d.avsc";
+
+    private final List<Schema> versions; // versions[id - 1]
+
+    private NotificationSchemaRegistry(List<Schema> versions) {
+        this.versions = List.copyOf(versions);
+    }
+
+    public static NotificationSchemaRegistry load() {
+        List<Schema> versions = new ArrayList<>();
+        for (int id = 1; ; id++) {
+            try (InputStream in = NotificationSchemaRegistry.class.getClassLoader().getResourceAsStream(SCHEMA_PATH.formatted(id))) {
+                if (in == null) {
+                    break;
+                }
+                versions.add(new Schema.Parser().parse(in));
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to read notification schema v" + id, e);
+            }
+        }
+        if (versions.isEmpty()) {
+            throw new IllegalStateException("No notification schemas found in " + SCHEMA_PATH.formatted(1));
+        }
+
+        checkCompatibility(versions);
+        log.info("Загружено {} версий схемы уведомлений", versions.size());
+        return new NotificationSchemaRegistry(versions);
+    }
+
+    public int latestId() {
+        return versions.size();
+    }
+
+    public Schema latest() {
+        return versions.getLast();
+    }
+
+    public Schema schema(int id) {
+        if (id < 1 || id > versions.size()) {
+            throw new SerializationException("Unknown notification schema id " + id);
+        }
+        return versions.get(id - 1);
+    }
+
+    static void checkCompatibility(List<Schema> versions) {
+        for (int reader = 0; reader < versions.size(); reader++) {
+            for (int writer = 0; writer < versions.size(); writer++) {
+                SchemaCompatibility.SchemaPairCompatibility compatibility =
+                        SchemaCompatibility.checkReaderWriterCompatibility(versions.get(reader), versions.get(writer));
+                if (compatibility.getType() != SchemaCompatibility.SchemaCompatibilityType.COMPATIBLE) {
+                    throw new IllegalStateException("Notification schema v" + (reader + 1) + " cannot read v" + (writer + 1)
+                            + ": " + compatibility.getDescription());
+                }
+            }
+        }
+    }
+}
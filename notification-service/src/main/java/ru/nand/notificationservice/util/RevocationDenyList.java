@@ -0,0 +1,346 @@
+package ru.nand.notificationservice.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/// Deny-list отозванных токенов: открытая адресация по 64-битным отпечаткам хэша токена в memory-mapped файле.
+/// Чтение без блокировок (acquire/release через VarHandle), запись - один поток слушателя отзывов.
+/// В заголовке файла хранятся обработанные оффсеты партиций, поэтому после рестарта не нужно перечитывать весь топик.
+/// Цепочка пробирования ограничена MAX_PROBE слотами, истекшие записи, через которые не проходит ни одна живая цепочка,
+/// возвращаются в EMPTY при уплотнении. Отзыв, которому не нашлось места, хранится в памяти и учитывается при проверке
+@Slf4j
+@Component
+public class RevocationDenyList {
+    private static final long MAGIC = 0x45564c4b_444e594cL; // "EVLKDNYL"
+    private static final int HEADER_SIZE = 4096;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int OVERFLOWED_OFFSET = 16; // 1 - часть отзывов была только в памяти, после рестарта топик читается заново
+    private static final int PARTITION_OFFSETS_OFFSET = 64;
+    private static final int MAX_PARTITIONS = (HEADER_SIZE - PARTITION_OFFSETS_OFFSET) / Long.BYTES;
+    private static final int SLOT_SIZE = 16; // [отпечаток][истечение, epoch ms]
+    private static final int MAX_PROBE = 32;
+    private static final long MIN_COMPACTION_INTERVAL_MILLIS = 1000;
+    private static final long EMPTY = 0L;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final VarHandle HASH_PREFIX = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final FileChannel channel;
+    private final FileLock fileLock;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int mask;
+    private final int maxProbe;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Map<Long, Long> overflow = new ConcurrentHashMap<>(); // Отпечаток -> истечение, для отзывов без места в таблице
+    private final Counter overflowed;
+    private final Counter reclaimed;
+    private long lastCompactionAt;
+
+    @Autowired
+    public RevocationDenyList(@Value("${revocation.deny-list.path:${java.io.tmpdir}/${spring.application.name}-${server.port}-deny-list.bin}") Path path,
+                              @Value("${revocation.deny-list.capacity:1048576}") int capacity,
+                              MeterRegistry meterRegistry) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Deny-list capacity must be a power of two");
+        }
+
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.maxProbe = Math.min(MAX_PROBE, capacity);
+
+        // Файл принадлежит одному процессу: если его держит другой инстанс на этом хосте, работаем с временной копией
+        long size = HEADER_SIZE + (long) capacity * SLOT_SIZE;
+        FileChannel lockedChannel = open(path);
+        FileLock lock = tryLock(lockedChannel);
+        if (lock == null) {
+            closeQuietly(lockedChannel);
+            Path instancePath = createTempFile(path);
+            log.warn("Файл deny-list {} занят другим процессом, используется {}", path, instancePath);
+            lockedChannel = open(instancePath);
+            lock = tryLock(lockedChannel);
+            path = instancePath;
+        }
+        this.channel = lockedChannel;
+        this.fileLock = lock;
+        this.buffer = map(channel, size, path);
+
+        // Файл от другой конфигурации или новый - начинаем с пустой таблицы и без оффсетов
+        if ((long) LONGS.get(buffer, 0) != MAGIC || (long) LONGS.get(buffer, CAPACITY_OFFSET) != capacity) {
+            log.info("Инициализация deny-list в {} на {} записей", path, capacity);
+            for (int position = 0; position < buffer.capacity(); position += Long.BYTES) {
+                LONGS.set(buffer, position, 0L);
+            }
+            resetPartitionOffsets();
+            LONGS.set(buffer, CAPACITY_OFFSET, (long) capacity);
+            LONGS.setRelease(buffer, 0, MAGIC);
+        } else if ((long) LONGS.get(buffer, OVERFLOWED_OFFSET) != 0L) {
+            // Отзывы из памяти прошлого процесса потеряны - перечитываем топик с начала
+            log.warn("Deny-list {} переполнялся до рестарта, отзывы будут перечитаны из топика", path);
+            resetPartitionOffsets();
+            LONGS.setRelease(buffer, OVERFLOWED_OFFSET, 0L);
+        }
+
+        this.overflowed = meterRegistry.counter("revocation.deny-list.overflow");
+        this.reclaimed = meterRegistry.counter("revocation.deny-list.reclaimed");
+        meterRegistry.gauge("revocation.deny-list.overflow.size", overflow, Map::size);
+    }
+
+    /// Отпечаток токена - первые 8 байт его SHA-256 хэша (hex, как в ключе события отзыва)
+    public static long fingerprint(String tokenHash) {
+        return nonEmpty(Long.parseUnsignedLong(tokenHash.substring(0, 16), 16));
+    }
+
+    /// Отпечаток токена - первые 8 байт его SHA-256 хэша
+    public static long fingerprint(byte[] tokenHash) {
+        return nonEmpty((long) HASH_PREFIX.get(tokenHash, 0));
+    }
+
+    /// Отозван ли токен (не больше MAX_PROBE слотов, без блокировок и аллокаций, пока нет переполнения)
+    public boolean isRevoked(byte[] tokenHash) {
+        long fingerprint = fingerprint(tokenHash);
+        long now = System.currentTimeMillis();
+        int index = spread(fingerprint);
+
+        for (int probe = 0; probe < maxProbe; probe++) {
+            int position = slotPosition((index + probe) & mask);
+            long current = (long) LONGS.getAcquire(buffer, position);
+
+            if (current == EMPTY) {
+                break;
+            }
+            if (current == fingerprint && (long) LONGS.getAcquire(buffer, position + Long.BYTES) > now) {
+                return true;
+            }
+        }
+
+        if (overflow.isEmpty()) {
+            return false;
+        }
+        Long expiresAt = overflow.get(fingerprint);
+        return expiresAt != null && expiresAt > now;
+    }
+
+    /// Добавление отозванного токена до момента expiresAtMillis (после него токен отсекается проверкой exp)
+    public void revoke(String tokenHash, long expiresAtMillis) {
+        long fingerprint = fingerprint(tokenHash);
+        long now = System.currentTimeMillis();
+        if (expiresAtMillis <= now) {
+            return;
+        }
+
+        writeLock.lock();
+        try {
+            if (place(fingerprint, expiresAtMillis, now)) {
+                return;
+            }
+
+            // Цепочка заполнена: освобождаем истекшие слоты и пробуем еще раз
+            if (now - lastCompactionAt >= MIN_COMPACTION_INTERVAL_MILLIS) {
+                compact(now);
+                if (place(fingerprint, expiresAtMillis, now)) {
+                    return;
+                }
+            }
+
+            overflow.merge(fingerprint, expiresAtMillis, Math::max);
+            overflowed.increment();
+            LONGS.setRelease(buffer, OVERFLOWED_OFFSET, 1L);
+            log.error("Deny-list переполнен, отзыв токена хранится только в памяти (всего {})", overflow.size());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /// Освобождение истекших записей и перенос отзывов из памяти в таблицу
+    public void compact() {
+        writeLock.lock();
+        try {
+            compact(System.currentTimeMillis());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /// Последний обработанный оффсет партиции (-1, если партиция еще не читалась)
+    public long committedOffset(int partition) {
+        if (partition >= MAX_PARTITIONS) {
+            return -1L;
+        }
+        return (long) LONGS.getAcquire(buffer, PARTITION_OFFSETS_OFFSET + partition * Long.BYTES);
+    }
+
+    /// Запоминание обработанного оффсета партиции
+    public void commitOffset(int partition, long offset) {
+        if (partition < MAX_PARTITIONS) {
+            LONGS.setRelease(buffer, PARTITION_OFFSETS_OFFSET + partition * Long.BYTES, offset);
+        }
+    }
+
+    public void flush() {
+        buffer.force();
+    }
+
+    /// Сброс на диск и освобождение файла для следующего процесса
+    @PreDestroy
+    public void close() {
+        flush();
+        try {
+            fileLock.release();
+        } catch (IOException e) {
+            log.warn("Не удалось освободить блокировку deny-list: {}", e.getMessage());
+        }
+        closeQuietly(channel);
+    }
+
+    /// Запись в первый подходящий слот цепочки: тот же отпечаток продлевается, пустой или истекший занимается
+    private boolean place(long fingerprint, long expiresAtMillis, long now) {
+        int index = spread(fingerprint);
+        for (int probe = 0; probe < maxProbe; probe++) {
+            int position = slotPosition((index + probe) & mask);
+            long current = (long) LONGS.getAcquire(buffer, position);
+            long expiresAt = (long) LONGS.getAcquire(buffer, position + Long.BYTES);
+
+            if (current == fingerprint || current == EMPTY || expiresAt <= now) {
+                LONGS.setRelease(buffer, position + Long.BYTES, Math.max(expiresAtMillis, current == fingerprint ? expiresAt : 0L));
+                LONGS.setRelease(buffer, position, fingerprint);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /// Истекший слот становится EMPTY, только если через него не проходит цепочка живой записи: читатели, идущие
+    /// без блокировок, останавливаются на EMPTY, и живая запись за ним была бы потеряна. Записи не перемещаются
+    private void compact(long now) {
+        lastCompactionAt = now;
+        int freed = 0;
+
+        for (int slot = 0; slot < capacity; slot++) {
+            int position = slotPosition(slot);
+            long current = (long) LONGS.getAcquire(buffer, position);
+            if (current == EMPTY || (long) LONGS.getAcquire(buffer, position + Long.BYTES) > now) {
+                continue;
+            }
+
+            if (!crossedByLiveChain(slot, now)) {
+                LONGS.setRelease(buffer, position, EMPTY);
+                LONGS.setRelease(buffer, position + Long.BYTES, 0L);
+                freed++;
+            }
+        }
+
+        overflow.values().removeIf(expiresAt -> expiresAt <= now);
+        overflow.entrySet().removeIf(entry -> place(entry.getKey(), entry.getValue(), now));
+        if (overflow.isEmpty()) {
+            LONGS.setRelease(buffer, OVERFLOWED_OFFSET, 0L); // Все отзывы снова в файле
+        }
+
+        reclaimed.increment(freed);
+        log.info("Уплотнение deny-list: освобождено {} слотов, в памяти {} отзывов", freed, overflow.size());
+    }
+
+    /// Есть ли дальше по таблице живая запись, чья цепочка начинается не позже slot
+    private boolean crossedByLiveChain(int slot, long now) {
+        for (int distance = 1; distance < maxProbe; distance++) {
+            int next = (slot + distance) & mask;
+            int position = slotPosition(next);
+            long current = (long) LONGS.getAcquire(buffer, position);
+
+            if (current == EMPTY) {
+                return false; // Вставка не перескакивает EMPTY, значит цепочек через slot дальше нет
+            }
+            if ((long) LONGS.getAcquire(buffer, position + Long.BYTES) > now && ((next - spread(current)) & mask) >= distance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void resetPartitionOffsets() {
+        for (int partition = 0; partition < MAX_PARTITIONS; partition++) {
+            LONGS.set(buffer, PARTITION_OFFSETS_OFFSET + partition * Long.BYTES, -1L);
+        }
+    }
+
+    private static long nonEmpty(long fingerprint) {
+        return fingerprint == EMPTY ? 1L : fingerprint;
+    }
+
+    private int slotPosition(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    /// Отпечаток уже равномерно распределен (это часть SHA-256), достаточно смешать старшие и младшие биты
+    private int spread(long fingerprint) {
+        return (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+    }
+
+    private static FileChannel open(Path path) {
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open deny-list file " + path, e);
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null; // Файл уже открыт в этом же процессе
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot lock deny-list file", e);
+        }
+    }
+
+    private static Path createTempFile(Path path) {
+        try {
+            Path instancePath = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".instance");
+            instancePath.toFile().deleteOnExit();
+            return instancePath;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create deny-list file next to " + path, e);
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long size, Path path) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map deny-list file " + path, e);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Не удалось закрыть файл deny-list: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ru.nand.notificationservice.util;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/// Результат однократной проверки пользовательского токена
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class TokenVerificationResult {
+    private static final TokenVerificationResult EXPIRED = new TokenVerificationResult(Status.EXPIRED, null);
+    private static final TokenVerificationResult INVALID = new TokenVerificationResult(Status.INVALID, null);
+
+    private final Status status;
+    private final VerifiedUserToken token; // null, если токен не прошел проверку
+
+    public static TokenVerificationResult valid(VerifiedUserToken token) {
+        return new TokenVerificationResult(Status.VALID, token);
+    }
+
+    public static TokenVerificationResult expired() {
+        return EXPIRED;
+    }
+
+    public static TokenVerificationResult invalid() {
+        return INVALID;
+    }
+
+    public boolean isValid() {
+        return status == Status.VALID;
+    }
+
+    public boolean isExpired() {
+        return status == Status.EXPIRED;
+    }
+
+    public enum Status {
+        VALID, EXPIRED, INVALID
+    }
+}
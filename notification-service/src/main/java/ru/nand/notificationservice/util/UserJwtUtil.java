@@ -2,22 +2,35 @@ package ru.nand.notificationservice.util;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
 import java.util.function.Function;
 
 @Slf4j
 @Component
 public class UserJwtUtil {
+    public static final int TOKEN_HASH_LENGTH = 32;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(UserJwtUtil::newSha256);
+    private static final ThreadLocal<byte[]> TOKEN_BYTES = ThreadLocal.withInitial(() -> new byte[1024]);
+    private static final MessageDigest SHA_256_PROTOTYPE = newSha256(); // Только для clone(), сам не обновляется
+
     @Value("${jwt.user.secret}")
     private String userSecretKey;
     @Value("${jwt.user.access.expiration}")
@@ -25,43 +38,79 @@ public class UserJwtUtil {
     @Value("${jwt.user.refresh.expiration}")
     private long refreshTokenExpiration;
 
-    private Key getUserSigningKey(){
-        return Keys.hmacShaKeyFor(userSecretKey.getBytes());
+    // Ключ и парсер неизменяемы и потокобезопасны, поэтому строятся один раз на весь жизненный цикл бина
+    private Key userSigningKey;
+    private JwtParser userTokenParser;
+
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    public UserJwtUtil(VerifiedTokenCache verifiedTokenCache) {
+        this.verifiedTokenCache = verifiedTokenCache;
     }
 
-    /// Валидация истечения пользовательского токена
-    public boolean validateExpirationUserToken(String token) {
+    @PostConstruct
+    private void init(){
+        this.userSigningKey = Keys.hmacShaKeyFor(userSecretKey.getBytes());
+        this.userTokenParser = Jwts.parserBuilder()
+                .setSigningKey(userSigningKey)
+                .build();
+    }
+
+    /// Однократная проверка токена: подпись, срок действия и извлечение всех нужных данных за один разбор
+    public TokenVerificationResult verify(String token) {
+        if (token == null || token.isBlank()) {
+            return TokenVerificationResult.invalid();
+        }
+
+        return verify(token, hashToken(token));
+    }
+
+    /// Проверка токена, хэш которого вызывающий уже посчитал
+    public TokenVerificationResult verify(String token, byte[] tokenHash) {
+        if (token == null || token.isBlank()) {
+            return TokenVerificationResult.invalid();
+        }
+
+        // Повторно присланный токен уже проверялся - HMAC и разбор claims пропускаем
+        VerifiedUserToken cached = verifiedTokenCache.get(ByteBuffer.wrap(tokenHash));
+        if (cached != null && cached.getExpiresAt().isAfter(Instant.now())) {
+            return TokenVerificationResult.valid(cached);
+        }
+
         try{
-            Jwts.parserBuilder()
-                    .setSigningKey(getUserSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
+            Claims claims = userTokenParser.parseClaimsJws(token).getBody();
+            VerifiedUserToken verifiedToken = toVerifiedUserToken(claims);
+            // Ключ - копия: массив вызывающего (например, буфер hashToken(token, out)) может быть переиспользован
+            verifiedTokenCache.put(ByteBuffer.wrap(tokenHash.clone()), verifiedToken);
 
-            return true;
+            return TokenVerificationResult.valid(verifiedToken);
         } catch (ExpiredJwtException e){
-            log.error("Ошибка валидации истечения токена: {}", e.getMessage());
-            return false;
+            log.debug("Токен истек: {}", e.getMessage());
+            return TokenVerificationResult.expired();
+        } catch (JwtException | IllegalArgumentException e){
+            log.debug("Токен не прошел проверку: {}", e.getMessage());
+            return TokenVerificationResult.invalid();
         }
     }
 
+    /// Валидация истечения пользовательского токена
+    public boolean validateExpirationUserToken(String token) {
+        return !verify(token).isExpired();
+    }
+
     /// Валидация токена (ну типа общая)
     public boolean validateUserToken(String token) {
-        try{
-            Jwts.parserBuilder()
-                    .setSigningKey(getUserSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
-
-            return true;
-        } catch (Exception e){
-            log.error("Ошибка валидации токена: {}", e.getMessage());
-            return false;
-        }
+        return verify(token).isValid();
     }
 
     /// Отсечение
     public String resolveUserTokenFromRequest(HttpServletRequest request){
-        String bearer = request.getHeader("Authorization");
+        return resolveUserToken(request.getHeader("Authorization"));
+    }
+
+    /// Токен из значения заголовка Authorization (для WebFlux, где HttpServletRequest нет)
+    public String resolveUserToken(String bearer){
         if (bearer != null && bearer.startsWith("Bearer ")) {
             return bearer.substring(7);
         }
@@ -73,11 +122,7 @@ public class UserJwtUtil {
     /// Получить все данные из пользовательского токена
     private Claims extractAllClaims(String token) {
         try{
-            return Jwts.parserBuilder()
-                    .setSigningKey(getUserSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return userTokenParser.parseClaimsJws(token).getBody();
         } catch (Exception e){
             log.warn("Не удалось извлечь данные из токена: {}", e.getMessage());
             return null;
@@ -108,25 +153,75 @@ public class UserJwtUtil {
         return extractClaim(token, claims -> claims.get("role", String.class));
     }
 
-    /// Хэширование токена по SHA-256
-    public String hashToken(String token) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256"); // Алгоритм
+    /// Сборка неизменяемого представления токена из проверенных claims
+    private VerifiedUserToken toVerifiedUserToken(Claims claims) {
+        Number userId = claims.get("user_id", Number.class);
+
+        return VerifiedUserToken.builder()
+                .subject(claims.getSubject())
+                .role(claims.get("role", String.class))
+                .email(claims.get("email", String.class))
+                .userId(userId != null ? userId.longValue() : null)
+                .tokenType(claims.get("token_type", String.class))
+                .expiresAt(claims.getExpiration() != null ? claims.getExpiration().toInstant() : null)
+                .build();
+    }
 
-            byte[] encodedHash = digest.digest(token.getBytes(StandardCharsets.UTF_8)); // Разбиваем троку на байты и прогоняем через sha
+    /// Хэширование токена по SHA-256 в 32 байта (в таком виде хэш хранится в БД)
+    public byte[] hashToken(String token) {
+        byte[] tokenHash = new byte[TOKEN_HASH_LENGTH];
+        hashToken(token, tokenHash);
+        return tokenHash;
+    }
 
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : encodedHash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) hexString.append('0');
-                hexString.append(hex);
-            }
+    /// Хэширование токена в переданный буфер. Дайджест и буфер под байты токена переиспользуются платформенным потоком.
+    /// Виртуальный поток живет один запрос, ThreadLocal там только создавал бы экземпляры впустую - берется копия прототипа
+    public void hashToken(String token, byte[] out) {
+        boolean virtual = Thread.currentThread().isVirtual();
+        MessageDigest digest = virtual ? copySha256() : SHA_256.get();
+        int length = token.length();
+
+        byte[] tokenBytes = virtual ? new byte[length] : TOKEN_BYTES.get();
+        if (tokenBytes.length < length) {
+            tokenBytes = new byte[Math.max(length, tokenBytes.length * 2)];
+            TOKEN_BYTES.set(tokenBytes);
+        }
 
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
+        // JWT состоит из ASCII (base64url и точки), поэтому символы копируются в байты напрямую
+        boolean ascii = true;
+        for (int i = 0; i < length && ascii; i++) {
+            char c = token.charAt(i);
+            ascii = c < 0x80;
+            tokenBytes[i] = (byte) c;
+        }
+
+        try {
+            if (ascii) {
+                digest.update(tokenBytes, 0, length);
+            } else {
+                digest.update(token.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.digest(out, 0, TOKEN_HASH_LENGTH);
+        } catch (DigestException e) {
+            digest.reset();
             log.error("Ошибка при хэшировании токена: {}", e.getMessage());
             throw new RuntimeException("Token hashing error: " + e.getMessage());
         }
     }
 
+    private static MessageDigest copySha256() {
+        try {
+            return (MessageDigest) SHA_256_PROTOTYPE.clone();
+        } catch (CloneNotSupportedException e) {
+            return newSha256();
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
 }
@@ -0,0 +1,65 @@
+package ru.nand.notificationservice.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+
+/// Ограниченный кэш проверенных claims по SHA-256 дайджесту токена. Запись живет не дольше exp самого токена
+@Component
+public class VerifiedTokenCache {
+    private final Cache<ByteBuffer, VerifiedUserToken> cache;
+
+    @Autowired
+    public VerifiedTokenCache(@Value("${jwt.user.cache.maximum-size:100000}") long maximumSize,
+                              @Value("${jwt.user.cache.max-ttl:PT5M}") Duration maxTtl,
+                              MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry(maxTtl))
+                .recordStats()
+                .build();
+
+        // hit/miss/eviction и размер кэша
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified-claims");
+    }
+
+    /// Получение проверенного токена по дайджесту (null, если записи нет или она истекла)
+    public VerifiedUserToken get(ByteBuffer tokenDigest) {
+        return cache.getIfPresent(tokenDigest);
+    }
+
+    /// Сохранение проверенного токена. Токены без exp не кэшируются
+    public void put(ByteBuffer tokenDigest, VerifiedUserToken token) {
+        if (token.getExpiresAt() != null) {
+            cache.put(tokenDigest, token);
+        }
+    }
+
+    /// Время жизни записи - до exp токена, но не больше maxTtl
+    private record TokenExpiry(Duration maxTtl) implements Expiry<ByteBuffer, VerifiedUserToken> {
+        @Override
+        public long expireAfterCreate(ByteBuffer key, VerifiedUserToken token, long currentTime) {
+            long untilExpiration = Duration.between(Instant.now(), token.getExpiresAt()).toNanos();
+            return Math.max(0, Math.min(untilExpiration, maxTtl.toNanos()));
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, VerifiedUserToken token, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, token, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, VerifiedUserToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.nand.notificationservice.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Instant;
+
+/// Данные проверенного пользовательского токена (подпись и срок действия уже проверены)
+@Getter
+@Builder
+@ToString
+@AllArgsConstructor
+public final class VerifiedUserToken {
+    /// Атрибут запроса, в котором фильтр оставляет проверенный токен для контроллеров и сервисов
+    public static final String REQUEST_ATTRIBUTE = "ru.nand.notificationservice.util.VerifiedUserToken"; // Литерал, чтобы ссылаться из @RequestAttribute
+
+    private final String subject;
+    private final String role;
+    private final String email;
+    private final Long userId;
+    private final String tokenType;
+    private final Instant expiresAt;
+}
@@ -0,0 +1,273 @@
+package ru.nand.notificationservice.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.channel.ChannelOption;
+import jakarta.servlet.ServletRegistration;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.annotation.AnnotationConfigUtils;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.support.GenericWebApplicationContext;
+import org.springframework.web.reactive.config.EnableWebFlux;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.nand.notificationservice.config.security.ReactiveJwtFilter;
+import ru.nand.notificationservice.controller.NotificationController;
+import ru.nand.notificationservice.controller.ReactiveNotificationController;
+import ru.nand.notificationservice.entity.Notification;
+import ru.nand.notificationservice.repository.NotificationRepository;
+import ru.nand.notificationservice.repository.ReactiveNotificationRepository;
+import ru.nand.notificationservice.service.NotificationServiceImpl;
+import ru.nand.notificationservice.service.ReactiveNotificationServiceImpl;
+import ru.nand.notificationservice.util.RevocationDenyList;
+import ru.nand.notificationservice.util.UserJwtUtil;
+import ru.nand.notificationservice.util.VerifiedTokenCache;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/// GET /api/notification на servlet-стеке (Tomcat, 200 потоков, NotificationController и блокирующий репозиторий)
+/// против WebFlux на Netty (ReactiveNotificationController, ReactiveJwtFilter, Flux из репозитория) при медленных клиентах.
+/// Контроллеры и сервисы настоящие, Cassandra заменена заглушками с той же разбивкой на страницы и задержкой на страницу:
+/// блокирующая спит на каждой странице и отдает весь список, реактивная выдает следующую страницу только по спросу.
+/// Клиенты читают ответ порциями с паузами, буфер отправки сервера ограничен, как у соединения с медленной мобильной
+/// сетью, иначе ядро приняло бы весь ответ и поток Tomcat освободился бы сразу. Клиенты в замкнутом цикле.
+/// Запуск: main из IDE или mvn test-compile exec:java с classpath тестов
+public class NotificationReadBenchmark {
+    private static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef";
+    private static final String EMAIL = "alice@example.com";
+    private static final int NOTIFICATIONS = 500;
+    private static final int PAGE_SIZE = 50; // Меньше spring.cassandra.request.page-size, чтобы ответ собирался из нескольких страниц
+    private static final long PAGE_LATENCY_MILLIS = 5;
+    private static final int SEND_BUFFER = 16 * 1024;
+    private static final int CLIENT_CHUNK = 4 * 1024;
+    private static final long CLIENT_PAUSE_MILLIS = 100; // ~40 КБ/с
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(20);
+
+    private final List<Notification> notifications = new ArrayList<>(NOTIFICATIONS);
+    private final UserJwtUtil userJwtUtil;
+    private final String request;
+
+    public NotificationReadBenchmark() {
+        for (int i = 0; i < NOTIFICATIONS; i++) {
+            notifications.add(Notification.builder()
+                    .key(new Notification.NotificationKey(EMAIL, UUID.randomUUID(), UUID.randomUUID()))
+                    .message("Вход в аккаунт с нового устройства, IP 203.0.113." + (i % 256) + ". Если это были не вы, смените пароль")
+                    .creationDate(LocalDateTime.now())
+                    .build());
+        }
+
+        userJwtUtil = new UserJwtUtil(new VerifiedTokenCache(1000, Duration.ofMinutes(5), new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(userJwtUtil, "userSecretKey", SECRET);
+        ReflectionTestUtils.invokeMethod(userJwtUtil, "init");
+
+        String token = Jwts.builder()
+                .setSubject("alice")
+                .claim("email", EMAIL)
+                .setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+        request = "GET /api/notification HTTP/1.1\r\nHost: localhost\r\nAuthorization: Bearer " + token
+                + "\r\nAccept: application/json\r\nConnection: close\r\n\r\n";
+    }
+
+    public static void main(String[] args) throws Exception {
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN); // Лог на каждый запрос исказил бы замер
+        NotificationReadBenchmark benchmark = new NotificationReadBenchmark();
+        int[] concurrencyLevels = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray() : new int[]{200, 1000, 2000};
+
+        System.out.printf("%-10s %8s %10s %10s %10s %8s %10s%n", "mode", "clients", "req/s", "p50 ms", "p99 ms", "errors", "threads");
+        for (int clients : concurrencyLevels) {
+            benchmark.run("servlet", clients, benchmark.startServlet());
+            benchmark.run("reactive", clients, benchmark.startReactive());
+        }
+        System.exit(0);
+    }
+
+    private void run(String mode, int clients, WebServer server) throws Exception {
+        try {
+            measure(server.getPort(), clients, WARMUP);
+            AtomicInteger errors = new AtomicInteger();
+            long[] latencies = measure(server.getPort(), clients, MEASUREMENT, errors);
+
+            Arrays.sort(latencies);
+            System.out.printf("%-10s %8d %10.0f %10.1f %10.1f %8d %10d%n", mode, clients,
+                    latencies.length / (double) MEASUREMENT.toSeconds(),
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), errors.get(), serverThreads(mode));
+        } finally {
+            server.stop();
+        }
+    }
+
+    /// Tomcat: DispatcherServlet с NotificationController, токен проверяет сам сервис (JwtRequestFilter требует Spring Security)
+    private WebServer startServlet() {
+        NotificationRepository repository = mock(NotificationRepository.class);
+        when(repository.findAllByKeyUserEmailOrderByKeyCreatedAtDesc(anyString())).thenAnswer(invocation -> {
+            Thread.sleep(pages() * PAGE_LATENCY_MILLIS); // Все страницы до ответа
+            return notifications;
+        });
+
+        GenericWebApplicationContext context = new GenericWebApplicationContext();
+        AnnotationConfigUtils.registerAnnotationConfigProcessors(context);
+        context.registerBean(MvcConfig.class);
+        context.registerBean(NotificationController.class, () -> new NotificationController(new NotificationServiceImpl(repository, userJwtUtil)));
+
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        factory.addConnectorCustomizers(connector -> connector.setProperty("socket.txBufSize", String.valueOf(SEND_BUFFER)));
+        WebServer server = factory.getWebServer(servletContext -> {
+            ServletRegistration.Dynamic dispatcher = servletContext.addServlet("dispatcher", new DispatcherServlet(context));
+            dispatcher.setLoadOnStartup(1);
+            dispatcher.addMapping("/");
+        });
+        server.start();
+        return server;
+    }
+
+    /// Netty: DispatcherHandler с ReactiveNotificationController за ReactiveJwtFilter
+    private WebServer startReactive() throws Exception {
+        ReactiveNotificationRepository repository = mock(ReactiveNotificationRepository.class);
+        when(repository.findAllByKeyUserEmailOrderByKeyCreatedAtDesc(anyString())).thenAnswer(invocation -> Flux.range(0, pages())
+                .concatMap(page -> Mono.delay(Duration.ofMillis(PAGE_LATENCY_MILLIS))
+                        .thenMany(Flux.fromIterable(notifications.subList(page * PAGE_SIZE, Math.min(NOTIFICATIONS, (page + 1) * PAGE_SIZE)))), 0));
+
+        GenericApplicationContext context = new GenericApplicationContext();
+        AnnotationConfigUtils.registerAnnotationConfigProcessors(context);
+        context.registerBean(WebFluxConfig.class);
+        context.registerBean(ReactiveNotificationController.class, () -> new ReactiveNotificationController(new ReactiveNotificationServiceImpl(repository)));
+        context.refresh();
+
+        RevocationDenyList revocationDenyList = new RevocationDenyList(Files.createTempFile("deny-list", ".bin"), 16, new SimpleMeterRegistry());
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory(0);
+        factory.addServerCustomizers(server -> server.childOption(ChannelOption.SO_SNDBUF, SEND_BUFFER));
+        WebServer server = factory.getWebServer(WebHttpHandlerBuilder.applicationContext(context)
+                .filter(new ReactiveJwtFilter(userJwtUtil, revocationDenyList))
+                .build());
+        server.start();
+        return server;
+    }
+
+    private long[] measure(int port, int clients, Duration duration) throws Exception {
+        return measure(port, clients, duration, new AtomicInteger());
+    }
+
+    /// Задержки всех запросов, завершенных за duration, в наносекундах
+    private long[] measure(int port, int clients, Duration duration, AtomicInteger errors) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<long[]>> results = new ArrayList<>(clients);
+
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                results.add(clientThreads.submit(() -> {
+                    long[] latencies = new long[256];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        if (!slowGet(port)) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - start;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+        }
+
+        return results.stream().map(NotificationReadBenchmark::join).flatMapToLong(Arrays::stream).toArray();
+    }
+
+    /// Запрос с чтением ответа по CLIENT_CHUNK байт раз в CLIENT_PAUSE_MILLIS. true - получен 200 и ответ дочитан
+    private boolean slowGet(int port) {
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(SEND_BUFFER);
+            socket.connect(new InetSocketAddress("localhost", port));
+            OutputStream out = socket.getOutputStream();
+            out.write(request.getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            byte[] chunk = new byte[CLIENT_CHUNK];
+            int read = in.readNBytes(chunk, 0, 12);
+            boolean ok = read == 12 && new String(chunk, 0, 12, StandardCharsets.US_ASCII).endsWith("200");
+            while (in.readNBytes(chunk, 0, CLIENT_CHUNK) == CLIENT_CHUNK) { // Постоянная скорость чтения, как бы сервер ни дробил запись
+                Thread.sleep(CLIENT_PAUSE_MILLIS);
+            }
+            return ok;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static int pages() {
+        return (NOTIFICATIONS + PAGE_SIZE - 1) / PAGE_SIZE;
+    }
+
+    /// Потоки, обрабатывающие запросы: exec-потоки Tomcat или event-loop потоки Netty
+    private static long serverThreads(String mode) {
+        String prefix = mode.equals("servlet") ? "http-nio-" : "reactor-http-";
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith(prefix) && (thread.getName().contains("exec") || prefix.startsWith("reactor")))
+                .count();
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static long[] join(Future<long[]> future) {
+        try {
+            return future.get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableWebMvc
+    static class MvcConfig {
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableWebFlux
+    static class WebFluxConfig {
+    }
+}
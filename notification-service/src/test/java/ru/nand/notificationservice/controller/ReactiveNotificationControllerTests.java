@@ -0,0 +1,127 @@
+package ru.nand.notificationservice.controller;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.nand.notificationservice.config.security.ReactiveJwtFilter;
+import ru.nand.notificationservice.entity.Notification;
+import ru.nand.notificationservice.entity.dto.NotificationDTO;
+import ru.nand.notificationservice.repository.ReactiveNotificationRepository;
+import ru.nand.notificationservice.service.ReactiveNotificationServiceImpl;
+import ru.nand.notificationservice.util.RevocationDenyList;
+import ru.nand.notificationservice.util.UserJwtUtil;
+import ru.nand.notificationservice.util.VerifiedTokenCache;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveNotificationControllerTests {
+    private static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef";
+    private static final String EMAIL = "alice@example.com";
+
+    @TempDir
+    Path tempDir;
+
+    private ReactiveNotificationRepository notificationRepository;
+    private RevocationDenyList revocationDenyList;
+    private UserJwtUtil userJwtUtil;
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        notificationRepository = mock(ReactiveNotificationRepository.class);
+        revocationDenyList = new RevocationDenyList(tempDir.resolve("deny-list.bin"), 16, new SimpleMeterRegistry());
+
+        userJwtUtil = new UserJwtUtil(new VerifiedTokenCache(1000, Duration.ofMinutes(5), new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(userJwtUtil, "userSecretKey", SECRET);
+        ReflectionTestUtils.invokeMethod(userJwtUtil, "init");
+
+        client = WebTestClient
+                .bindToController(new ReactiveNotificationController(new ReactiveNotificationServiceImpl(notificationRepository)))
+                .webFilter(new ReactiveJwtFilter(userJwtUtil, revocationDenyList))
+                .build();
+    }
+
+    @Test
+    void notificationsOfTokenOwnerAreStreamed() {
+        when(notificationRepository.findAllByKeyUserEmailOrderByKeyCreatedAtDesc(EMAIL))
+                .thenReturn(Flux.just(notification("first"), notification("second")));
+
+        List<NotificationDTO> notifications = client.get().uri("/api/notification")
+                .header("Authorization", "Bearer " + token(60_000))
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(NotificationDTO.class)
+                .getResponseBody()
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(List.of("first", "second"), notifications.stream().map(NotificationDTO::getMessage).toList());
+    }
+
+    @Test
+    void requestsWithoutValidSessionAreRejectedBeforeCassandra() {
+        String revoked = token(60_000);
+        revocationDenyList.revoke(HexFormat.of().formatHex(userJwtUtil.hashToken(revoked)), System.currentTimeMillis() + 60_000);
+
+        client.get().uri("/api/notification").exchange().expectStatus().isForbidden();
+        client.get().uri("/api/notification").header("Authorization", "Bearer " + token(-1_000)).exchange().expectStatus().isUnauthorized();
+        client.get().uri("/api/notification").header("Authorization", "Bearer " + revoked).exchange().expectStatus().isUnauthorized();
+
+        verify(notificationRepository, never()).findAllByKeyUserEmailOrderByKeyCreatedAtDesc(any());
+    }
+
+    @Test
+    void missingNotificationIsNotFoundAndCannotBeDeleted() {
+        UUID id = UUID.randomUUID();
+        when(notificationRepository.findByUserEmailAndNotificationId(EMAIL, id)).thenReturn(Mono.empty());
+
+        client.get().uri("/api/notification/{id}", id).header("Authorization", "Bearer " + token(60_000))
+                .exchange().expectStatus().isNotFound();
+        client.delete().uri("/api/notification/{id}", id).header("Authorization", "Bearer " + token(60_000))
+                .exchange().expectStatus().isBadRequest();
+
+        verify(notificationRepository, never()).deleteById(any(Notification.NotificationKey.class));
+    }
+
+    private static String token(long ttlMillis) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .setSubject("alice")
+                .claim("email", EMAIL)
+                .setIssuedAt(new Date(now - 120_000))
+                .setExpiration(new Date(now + ttlMillis))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+
+    private static Notification notification(String message) {
+        return Notification.builder()
+                .key(new Notification.NotificationKey(EMAIL, UUID.randomUUID(), UUID.randomUUID()))
+                .message(message)
+                .creationDate(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,79 @@
+package ru.nand.notificationservice.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+import ru.nand.notificationservice.entity.dto.NotificationDTO;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NotificationAvroDeserializerTests {
+    private final NotificationSchemaRegistry registry = NotificationSchemaRegistry.load();
+    private final NotificationAvroDeserializer deserializer =
+            new NotificationAvroDeserializer(registry, new ObjectMapper().registerModule(new JavaTimeModule()));
+
+    @Test
+    void avroRecordIsDecodedWithWriterSchema() throws Exception {
+        UUID notificationId = UUID.randomUUID();
+        LocalDateTime creationDate = LocalDateTime.of(2024, 5, 1, 12, 30, 15);
+
+        GenericRecord record = new GenericData.Record(registry.schema(1));
+        record.put("notificationId", new GenericData.Fixed(registry.schema(1).getField("notificationId").schema().getTypes().get(1),
+                ByteBuffer.allocate(16).putLong(notificationId.getMostSignificantBits()).putLong(notificationId.getLeastSignificantBits()).array()));
+        record.put("message", "Ваш код верификации: 1234");
+        record.put("userEmail", "alice@example.com");
+        record.put("creationDate", creationDate.toInstant(ZoneOffset.UTC).toEpochMilli());
+
+        NotificationDTO notification = deserializer.deserialize("auth-notifications-topic", encode(1, record));
+
+        assertEquals(notificationId, notification.getNotificationId());
+        assertNull(notification.getCreatedAt());
+        assertEquals("Ваш код верификации: 1234", notification.getMessage());
+        assertEquals("alice@example.com", notification.getUserEmail());
+        assertEquals(creationDate, notification.getCreationDate());
+    }
+
+    @Test
+    void legacyJsonIsStillAccepted() {
+        byte[] json = "{\"message\":\"hello\",\"userEmail\":\"alice@example.com\",\"creationDate\":\"2024-05-01T12:30:15\"}"
+                .getBytes(StandardCharsets.UTF_8);
+
+        NotificationDTO notification = deserializer.deserialize("auth-notifications-topic", json);
+
+        assertEquals("alice@example.com", notification.getUserEmail());
+        assertEquals(LocalDateTime.of(2024, 5, 1, 12, 30, 15), notification.getCreationDate());
+    }
+
+    @Test
+    void unknownSchemaOrGarbageFailsWithSerializationException() {
+        byte[] unknownSchema = ByteBuffer.allocate(6).put(NotificationSchemaRegistry.MAGIC_BYTE).putInt(registry.latestId() + 1).put((byte) 0).array();
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("auth-notifications-topic", unknownSchema));
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("auth-notifications-topic", new byte[]{7, 7, 7}));
+    }
+
+    private static byte[] encode(int schemaId, GenericRecord record) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(NotificationSchemaRegistry.MAGIC_BYTE);
+        out.write(ByteBuffer.allocate(4).putInt(schemaId).array());
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        new GenericDatumWriter<GenericRecord>(record.getSchema()).write(record, encoder);
+        encoder.flush();
+        return out.toByteArray();
+    }
+}
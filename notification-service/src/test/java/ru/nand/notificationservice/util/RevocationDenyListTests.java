@@ -0,0 +1,61 @@
+package ru.nand.notificationservice.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RevocationDenyListTests {
+    private static final String TOKEN_HASH = "3f1a9c0e5b7d2468ace13579bdf02468ace13579bdf02468ace13579bdf02468";
+    private static final String OTHER_HASH = "0000000000000000ace13579bdf02468ace13579bdf02468ace13579bdf02468";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void revokedTokenIsFoundUntilItExpires() {
+        RevocationDenyList denyList = new RevocationDenyList(tempDir.resolve("deny-list.bin"), 16, new SimpleMeterRegistry());
+        long now = System.currentTimeMillis();
+
+        denyList.revoke(TOKEN_HASH, now + 60_000);
+        denyList.revoke(OTHER_HASH, now - 1);
+
+        assertTrue(denyList.isRevoked(HexFormat.of().parseHex(TOKEN_HASH)));
+        assertFalse(denyList.isRevoked(HexFormat.of().parseHex(OTHER_HASH)));
+    }
+
+    @Test
+    void entriesAndOffsetsSurviveRestart() {
+        Path file = tempDir.resolve("deny-list.bin");
+        RevocationDenyList denyList = new RevocationDenyList(file, 16, new SimpleMeterRegistry());
+        denyList.revoke(TOKEN_HASH, System.currentTimeMillis() + 60_000);
+        denyList.commitOffset(2, 41);
+        denyList.close();
+
+        RevocationDenyList reopened = new RevocationDenyList(file, 16, new SimpleMeterRegistry());
+
+        assertTrue(reopened.isRevoked(HexFormat.of().parseHex(TOKEN_HASH)));
+        assertEquals(41, reopened.committedOffset(2));
+        assertEquals(-1, reopened.committedOffset(0));
+    }
+
+    @Test
+    void fullTableKeepsNewRevocationsInMemory() {
+        RevocationDenyList denyList = new RevocationDenyList(tempDir.resolve("deny-list.bin"), 2, new SimpleMeterRegistry());
+        long now = System.currentTimeMillis();
+
+        denyList.revoke("1000000000000000", now + 60_000);
+        denyList.revoke("2000000000000000", now + 60_000);
+        denyList.revoke("3000000000000000", now + 60_000); // Места нет, отзыв хранится в памяти
+
+        assertTrue(denyList.isRevoked(HexFormat.of().parseHex("3000000000000000")));
+        assertTrue(denyList.isRevoked(HexFormat.of().parseHex("1000000000000000")));
+        assertTrue(denyList.isRevoked(HexFormat.of().parseHex("2000000000000000")));
+    }
+}